@@ -0,0 +1,227 @@
+package com.selventa.belframework.api.examples;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * AltPathSearch finds the shortest path using A* guided by the landmark
+ * lower bounds of a {@link LandmarkIndex}.
+ *
+ * <p>
+ * The index for each graph is loaded (or built) on first use and reused for
+ * every later query against the same graph.  Nodes that a landmark proves
+ * to be disconnected from the target are never queued.
+ * </p>
+ */
+public class AltPathSearch implements PathSearch {
+
+    /**
+     * Holds the edges and directions the search follows.
+     */
+    private final TraversalMode mode;
+
+    /**
+     * Holds the directory landmark index files are kept in.
+     */
+    private final File indexDirectory;
+
+    /**
+     * Holds the number of landmarks to select.
+     */
+    private final int landmarkCount;
+
+    /**
+     * Holds the landmark index of each graph searched so far, for the life
+     * of the engine.
+     */
+    private final ConcurrentMap<KamGraph, Future<LandmarkIndex>> indexes =
+            new ConcurrentHashMap<KamGraph, Future<LandmarkIndex>>();
+
+    /**
+     * Constructs an undirected AltPathSearch.
+     *
+     * @param indexDirectory {@link File}, the directory to keep landmark
+     * index files in
+     * @param landmarkCount <tt>int</tt>, the number of landmarks to select
+     */
+    public AltPathSearch(File indexDirectory, int landmarkCount) {
+        this(TraversalMode.UNDIRECTED, indexDirectory, landmarkCount);
+    }
+
+    /**
+     * Constructs the AltPathSearch.
+     *
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param indexDirectory {@link File}, the directory to keep landmark
+     * index files in
+     * @param landmarkCount <tt>int</tt>, the number of landmarks to select
+     */
+    public AltPathSearch(TraversalMode mode, File indexDirectory,
+            int landmarkCount) {
+        if (mode == null || indexDirectory == null || landmarkCount < 1) {
+            throw new IllegalArgumentException("invalid landmark settings");
+        }
+        this.mode = mode;
+        this.indexDirectory = indexDirectory;
+        this.landmarkCount = landmarkCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GraphPath search(KamGraph graph, int source, int target) {
+        return search(graph, source, target, SearchBudget.unlimited())
+                .getPath();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchResult search(KamGraph graph, int source, int target,
+            SearchBudget budget) {
+        if (budget.limitsHops()) {
+            return HopLimitedSearch.search(graph, mode, source, target,
+                    budget);
+        }
+        final LandmarkIndex landmarks = index(graph);
+        final int n = graph.nodeCount();
+        final int[] distances = new int[n];
+        final int[] predecessors = new int[n];
+        final int[] bounds = new int[n];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        Arrays.fill(predecessors, -1);
+        Arrays.fill(bounds, -1);
+
+        int sourceBound = landmarks.lowerBound(source, target);
+        if (sourceBound == LandmarkIndex.UNREACHABLE) {
+            return SearchResult.complete(null, false);
+        }
+
+        final int mask = mode.mask;
+        final PackedMinHeap unsettled = new PackedMinHeap(256);
+        distances[source] = 0;
+        bounds[source] = sourceBound;
+        unsettled.push(sourceBound, source);
+
+        SearchResult.Status stop = budget.check();
+        while (stop == null && !unsettled.isEmpty()) {
+            long minimum = unsettled.poll();
+            int node = PackedMinHeap.node(minimum);
+            int dref = distances[node];
+
+            // skip stale queue entries
+            if (PackedMinHeap.priority(minimum) != dref + bounds[node]) {
+                continue;
+            }
+            if (node == target) {
+                break;
+            }
+            stop = budget.settle();
+            if (stop != null) {
+                break;
+            }
+
+            for (int i = graph.forwardOffsets[node],
+                    end = graph.forwardOffsets[node + 1]; i < end; i++) {
+                int edge = graph.forwardEdges[i];
+                if ((graph.edgeFlags[edge] & mask) != 0) {
+                    relax(landmarks, distances, predecessors, bounds,
+                            unsettled, edge, graph.forwardNeighbors[i],
+                            dref + graph.edgeWeights[edge], target);
+                }
+            }
+            if (mode.directed) {
+                continue;
+            }
+            for (int i = graph.reverseOffsets[node],
+                    end = graph.reverseOffsets[node + 1]; i < end; i++) {
+                int edge = graph.reverseEdges[i];
+                if ((graph.edgeFlags[edge] & mask) != 0) {
+                    relax(landmarks, distances, predecessors, bounds,
+                            unsettled, edge, graph.reverseNeighbors[i],
+                            dref + graph.edgeWeights[edge], target);
+                }
+            }
+        }
+
+        GraphPath path = GraphPath.trace(graph, predecessors, source, target);
+        return stop != null ? new SearchResult(stop, path)
+                : SearchResult.complete(path, false);
+    }
+
+    /**
+     * Improve the distance of <tt>node</tt> through <tt>edge</tt>, queueing it
+     * by distance plus landmark lower bound.
+     */
+    private void relax(LandmarkIndex landmarks, int[] distances,
+            int[] predecessors, int[] bounds, PackedMinHeap unsettled,
+            int edge, int node, int dnew, int target) {
+        if (distances[node] <= dnew) {
+            return;
+        }
+        int bound = bounds[node];
+        if (bound == -1) {
+            bound = landmarks.lowerBound(node, target);
+            bounds[node] = bound;
+        }
+        if (bound == LandmarkIndex.UNREACHABLE) {
+            return;
+        }
+        distances[node] = dnew;
+        predecessors[node] = edge;
+        unsettled.push(dnew + bound, node);
+    }
+
+    /**
+     * Returns the landmark index for <tt>graph</tt>, loading it on first use.
+     * Queries for a graph whose index is still loading wait for that load;
+     * queries for other graphs do not.
+     */
+    private LandmarkIndex index(final KamGraph graph) {
+        Future<LandmarkIndex> index = indexes.get(graph);
+        if (index == null) {
+            FutureTask<LandmarkIndex> load = new FutureTask<LandmarkIndex>(
+                    new Callable<LandmarkIndex>() {
+                        @Override
+                        public LandmarkIndex call() {
+                            try {
+                                return LandmarkIndex.load(indexDirectory,
+                                        graph, mode, landmarkCount);
+                            } catch (IOException e) {
+                                // fall back to an in-memory index
+                                return LandmarkIndex.build(graph, mode,
+                                        landmarkCount);
+                            }
+                        }
+                    });
+            index = indexes.putIfAbsent(graph, load);
+            if (index == null) {
+                index = load;
+                load.run();
+            }
+        }
+
+        try {
+            return index.get();
+        } catch (ExecutionException e) {
+            // forget the failure so a later query can retry the load
+            indexes.remove(graph, index);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted loading index");
+        }
+    }
+}
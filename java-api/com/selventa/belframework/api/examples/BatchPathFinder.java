@@ -0,0 +1,379 @@
+package com.selventa.belframework.api.examples;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.selventa.belframework.api.KamStore;
+import com.selventa.belframework.api.KamStoreImpl;
+import com.selventa.belframework.common.cfg.SystemConfiguration;
+import com.selventa.belframework.df.DBConnection;
+import com.selventa.belframework.df.DatabaseService;
+import com.selventa.belframework.df.DatabaseServiceImpl;
+import com.selventa.belframework.kamstore.model.Kam;
+import com.selventa.belframework.kamstore.model.KamStoreException;
+
+/**
+ * BatchPathFinder runs many source / target path queries against a single
+ * loaded {@link Kam}.
+ *
+ * <p>
+ * The kam is loaded and snapshotted into one read-only {@link KamGraph}
+ * that all queries share.  Queries run in parallel on a fork-join pool and
+ * the results of each leaf task are written to the output file as soon as
+ * it completes, one tab-separated line per query, so result order is not
+ * the input order.
+ * </p>
+ *
+ * <p>
+ * Queries are either explicit source / target pairs or the cross product
+ * of a list of sources and a list of targets.  A cross product is never
+ * expanded; query <tt>i</tt> pairs source <tt>i / targets</tt> with target
+ * <tt>i % targets</tt>, so its size is bounded only by a <tt>long</tt>.
+ * </p>
+ */
+public class BatchPathFinder {
+
+    /**
+     * Queries per fork-join leaf task.
+     */
+    private static final int LEAF_SIZE = 16;
+
+    /**
+     * Holds the name of the KAM to path find in.
+     */
+    private final String kamName;
+
+    /**
+     * Holds the source node id of each query, or of each row of a cross
+     * product.
+     */
+    private final int[] sourceNodeIds;
+
+    /**
+     * Holds the target node id of each query, or of each column of a cross
+     * product.
+     */
+    private final int[] targetNodeIds;
+
+    /**
+     * <tt>true</tt> if every source is paired with every target.
+     */
+    private final boolean crossProduct;
+
+    /**
+     * Holds the number of queries.
+     */
+    private final long queryCount;
+
+    /**
+     * Holds the output file to write results to.
+     */
+    private final String outputFile;
+
+    /**
+     * Holds the path search engine shared by all queries.
+     */
+    private final PathSearch pathSearch;
+
+    /**
+     * Holds the limits each query is run within.
+     */
+    private final SearchBudget limits;
+
+    /**
+     * Holds the fork-join parallelism.
+     */
+    private final int threads;
+
+    /**
+     * Constructs the BatchPathFinder.
+     *
+     * @param kamName {@link String}, the kam name
+     * @param sourceNodeIds <tt>int[]</tt>, the source node id of each query
+     * @param targetNodeIds <tt>int[]</tt>, the target node id of each query
+     * @param outputFile {@link String}, the results file
+     * @param pathSearch {@link PathSearch}, the path search engine
+     * @param threads <tt>int</tt>, the number of worker threads
+     */
+    public BatchPathFinder(String kamName, int[] sourceNodeIds,
+            int[] targetNodeIds, String outputFile, PathSearch pathSearch,
+            int threads) {
+        this(kamName, sourceNodeIds, targetNodeIds, outputFile, pathSearch,
+                threads, SearchBudget.unlimited());
+    }
+
+    /**
+     * Constructs the BatchPathFinder with per-query limits.
+     *
+     * @param kamName {@link String}, the kam name
+     * @param sourceNodeIds <tt>int[]</tt>, the source node id of each query
+     * @param targetNodeIds <tt>int[]</tt>, the target node id of each query
+     * @param outputFile {@link String}, the results file
+     * @param pathSearch {@link PathSearch}, the path search engine
+     * @param threads <tt>int</tt>, the number of worker threads
+     * @param limits {@link SearchBudget}, the limits each query is run
+     * within, renewed per query
+     */
+    public BatchPathFinder(String kamName, int[] sourceNodeIds,
+            int[] targetNodeIds, String outputFile, PathSearch pathSearch,
+            int threads, SearchBudget limits) {
+        this(kamName, sourceNodeIds, targetNodeIds, false, outputFile,
+                pathSearch, threads, limits);
+    }
+
+    /**
+     * Returns a BatchPathFinder querying every source against every target.
+     *
+     * @param kamName {@link String}, the kam name
+     * @param sourceNodeIds <tt>int[]</tt>, the source node ids
+     * @param targetNodeIds <tt>int[]</tt>, the target node ids
+     * @param outputFile {@link String}, the results file
+     * @param pathSearch {@link PathSearch}, the path search engine
+     * @param threads <tt>int</tt>, the number of worker threads
+     * @param limits {@link SearchBudget}, the limits each query is run
+     * within, renewed per query
+     * @return {@link BatchPathFinder}
+     */
+    public static BatchPathFinder crossProduct(String kamName,
+            int[] sourceNodeIds, int[] targetNodeIds, String outputFile,
+            PathSearch pathSearch, int threads, SearchBudget limits) {
+        return new BatchPathFinder(kamName, sourceNodeIds, targetNodeIds,
+                true, outputFile, pathSearch, threads, limits);
+    }
+
+    private BatchPathFinder(String kamName, int[] sourceNodeIds,
+            int[] targetNodeIds, boolean crossProduct, String outputFile,
+            PathSearch pathSearch, int threads, SearchBudget limits) {
+        if (kamName == null || sourceNodeIds == null || targetNodeIds == null
+                || outputFile == null || pathSearch == null
+                || limits == null) {
+            throw new IllegalArgumentException("input(s) were null.");
+        }
+        if ((!crossProduct && sourceNodeIds.length != targetNodeIds.length)
+                || threads < 1) {
+            throw new IllegalArgumentException("invalid batch settings.");
+        }
+        this.kamName = kamName;
+        this.sourceNodeIds = sourceNodeIds;
+        this.targetNodeIds = targetNodeIds;
+        this.crossProduct = crossProduct;
+        this.queryCount = crossProduct
+                ? (long) sourceNodeIds.length * targetNodeIds.length
+                : sourceNodeIds.length;
+        this.outputFile = outputFile;
+        this.pathSearch = pathSearch;
+        this.threads = threads;
+        this.limits = limits;
+    }
+
+    /**
+     * Load the kam, run every query, and stream the results to the output
+     * file.
+     *
+     * @throws IOException Thrown if the system configuration could not be
+     * read or the output file could not be written
+     * @throws SQLException Thrown if a SQL error occurred working with the
+     * kam
+     * @throws KamStoreException Thrown if the kam could not be loaded
+     */
+    public void run() throws IOException, SQLException, KamStoreException {
+        SystemConfiguration.createSystemConfiguration(null);
+        SystemConfiguration config = SystemConfiguration.getSystemConfiguration();
+
+        // Setup a database connector to the KAM Store.
+        DatabaseService dbService = new DatabaseServiceImpl();
+        DBConnection dbc = dbService.dbConnection(
+                config.getKamURL(),
+                config.getKamUser(),
+                config.getKamPassword());
+        KamStore kamStore = new KamStoreImpl(dbc);
+
+        System.out.println("Loading kam " + kamName + "...");
+        Kam kam = kamStore.getKam(kamName);
+        KamGraph graph = KamGraph.snapshot(kam);
+
+        // the snapshot holds everything the queries need
+        kamStore.close(kam);
+        dbc.getConnection().close();
+
+        System.out.println("Running " + queryCount
+                + " path queries on " + threads + " threads...");
+        PrintWriter writer = new PrintWriter(new File(outputFile));
+        try {
+            writer.println("#source\ttarget\tdistance\tpath");
+            run(graph, writer);
+        } finally {
+            writer.close();
+        }
+
+        System.out.println("\nResults saved to file: "
+                + new File(outputFile).getAbsolutePath());
+    }
+
+    /**
+     * Run every query against <tt>graph</tt>, writing the result lines of
+     * each leaf task to <tt>writer</tt> as it completes.
+     *
+     * @param graph {@link KamGraph}, the shared graph
+     * @param writer {@link PrintWriter}, the results writer
+     */
+    void run(KamGraph graph, PrintWriter writer) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new QueryTask(graph, writer, 0, queryCount));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Run a single query and format its result line.
+     */
+    private String query(KamGraph graph, int sourceNodeId, int targetNodeId) {
+        StringBuilder line = new StringBuilder();
+        line.append(sourceNodeId).append('\t').append(targetNodeId)
+                .append('\t');
+
+        int source = graph.indexOf(sourceNodeId);
+        int target = graph.indexOf(targetNodeId);
+        if (source == -1 || target == -1) {
+            return line.append("-\tnode not found").toString();
+        }
+
+        // a query stopped by its limits reports why instead of a path
+        SearchResult result = pathSearch.search(graph, source, target,
+                limits.renew());
+        if (result.getStatus() != SearchResult.Status.FOUND) {
+            return line.append("-\t").append(result.getStatus().getLabel())
+                    .toString();
+        }
+
+        GraphPath path = result.getPath();
+        line.append(path.getDistance()).append('\t')
+                .append(path.formatNodeIds(graph));
+        return line.toString();
+    }
+
+    /**
+     * QueryTask splits a range of queries until it is small enough to run
+     * directly.
+     */
+    private final class QueryTask extends RecursiveAction {
+        private static final long serialVersionUID = -2893624911725048511L;
+
+        private final KamGraph graph;
+        private final PrintWriter writer;
+        private final long from;
+        private final long to;
+
+        private QueryTask(KamGraph graph, PrintWriter writer, long from,
+                long to) {
+            this.graph = graph;
+            this.writer = writer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                StringBuilder lines = new StringBuilder();
+                for (long i = from; i < to; i++) {
+                    int source, target;
+                    if (crossProduct) {
+                        source = sourceNodeIds[(int) (i / targetNodeIds.length)];
+                        target = targetNodeIds[(int) (i % targetNodeIds.length)];
+                    } else {
+                        source = sourceNodeIds[(int) i];
+                        target = targetNodeIds[(int) i];
+                    }
+                    lines.append(query(graph, source, target)).append('\n');
+                }
+                // one write and flush per leaf, not per line
+                synchronized (writer) {
+                    writer.print(lines);
+                    writer.flush();
+                }
+                return;
+            }
+            long middle = (from + to) >>> 1;
+            invokeAll(new QueryTask(graph, writer, from, middle),
+                    new QueryTask(graph, writer, middle, to));
+        }
+    }
+
+    /**
+     * Read source / target id pairs, one whitespace separated pair per line.
+     * Blank lines and lines starting with <tt>#</tt> are skipped.
+     *
+     * @param file {@link File}, the pairs file
+     * @return <tt>int[][]</tt>, the source ids and the target ids
+     * @throws IOException Thrown if the file could not be read or is
+     * malformed
+     */
+    static int[][] readPairs(File file) throws IOException {
+        List<String> lines = readLines(file);
+        int[] sources = new int[lines.size()];
+        int[] targets = new int[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            String[] tokens = lines.get(i).split("\\s+");
+            if (tokens.length != 2) {
+                throw new IOException("malformed pair: " + lines.get(i));
+            }
+            sources[i] = parseId(tokens[0]);
+            targets[i] = parseId(tokens[1]);
+        }
+        return new int[][] { sources, targets };
+    }
+
+    /**
+     * Read a node id file, one id per line.  Blank lines and lines starting
+     * with <tt>#</tt> are skipped.
+     *
+     * @param file {@link File}, the ids file
+     * @return <tt>int[]</tt>, the node ids
+     * @throws IOException Thrown if the file could not be read or is
+     * malformed
+     */
+    static int[] readIds(File file) throws IOException {
+        List<String> lines = readLines(file);
+        int[] ids = new int[lines.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = parseId(lines.get(i));
+        }
+        return ids;
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    private static int parseId(String token) throws IOException {
+        try {
+            return Integer.parseInt(token.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("malformed node id: " + token);
+        }
+    }
+}
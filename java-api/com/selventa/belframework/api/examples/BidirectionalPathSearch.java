@@ -0,0 +1,234 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+
+/**
+ * BidirectionalPathSearch runs Dijkstra's algorithm from the source forward
+ * and from the target backward, always expanding the side with the smaller
+ * frontier distance.
+ *
+ * <p>
+ * The best meeting distance <tt>mu</tt> is tracked whenever either side
+ * labels a node the other side has already reached.  The search stops once
+ * the two frontier minimums sum to at least <tt>mu</tt>; no unexplored path
+ * can be shorter at that point, so the meeting path is optimal.
+ * </p>
+ */
+public class BidirectionalPathSearch implements PathSearch {
+
+    /**
+     * Holds the edges and directions the search follows.
+     */
+    private final TraversalMode mode;
+
+    /**
+     * Constructs an undirected BidirectionalPathSearch.
+     */
+    public BidirectionalPathSearch() {
+        this(TraversalMode.UNDIRECTED);
+    }
+
+    /**
+     * Constructs the BidirectionalPathSearch.
+     *
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     */
+    public BidirectionalPathSearch(TraversalMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode is null");
+        }
+        this.mode = mode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GraphPath search(KamGraph graph, int source, int target) {
+        return search(graph, source, target, SearchBudget.unlimited())
+                .getPath();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * A search limited in hops is run by {@link HopLimitedSearch}, one
+     * direction only; a single label per node on each side could hide a
+     * longer path that meets the other side in fewer hops.
+     * </p>
+     */
+    @Override
+    public SearchResult search(KamGraph graph, int source, int target,
+            SearchBudget budget) {
+        if (source == target) {
+            return SearchResult.complete(new GraphPath(new int[] { source },
+                    new int[0], 0), false);
+        }
+        if (budget.limitsHops()) {
+            return HopLimitedSearch.search(graph, mode, source, target,
+                    budget);
+        }
+
+        final Side forward = new Side(graph, source, false);
+        final Side backward = new Side(graph, target, true);
+        final int mask = mode.mask;
+        final int passes = mode.directed ? 1 : 2;
+
+        int mu = Integer.MAX_VALUE;
+        int meet = -1;
+
+        SearchResult.Status stop = budget.check();
+        while (stop == null && forward.prune() && backward.prune()) {
+            int topForward = forward.unsettled.peekPriority();
+            int topBackward = backward.unsettled.peekPriority();
+            if (mu != Integer.MAX_VALUE && topForward + topBackward >= mu) {
+                break;
+            }
+
+            final Side side, other;
+            if (topForward <= topBackward) {
+                side = forward;
+                other = backward;
+            } else {
+                side = backward;
+                other = forward;
+            }
+
+            int node = PackedMinHeap.node(side.unsettled.poll());
+            int dref = side.distances[node];
+            stop = budget.settle();
+            if (stop != null) {
+                break;
+            }
+
+            // the backward side walks edges against their direction; in
+            // undirected traversal both sides walk both adjacency lists
+            for (int pass = 0; pass < passes; pass++) {
+                final int[] offsets = pass == 0 ? side.outOffsets : side.inOffsets;
+                final int[] adjEdges = pass == 0 ? side.outEdges : side.inEdges;
+                final int[] neighbors = pass == 0 ? side.outNeighbors : side.inNeighbors;
+                for (int i = offsets[node], end = offsets[node + 1]; i < end; i++) {
+                    int edge = adjEdges[i];
+                    if ((graph.edgeFlags[edge] & mask) == 0) {
+                        continue;
+                    }
+                    int next = neighbors[i];
+                    int dnew = dref + graph.edgeWeights[edge];
+                    if (side.relax(edge, next, dnew)
+                            && other.distances[next] != Integer.MAX_VALUE
+                            && dnew + other.distances[next] < mu) {
+                        mu = dnew + other.distances[next];
+                        meet = next;
+                    }
+                }
+            }
+        }
+
+        GraphPath path = meet == -1 ? null
+                : join(graph, forward, backward, meet, mu);
+        return stop != null ? new SearchResult(stop, path)
+                : SearchResult.complete(path, false);
+    }
+
+    /**
+     * Join the forward half (source to <tt>meet</tt>) and the backward half
+     * (<tt>meet</tt> to target) into a single path.
+     */
+    private GraphPath join(KamGraph graph, Side forward, Side backward,
+            int meet, int distance) {
+        int head = 0;
+        for (int node = meet; forward.predecessors[node] != -1; head++) {
+            node = graph.opposite(forward.predecessors[node], node);
+        }
+        int tail = 0;
+        for (int node = meet; backward.predecessors[node] != -1; tail++) {
+            node = graph.opposite(backward.predecessors[node], node);
+        }
+
+        int[] nodes = new int[head + tail + 1];
+        int[] edges = new int[head + tail];
+        int node = meet;
+        nodes[head] = meet;
+        for (int i = head - 1; i >= 0; i--) {
+            edges[i] = forward.predecessors[node];
+            node = graph.opposite(edges[i], node);
+            nodes[i] = node;
+        }
+        node = meet;
+        for (int i = head; i < head + tail; i++) {
+            edges[i] = backward.predecessors[node];
+            node = graph.opposite(edges[i], node);
+            nodes[i + 1] = node;
+        }
+        return new GraphPath(nodes, edges, distance);
+    }
+
+    /**
+     * Side holds the search state of one direction.
+     */
+    private static final class Side {
+        private final int[] distances;
+        private final int[] predecessors;
+        private final PackedMinHeap unsettled;
+        private final int[] outOffsets;
+        private final int[] outEdges;
+        private final int[] outNeighbors;
+        private final int[] inOffsets;
+        private final int[] inEdges;
+        private final int[] inNeighbors;
+
+        private Side(KamGraph graph, int origin, boolean reverse) {
+            final int nodeCount = graph.nodeCount();
+            if (reverse) {
+                outOffsets = graph.reverseOffsets;
+                outEdges = graph.reverseEdges;
+                outNeighbors = graph.reverseNeighbors;
+                inOffsets = graph.forwardOffsets;
+                inEdges = graph.forwardEdges;
+                inNeighbors = graph.forwardNeighbors;
+            } else {
+                outOffsets = graph.forwardOffsets;
+                outEdges = graph.forwardEdges;
+                outNeighbors = graph.forwardNeighbors;
+                inOffsets = graph.reverseOffsets;
+                inEdges = graph.reverseEdges;
+                inNeighbors = graph.reverseNeighbors;
+            }
+            distances = new int[nodeCount];
+            predecessors = new int[nodeCount];
+            Arrays.fill(distances, Integer.MAX_VALUE);
+            Arrays.fill(predecessors, -1);
+            unsettled = new PackedMinHeap(256);
+            distances[origin] = 0;
+            unsettled.push(0, origin);
+        }
+
+        /**
+         * Drop stale entries from the head of the queue.
+         *
+         * @return <tt>boolean</tt>, <tt>true</tt> if a live entry remains
+         */
+        private boolean prune() {
+            while (!unsettled.isEmpty()) {
+                long head = unsettled.peek();
+                if (PackedMinHeap.priority(head)
+                        == distances[PackedMinHeap.node(head)]) {
+                    return true;
+                }
+                unsettled.poll();
+            }
+            return false;
+        }
+
+        private boolean relax(int edge, int node, int dnew) {
+            if (distances[node] > dnew) {
+                distances[node] = dnew;
+                predecessors[node] = edge;
+                unsettled.push(dnew, node);
+                return true;
+            }
+            return false;
+        }
+    }
+}
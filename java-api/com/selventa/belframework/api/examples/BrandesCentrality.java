@@ -0,0 +1,338 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BrandesCentrality computes betweenness and closeness centrality over a
+ * {@link KamGraph}, weighted by {@link PathFinder#weight}.
+ *
+ * <p>
+ * Each source runs one Dijkstra search that counts shortest paths, then
+ * walks its settled nodes in reverse order accumulating Brandes
+ * dependencies.  Predecessors are found by re-scanning the incoming edges
+ * of each node for tight edges, so no predecessor lists are kept.  Sources
+ * are claimed in chunks by a fixed set of workers; each worker owns its
+ * search arrays and its betweenness and farness totals, and the totals are
+ * summed once all sources are done.  Per source, arrays are reset only for
+ * the nodes that source reached.
+ * </p>
+ *
+ * <p>
+ * For very large kams {@link #sample(KamGraph, TraversalMode, int, long)}
+ * runs from a uniform random sample of sources and scales the totals, see
+ * {@link CentralityScores#errorBound(double)}.  Closeness is measured on
+ * distances from the sources, so in directed modes it is incoming
+ * closeness.
+ * </p>
+ */
+public class BrandesCentrality {
+
+    /**
+     * Sources claimed per worker at a time.
+     */
+    private static final int CHUNK_SIZE = 16;
+
+    /**
+     * Holds the number of worker threads.
+     */
+    private final int threads;
+
+    /**
+     * Constructs the BrandesCentrality.
+     *
+     * @param threads <tt>int</tt>, the number of worker threads
+     */
+    public BrandesCentrality(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Compute exact centrality from every node.
+     *
+     * @param graph {@link KamGraph}, the graph
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @return {@link CentralityScores}
+     */
+    public CentralityScores compute(KamGraph graph, TraversalMode mode) {
+        int[] sources = new int[graph.nodeCount()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = i;
+        }
+        return run(graph, mode, sources);
+    }
+
+    /**
+     * Estimate centrality from <tt>samples</tt> sources drawn uniformly
+     * without replacement.  If <tt>samples</tt> is at least the node count
+     * the result is exact.
+     *
+     * @param graph {@link KamGraph}, the graph
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param samples <tt>int</tt>, the number of sources
+     * @param seed <tt>long</tt>, the random seed
+     * @return {@link CentralityScores}
+     */
+    public CentralityScores sample(KamGraph graph, TraversalMode mode,
+            int samples, long seed) {
+        if (samples < 1) {
+            throw new IllegalArgumentException("samples must be >= 1");
+        }
+        final int n = graph.nodeCount();
+        if (samples >= n) {
+            return compute(graph, mode);
+        }
+
+        // partial Fisher-Yates shuffle
+        int[] nodes = new int[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = 0; i < samples; i++) {
+            int j = i + random.nextInt(n - i);
+            int swap = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = swap;
+        }
+        return run(graph, mode, Arrays.copyOf(nodes, samples));
+    }
+
+    /**
+     * Returns the number of sampled sources needed for normalized
+     * betweenness to be within <tt>epsilon</tt> of exact, for every node at
+     * once, with probability <tt>confidence</tt>.
+     *
+     * @param nodeCount <tt>int</tt>, the number of nodes
+     * @param epsilon <tt>double</tt>, the additive error
+     * @param confidence <tt>double</tt>, the probability, in
+     * <tt>(0, 1)</tt>
+     * @return <tt>int</tt>, the number of samples, at most
+     * <tt>nodeCount</tt>
+     */
+    public static int samplesFor(int nodeCount, double epsilon,
+            double confidence) {
+        if (epsilon <= 0 || confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("invalid sampling settings.");
+        }
+        double scale = nodeCount / Math.max(1.0, nodeCount - 1);
+        double samples = Math.ceil(scale * scale
+                * Math.log(2.0 * nodeCount / (1 - confidence))
+                / (2 * epsilon * epsilon));
+        return (int) Math.min(nodeCount, Math.max(1, samples));
+    }
+
+    /**
+     * Run the searches from <tt>sources</tt> on the worker threads and
+     * combine their totals.
+     */
+    private CentralityScores run(final KamGraph graph,
+            final TraversalMode mode, final int[] sources) {
+        final int n = graph.nodeCount();
+        final AtomicInteger next = new AtomicInteger();
+        final int workers = Math.max(1, Math.min(threads,
+                (sources.length + CHUNK_SIZE - 1) / CHUNK_SIZE));
+
+        List<Worker> done = new ArrayList<Worker>(workers);
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Worker>> futures = new ArrayList<Future<Worker>>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(pool.submit(new Callable<Worker>() {
+                    @Override
+                    public Worker call() {
+                        Worker worker = new Worker(graph, mode);
+                        for (int from = next.getAndAdd(CHUNK_SIZE);
+                                from < sources.length;
+                                from = next.getAndAdd(CHUNK_SIZE)) {
+                            int to = Math.min(sources.length, from + CHUNK_SIZE);
+                            for (int i = from; i < to; i++) {
+                                worker.accumulate(sources[i]);
+                            }
+                        }
+                        return worker;
+                    }
+                }));
+            }
+            for (Future<Worker> future : futures) {
+                done.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted computing centrality");
+        } finally {
+            pool.shutdown();
+        }
+
+        // sum the worker totals in a fixed order
+        final double[] betweenness = new double[n];
+        final double[] farness = new double[n];
+        final int[] reached = new int[n];
+        for (Worker worker : done) {
+            for (int v = 0; v < n; v++) {
+                betweenness[v] += worker.betweenness[v];
+                farness[v] += worker.farness[v];
+                reached[v] += worker.reached[v];
+            }
+        }
+
+        final boolean exact = sources.length == n;
+        final boolean[] sampled = new boolean[n];
+        for (int source : sources) {
+            sampled[source] = true;
+        }
+
+        // undirected searches count each pair from both ends
+        double scale = mode.directed ? 1 : 0.5;
+        if (!exact) {
+            scale *= (double) n / sources.length;
+        }
+        final double[] closeness = new double[n];
+        for (int v = 0; v < n; v++) {
+            betweenness[v] *= scale;
+
+            // Wasserman-Faust closeness; sampled totals are scaled by the
+            // sources other than v that were searched
+            int others = sources.length - (sampled[v] ? 1 : 0);
+            if (reached[v] == 0 || others == 0) {
+                continue;
+            }
+            double reach = exact ? reached[v]
+                    : (double) reached[v] * (n - 1) / others;
+            double far = exact ? farness[v]
+                    : farness[v] * (n - 1) / others;
+            closeness[v] = (reach / (n - 1)) * (reach / far);
+        }
+        return new CentralityScores(mode, sources.length, betweenness,
+                closeness);
+    }
+
+    /**
+     * Worker holds one thread's search arrays and running totals.
+     */
+    private static final class Worker {
+        private final KamGraph graph;
+        private final int mask;
+        private final boolean directed;
+        private final int[] distances;
+        private final double[] sigma;
+        private final double[] delta;
+        private final int[] order;
+        private final PackedMinHeap unsettled = new PackedMinHeap(512);
+        private final double[] betweenness;
+        private final double[] farness;
+        private final int[] reached;
+
+        private Worker(KamGraph graph, TraversalMode mode) {
+            final int n = graph.nodeCount();
+            this.graph = graph;
+            this.mask = mode.mask;
+            this.directed = mode.directed;
+            distances = new int[n];
+            sigma = new double[n];
+            delta = new double[n];
+            order = new int[n];
+            betweenness = new double[n];
+            farness = new double[n];
+            reached = new int[n];
+            Arrays.fill(distances, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Search from <tt>source</tt> and add its dependencies and
+         * distances to the totals.
+         */
+        private void accumulate(int source) {
+            final int passes = directed ? 1 : 2;
+            int count = 0;
+
+            distances[source] = 0;
+            sigma[source] = 1;
+            unsettled.push(0, source);
+            while (!unsettled.isEmpty()) {
+                long minimum = unsettled.poll();
+                int node = PackedMinHeap.node(minimum);
+                int dref = distances[node];
+                if (PackedMinHeap.priority(minimum) > dref) {
+                    continue;
+                }
+                order[count++] = node;
+
+                for (int pass = 0; pass < passes; pass++) {
+                    final int[] offsets = pass == 0 ? graph.forwardOffsets : graph.reverseOffsets;
+                    final int[] adjEdges = pass == 0 ? graph.forwardEdges : graph.reverseEdges;
+                    final int[] neighbors = pass == 0 ? graph.forwardNeighbors : graph.reverseNeighbors;
+                    for (int i = offsets[node], end = offsets[node + 1]; i < end; i++) {
+                        int edge = adjEdges[i];
+                        if ((graph.edgeFlags[edge] & mask) == 0) {
+                            continue;
+                        }
+                        int next = neighbors[i];
+                        int dnew = dref + graph.edgeWeights[edge];
+                        if (dnew < distances[next]) {
+                            distances[next] = dnew;
+                            sigma[next] = sigma[node];
+                            unsettled.push(dnew, next);
+                        } else if (dnew == distances[next]) {
+                            sigma[next] += sigma[node];
+                        }
+                    }
+                }
+            }
+
+            // dependencies, farthest first; a tight incoming edge marks a
+            // predecessor
+            for (int k = count - 1; k >= 0; k--) {
+                final int node = order[k];
+                final int dref = distances[node];
+                final double share = (1 + delta[node]) / sigma[node];
+                for (int pass = 0; pass < passes; pass++) {
+                    final int[] offsets = pass == 0 ? graph.reverseOffsets : graph.forwardOffsets;
+                    final int[] adjEdges = pass == 0 ? graph.reverseEdges : graph.forwardEdges;
+                    final int[] neighbors = pass == 0 ? graph.reverseNeighbors : graph.forwardNeighbors;
+                    for (int i = offsets[node], end = offsets[node + 1]; i < end; i++) {
+                        int edge = adjEdges[i];
+                        if ((graph.edgeFlags[edge] & mask) == 0) {
+                            continue;
+                        }
+                        int previous = neighbors[i];
+                        int dprev = distances[previous];
+                        if (dprev != Integer.MAX_VALUE
+                                && dprev + graph.edgeWeights[edge] == dref) {
+                            delta[previous] += sigma[previous] * share;
+                        }
+                    }
+                }
+                if (node != source) {
+                    betweenness[node] += delta[node];
+                    farness[node] += dref;
+                    reached[node]++;
+                }
+            }
+
+            // reset only what this source touched
+            for (int k = 0; k < count; k++) {
+                int node = order[k];
+                distances[node] = Integer.MAX_VALUE;
+                sigma[node] = 0;
+                delta[node] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.selventa.belframework.api.examples;
+
+/**
+ * CachedTreePathSearch answers path queries from the full
+ * {@link ShortestPathTree} of the source node, held in a
+ * {@link ShortestPathTreeCache}.
+ *
+ * <p>
+ * The first query from a source pays for a complete single-source search;
+ * every later query from that source, to any target, only walks the
+ * tree's predecessor array.  It suits workloads that query many targets
+ * from few sources.
+ * </p>
+ */
+public class CachedTreePathSearch implements PathSearch {
+
+    /**
+     * Holds the tree cache, which may be shared with other searches.
+     */
+    private final ShortestPathTreeCache cache;
+
+    /**
+     * Holds the edges and directions the search follows.
+     */
+    private final TraversalMode mode;
+
+    /**
+     * Constructs the CachedTreePathSearch.
+     *
+     * @param cache {@link ShortestPathTreeCache}, the tree cache
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     */
+    public CachedTreePathSearch(ShortestPathTreeCache cache,
+            TraversalMode mode) {
+        if (cache == null || mode == null) {
+            throw new IllegalArgumentException("input(s) were null.");
+        }
+        this.cache = cache;
+        this.mode = mode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GraphPath search(KamGraph graph, int source, int target) {
+        return cache.get(graph, source, mode).pathTo(graph, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Building a missing tree is charged to the budget like any other
+     * search, so on a large kam a settled limit or deadline may stop the
+     * query before its tree is complete; partial trees are never cached.
+     * If the tree path is longer than the hop limit a shorter-in-hops path
+     * may still exist, so the query falls back to {@link HopLimitedSearch}.
+     * </p>
+     */
+    @Override
+    public SearchResult search(KamGraph graph, int source, int target,
+            SearchBudget budget) {
+        SearchResult.Status stop = budget.check();
+        if (stop != null) {
+            return new SearchResult(stop, null);
+        }
+        ShortestPathTree tree = cache.get(graph, source, mode, budget);
+        if (tree == null) {
+            return new SearchResult(budget.getExhausted(), null);
+        }
+        GraphPath path = tree.pathTo(graph, target);
+        if (path != null && path.getLength() > budget.maxHops) {
+            return HopLimitedSearch.search(graph, mode, source, target,
+                    budget);
+        }
+        return SearchResult.complete(path, false);
+    }
+}
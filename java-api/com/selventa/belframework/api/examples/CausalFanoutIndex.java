@@ -0,0 +1,238 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.selventa.belframework.common.enums.FunctionEnum;
+import com.selventa.belframework.kamstore.model.Kam.KamEdge;
+import com.selventa.belframework.kamstore.model.Kam.KamNode;
+
+/**
+ * CausalFanoutIndex records, for every node with causal downstream edges,
+ * its causal out-degree and its RNA fan-out, the number of causal edges to
+ * rnaAbundance() nodes. Nodes are keyed by id and the index is filled in the
+ * same edge sweep as the other {@link KamMetric metrics}.
+ *
+ * Nodes with an RNA fan-out are transcriptional controls; controls with a
+ * fan-out of at least the hypothesis threshold are hypotheses. Besides the
+ * summary counts, the index answers top-k controller and threshold sweep
+ * queries without another pass over the edges.
+ */
+public class CausalFanoutIndex implements MergeableKamMetric {
+
+	/**
+	 * RNA fan-out that makes a transcriptional control a hypothesis, unless
+	 * configured otherwise
+	 */
+	public static final int DEFAULT_HYPOTHESIS_THRESHOLD = 4;
+
+	private final int hypothesisThreshold;
+	private final boolean averageUpstream;
+	private final Map<Integer, Fanout> fanouts = new HashMap<Integer, Fanout>();
+
+	/**
+	 * @param hypothesisThreshold
+	 *            the RNA fan-out that makes a control a hypothesis
+	 * @param averageUpstream
+	 *            true to report the average upstream nodes per hypothesis
+	 */
+	public CausalFanoutIndex(int hypothesisThreshold, boolean averageUpstream) {
+		if (hypothesisThreshold < 1) {
+			throw new IllegalArgumentException("hypothesisThreshold must be >= 1");
+		}
+		this.hypothesisThreshold = hypothesisThreshold;
+		this.averageUpstream = averageUpstream;
+	}
+
+	@Override
+	public void visitNode(KamNode node) {
+
+	}
+
+	@Override
+	public void visitEdge(KamEdge edge) {
+		if (!KamMetrics.isCausal(edge)) {
+			return;
+		}
+		KamNode source = edge.getSourceNode();
+		Fanout fanout = fanouts.get(source.getId());
+		if (fanout == null) {
+			fanout = new Fanout(source);
+			fanouts.put(source.getId(), fanout);
+		}
+		fanout.causal++;
+		if (edge.getTargetNode().getFunctionType() == FunctionEnum.RNA_ABUNDANCE) {
+			fanout.rna++;
+		}
+	}
+
+	@Override
+	public MergeableKamMetric newPartial() {
+		return new CausalFanoutIndex(hypothesisThreshold, averageUpstream);
+	}
+
+	@Override
+	public void merge(MergeableKamMetric partial) {
+		for (Fanout other : ((CausalFanoutIndex) partial).fanouts.values()) {
+			Fanout fanout = fanouts.get(other.node.getId());
+			if (fanout == null) {
+				fanouts.put(other.node.getId(), other);
+			} else {
+				fanout.causal += other.causal;
+				fanout.rna += other.rna;
+			}
+		}
+	}
+
+	@Override
+	public void report(KamSummary summary) {
+		summary.setNumOfTranscriptionalControls(countControls(1));
+		summary.setNumOfHypotheses(countControls(hypothesisThreshold));
+		if (averageUpstream) {
+			summary.setAverageHypothesisUpstreamNodes(averageUpstream(hypothesisThreshold));
+		}
+	}
+
+	/**
+	 * returns the hypothesis threshold this index reports with.
+	 *
+	 * @return
+	 */
+	public int getHypothesisThreshold() {
+		return hypothesisThreshold;
+	}
+
+	/**
+	 * returns the number of causal edges from the node.
+	 *
+	 * @param node
+	 * @return
+	 */
+	public int causalOutDegree(KamNode node) {
+		Fanout fanout = fanouts.get(node.getId());
+		return fanout == null ? 0 : fanout.causal;
+	}
+
+	/**
+	 * returns the number of causal edges from the node to rnaAbundance()
+	 * nodes.
+	 *
+	 * @param node
+	 * @return
+	 */
+	public int rnaFanout(KamNode node) {
+		Fanout fanout = fanouts.get(node.getId());
+		return fanout == null ? 0 : fanout.rna;
+	}
+
+	/**
+	 * returns the number of nodes with an RNA fan-out of at least
+	 * <tt>threshold</tt>; 1 counts every transcriptional control.
+	 *
+	 * @param threshold
+	 * @return
+	 */
+	public int countControls(int threshold) {
+		int count = 0;
+		for (Fanout fanout : fanouts.values()) {
+			if (fanout.rna > 0 && fanout.rna >= threshold) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * returns the average causal out-degree of the nodes with an RNA fan-out
+	 * of at least <tt>threshold</tt>, NaN if there are none.
+	 *
+	 * @param threshold
+	 * @return
+	 */
+	public double averageUpstream(int threshold) {
+		int hypotheses = 0;
+		int sumUpStreamNodes = 0;
+		for (Fanout fanout : fanouts.values()) {
+			if (fanout.rna > 0 && fanout.rna >= threshold) {
+				hypotheses++;
+				sumUpStreamNodes += fanout.causal;
+			}
+		}
+		return ((double) sumUpStreamNodes) / hypotheses;
+	}
+
+	/**
+	 * returns the number of controls at every threshold from 0 to
+	 * <tt>maxThreshold</tt>: element <tt>t</tt> is
+	 * {@link #countControls(int) countControls(t)}, computed in one pass.
+	 *
+	 * @param maxThreshold
+	 * @return
+	 */
+	public int[] thresholdSweep(int maxThreshold) {
+		if (maxThreshold < 0) {
+			throw new IllegalArgumentException("maxThreshold must be >= 0");
+		}
+		int[] counts = new int[maxThreshold + 1];
+		for (Fanout fanout : fanouts.values()) {
+			if (fanout.rna > 0) {
+				counts[Math.min(fanout.rna, maxThreshold)]++;
+			}
+		}
+		// suffix sums: controls with a fan-out of at least t
+		for (int t = maxThreshold - 1; t >= 0; t--) {
+			counts[t] += counts[t + 1];
+		}
+		return counts;
+	}
+
+	/**
+	 * returns up to <tt>k</tt> transcriptional controls with the largest RNA
+	 * fan-out, ties broken by causal out-degree and then node id.
+	 *
+	 * @param k
+	 * @return
+	 */
+	public List<KamNode> topControllers(int k) {
+		List<Fanout> controls = new ArrayList<Fanout>();
+		for (Fanout fanout : fanouts.values()) {
+			if (fanout.rna > 0) {
+				controls.add(fanout);
+			}
+		}
+		Collections.sort(controls, new Comparator<Fanout>() {
+			@Override
+			public int compare(Fanout a, Fanout b) {
+				if (a.rna != b.rna) {
+					return a.rna > b.rna ? -1 : 1;
+				}
+				if (a.causal != b.causal) {
+					return a.causal > b.causal ? -1 : 1;
+				}
+				return a.node.getId().compareTo(b.node.getId());
+			}
+		});
+		List<KamNode> top = new ArrayList<KamNode>(Math.min(k, controls.size()));
+		for (int i = 0; i < k && i < controls.size(); i++) {
+			top.add(controls.get(i).node);
+		}
+		return top;
+	}
+
+	/**
+	 * Fanout holds the causal counts of one source node.
+	 */
+	private static final class Fanout {
+		private final KamNode node;
+		private int causal;
+		private int rna;
+
+		private Fanout(KamNode node) {
+			this.node = node;
+		}
+	}
+}
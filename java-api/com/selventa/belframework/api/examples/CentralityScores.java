@@ -0,0 +1,153 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * CentralityScores holds the betweenness and closeness centrality of every
+ * node of a {@link KamGraph}, as computed by {@link BrandesCentrality}.
+ *
+ * <p>
+ * Scores from a sample of sources are unbiased estimates.  Each source
+ * contributes a dependency of at most <tt>n - 2</tt> to a node, so by
+ * Hoeffding's inequality, with a union bound over all nodes, every
+ * normalized betweenness is within {@link #errorBound(double)} of exact at
+ * the given confidence.
+ * </p>
+ */
+public final class CentralityScores {
+
+    private final TraversalMode mode;
+    private final int samples;
+    private final double[] betweenness;
+    private final double[] closeness;
+
+    /**
+     * Constructs the CentralityScores.
+     *
+     * @param mode {@link TraversalMode}, the edges and directions followed
+     * @param samples <tt>int</tt>, the number of sources searched
+     * @param betweenness <tt>double[]</tt>, the betweenness of each node
+     * @param closeness <tt>double[]</tt>, the closeness of each node
+     */
+    CentralityScores(TraversalMode mode, int samples, double[] betweenness,
+            double[] closeness) {
+        this.mode = mode;
+        this.samples = samples;
+        this.betweenness = betweenness;
+        this.closeness = closeness;
+    }
+
+    /**
+     * Returns the number of nodes scored.
+     *
+     * @return <tt>int</tt>
+     */
+    public int nodeCount() {
+        return betweenness.length;
+    }
+
+    /**
+     * Returns the number of sources searched.
+     *
+     * @return <tt>int</tt>
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns <tt>true</tt> if every node was searched from.
+     *
+     * @return <tt>boolean</tt>
+     */
+    public boolean isExact() {
+        return samples == betweenness.length;
+    }
+
+    /**
+     * Returns the betweenness of node <tt>node</tt>: the number of shortest
+     * paths through it, each pair of other nodes counting one in total
+     * (once per ordered pair in directed modes).
+     *
+     * @param node <tt>int</tt>, the node index
+     * @return <tt>double</tt>
+     */
+    public double betweenness(int node) {
+        return betweenness[node];
+    }
+
+    /**
+     * Returns the betweenness of node <tt>node</tt> divided by the number
+     * of pairs of other nodes, in <tt>[0, 1]</tt>.
+     *
+     * @param node <tt>int</tt>, the node index
+     * @return <tt>double</tt>
+     */
+    public double normalizedBetweenness(int node) {
+        double n = betweenness.length;
+        if (n < 3) {
+            return 0;
+        }
+        double pairs = (n - 1) * (n - 2);
+        return betweenness[node] / (mode.isDirected() ? pairs : pairs / 2);
+    }
+
+    /**
+     * Returns the Wasserman-Faust closeness of node <tt>node</tt>: the
+     * fraction of other nodes that reach it, times the inverse of their
+     * average distance to it.  <tt>0</tt> if no other node reaches it.
+     *
+     * @param node <tt>int</tt>, the node index
+     * @return <tt>double</tt>
+     */
+    public double closeness(int node) {
+        return closeness[node];
+    }
+
+    /**
+     * Returns the additive error of every normalized betweenness, with
+     * probability <tt>confidence</tt>.  <tt>0</tt> for exact scores.
+     *
+     * @param confidence <tt>double</tt>, the probability, in
+     * <tt>(0, 1)</tt>
+     * @return <tt>double</tt>
+     */
+    public double errorBound(double confidence) {
+        if (confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("invalid confidence.");
+        }
+        if (isExact()) {
+            return 0;
+        }
+        double n = betweenness.length;
+        return n / (n - 1) * Math.sqrt(Math.log(2 * n / (1 - confidence))
+                / (2.0 * samples));
+    }
+
+    /**
+     * Returns the node indices ordered by decreasing betweenness, ties by
+     * index.
+     *
+     * @return <tt>int[]</tt>
+     */
+    public int[] rankByBetweenness() {
+        final int n = betweenness.length;
+        Integer[] nodes = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = i;
+        }
+        Arrays.sort(nodes, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int c = Double.compare(betweenness[b], betweenness[a]);
+                return c != 0 ? c : a.compareTo(b);
+            }
+        });
+        int[] ranked = new int[n];
+        for (int i = 0; i < n; i++) {
+            ranked[i] = nodes[i];
+        }
+        return ranked;
+    }
+}
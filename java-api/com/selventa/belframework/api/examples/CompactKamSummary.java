@@ -0,0 +1,613 @@
+package com.selventa.belframework.api.examples;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * CompactKamSummary holds the metrics of a {@link KamSummary} in primitive
+ * arrays, with a compact, versioned binary encoding for archiving summaries
+ * and shipping them between processes.
+ *
+ * Metrics are addressed by index, {@link #NODES} to {@link #DECREASE_EDGES};
+ * a metric that was never set is absent rather than 0, as a null metric of
+ * a {@link KamSummary}. The encoding writes only present metrics, as
+ * variable-length integers.
+ *
+ * {@link #merge(CompactKamSummary)} is associative, so summaries of parts
+ * (per filter, per day) can be merged in any grouping:
+ * <ul>
+ * <li>metrics and species statement counts are added; this is exact for
+ * disjoint parts, and an upper bound for distinct counts such as nodes and
+ * unique gene references</li>
+ * <li>average upstream nodes per hypothesis are kept as a sum and a weight,
+ * the hypotheses of the summaries that had an average, so the average of a
+ * merge does not depend on the grouping</li>
+ * <li>confidence margins of approximate summaries add in quadrature, so
+ * their squares are kept</li>
+ * <li>filtered sub-summaries merge by name, in first-seen order</li>
+ * </ul>
+ */
+public final class CompactKamSummary {
+
+	public static final int NODES = 0;
+	public static final int EDGES = 1;
+	public static final int BEL_DOCUMENTS = 2;
+	public static final int NAMESPACES = 3;
+	public static final int ANNOTATION_TYPES = 4;
+	public static final int BEL_STATEMENTS = 5;
+	public static final int EVIDENCE_LINES = 6;
+	public static final int CITATIONS = 7;
+	public static final int SPECIES = 8;
+	public static final int RNA_ABUNDANCE_NODES = 9;
+	public static final int PHOSPHO_PROTEIN_NODES = 10;
+	public static final int UNIQUE_GENE_REFERENCES = 11;
+	public static final int TRANSCRIPTIONAL_CONTROLS = 12;
+	public static final int HYPOTHESES = 13;
+	public static final int INCREASE_EDGES = 14;
+	public static final int DECREASE_EDGES = 15;
+	public static final int METRIC_COUNT = 16;
+
+	/**
+	 * Encoding version, the first byte of {@link #encode()}
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * Bounds of a decoded summary, well beyond any real one, so corrupt
+	 * input fails fast instead of allocating or recursing without limit
+	 */
+	private static final int MAX_COUNT = 1 << 16;
+	private static final int MAX_DEPTH = 16;
+
+	private static final int APPROXIMATE = 1;
+	private static final int HAS_AVERAGE_UPSTREAM = 1 << 1;
+	private static final int HAS_EDGES_MARGIN = 1 << 2;
+	private static final int HAS_SPECIES_MARGINS = 1 << 3;
+	private static final int HAS_FILTERED = 1 << 4;
+
+	private static final String[] NO_NAMES = new String[0];
+	private static final CompactKamSummary[] NO_SUMMARIES = new CompactKamSummary[0];
+
+	private final int[] metrics = new int[METRIC_COUNT];
+	private int present;
+	private int flags;
+	// upstream nodes over the hypotheses of the summaries with an average
+	private double upstreamSum;
+	private long averageWeight;
+	private long edgesMarginSquare;
+
+	// sorted by name, as KamSummary keeps its breakdown
+	private String[] species = NO_NAMES;
+	private int[] speciesStatements = new int[0];
+	private long[] speciesMarginSquares = new long[0];
+
+	private String[] filterNames = NO_NAMES;
+	private CompactKamSummary[] filters = NO_SUMMARIES;
+
+	/**
+	 * Constructs a summary with no metrics.
+	 */
+	public CompactKamSummary() {
+
+	}
+
+	/**
+	 * returns the compact form of a summary and its filtered sub-summaries.
+	 *
+	 * @param summary
+	 * @return
+	 */
+	public static CompactKamSummary of(KamSummary summary) {
+		if (summary == null) {
+			throw new IllegalArgumentException("summary was null.");
+		}
+		CompactKamSummary compact = new CompactKamSummary();
+		compact.setIfPresent(NODES, summary.getNumOfNodes());
+		compact.setIfPresent(EDGES, summary.getNumOfEdges());
+		compact.setIfPresent(BEL_DOCUMENTS, summary.getNumOfBELDocuments());
+		compact.setIfPresent(NAMESPACES, summary.getNumOfNamespaces());
+		compact.setIfPresent(ANNOTATION_TYPES, summary.getNumOfAnnotationTypes());
+		compact.setIfPresent(BEL_STATEMENTS, summary.getNumOfBELStatements());
+		compact.setIfPresent(EVIDENCE_LINES, summary.getNumOfEvidenceLines());
+		compact.setIfPresent(CITATIONS, summary.getNumOfCitations());
+		compact.setIfPresent(SPECIES, summary.getNumOfSpecies());
+		compact.setIfPresent(RNA_ABUNDANCE_NODES, summary.getNumOfRnaAbundanceNodes());
+		compact.setIfPresent(PHOSPHO_PROTEIN_NODES, summary.getNumOfPhosphoProteinNodes());
+		compact.setIfPresent(UNIQUE_GENE_REFERENCES, summary.getNumOfUniqueGeneReferences());
+		compact.setIfPresent(TRANSCRIPTIONAL_CONTROLS, summary.getNumOfTranscriptionalControls());
+		compact.setIfPresent(HYPOTHESES, summary.getNumOfHypotheses());
+		compact.setIfPresent(INCREASE_EDGES, summary.getNumOfIncreaseEdges());
+		compact.setIfPresent(DECREASE_EDGES, summary.getNumOfDecreaseEdges());
+
+		if (summary.isApproximate()) {
+			compact.flags |= APPROXIMATE;
+		}
+		if (summary.getAverageHypothesisUpstreamNodes() != null) {
+			compact.flags |= HAS_AVERAGE_UPSTREAM;
+			compact.setAverage(summary.getAverageHypothesisUpstreamNodes(), compact.getInt(HYPOTHESES));
+		}
+		if (summary.getNumOfEdgesMargin() != null) {
+			compact.flags |= HAS_EDGES_MARGIN;
+			compact.edgesMarginSquare = square(summary.getNumOfEdgesMargin());
+		}
+
+		Map<String, Integer> breakdown = summary.getStatementBreakdownBySpeciesMap();
+		Map<String, Integer> margins = summary.getStatementBreakdownMarginBySpeciesMap();
+		if (breakdown != null && !breakdown.isEmpty()) {
+			compact.species = breakdown.keySet().toArray(new String[breakdown.size()]);
+			Arrays.sort(compact.species);
+			compact.speciesStatements = new int[compact.species.length];
+			compact.speciesMarginSquares = new long[compact.species.length];
+			for (int i = 0; i < compact.species.length; i++) {
+				compact.speciesStatements[i] = breakdown.get(compact.species[i]);
+				if (margins != null && margins.containsKey(compact.species[i])) {
+					compact.speciesMarginSquares[i] = square(margins.get(compact.species[i]));
+				}
+			}
+		}
+		if (margins != null) {
+			compact.flags |= HAS_SPECIES_MARGINS;
+		}
+
+		Map<String, KamSummary> filtered = summary.getFilteredKamSummaries();
+		if (filtered != null) {
+			compact.flags |= HAS_FILTERED;
+			compact.filterNames = filtered.keySet().toArray(new String[filtered.size()]);
+			compact.filters = new CompactKamSummary[filtered.size()];
+			for (int i = 0; i < compact.filters.length; i++) {
+				compact.filters[i] = of(filtered.get(compact.filterNames[i]));
+			}
+		}
+		return compact;
+	}
+
+	/**
+	 * returns a {@link KamSummary} of the metrics, without KAM info.
+	 *
+	 * @return
+	 */
+	public KamSummary toKamSummary() {
+		KamSummary summary = new KamSummary();
+		summary.setNumOfNodes(get(NODES));
+		summary.setNumOfEdges(get(EDGES));
+		summary.setNumOfBELDocuments(get(BEL_DOCUMENTS));
+		summary.setNumOfNamespaces(get(NAMESPACES));
+		summary.setNumOfAnnotationTypes(get(ANNOTATION_TYPES));
+		summary.setNumOfBELStatements(get(BEL_STATEMENTS));
+		summary.setNumOfEvidenceLines(get(EVIDENCE_LINES));
+		summary.setNumOfCitations(get(CITATIONS));
+		summary.setNumOfSpecies(get(SPECIES));
+		summary.setNumOfRnaAbundanceNodes(get(RNA_ABUNDANCE_NODES));
+		summary.setNumOfPhosphoProteinNodes(get(PHOSPHO_PROTEIN_NODES));
+		summary.setNumOfUniqueGeneReferences(get(UNIQUE_GENE_REFERENCES));
+		summary.setNumOfTranscriptionalControls(get(TRANSCRIPTIONAL_CONTROLS));
+		summary.setNumOfHypotheses(get(HYPOTHESES));
+		summary.setNumOfIncreaseEdges(get(INCREASE_EDGES));
+		summary.setNumOfDecreaseEdges(get(DECREASE_EDGES));
+
+		summary.setApproximate(isApproximate());
+		if ((flags & HAS_AVERAGE_UPSTREAM) != 0) {
+			summary.setAverageHypothesisUpstreamNodes(getAverageUpstream());
+		}
+		if ((flags & HAS_EDGES_MARGIN) != 0) {
+			summary.setNumOfEdgesMargin(root(edgesMarginSquare));
+		}
+
+		Map<String, Integer> margins = (flags & HAS_SPECIES_MARGINS) != 0 ? new TreeMap<String, Integer>() : null;
+		for (int i = 0; i < species.length; i++) {
+			summary.getStatementBreakdownBySpeciesMap().put(species[i], speciesStatements[i]);
+			if (margins != null) {
+				margins.put(species[i], root(speciesMarginSquares[i]));
+			}
+		}
+		summary.setStatementBreakdownMarginBySpeciesMap(margins);
+
+		if ((flags & HAS_FILTERED) != 0) {
+			Map<String, KamSummary> filtered = new LinkedHashMap<String, KamSummary>();
+			for (int i = 0; i < filters.length; i++) {
+				filtered.put(filterNames[i], filters[i].toKamSummary());
+			}
+			summary.setFilteredKamSummaries(filtered);
+		}
+		return summary;
+	}
+
+	/**
+	 * returns true if the metric is set.
+	 *
+	 * @param metric
+	 * @return
+	 */
+	public boolean has(int metric) {
+		return (present & (1 << metric)) != 0;
+	}
+
+	/**
+	 * returns the value of the metric, or null if it is not set.
+	 *
+	 * @param metric
+	 * @return
+	 */
+	public Integer get(int metric) {
+		return has(metric) ? metrics[metric] : null;
+	}
+
+	/**
+	 * returns the value of the metric, 0 if it is not set.
+	 *
+	 * @param metric
+	 * @return
+	 */
+	public int getInt(int metric) {
+		return metrics[metric];
+	}
+
+	/**
+	 * Set the value of a metric.
+	 *
+	 * @param metric
+	 * @param value
+	 */
+	public void set(int metric, int value) {
+		metrics[metric] = value;
+		present |= 1 << metric;
+	}
+
+	private void setIfPresent(int metric, Integer value) {
+		if (value != null) {
+			set(metric, value);
+		}
+	}
+
+	/**
+	 * returns true if any merged summary was approximate.
+	 *
+	 * @return
+	 */
+	public boolean isApproximate() {
+		return (flags & APPROXIMATE) != 0;
+	}
+
+	/**
+	 * returns the average upstream nodes per hypothesis, null if no merged
+	 * summary had one, or NaN if they had no hypotheses.
+	 *
+	 * @return
+	 */
+	public Double getAverageUpstream() {
+		if ((flags & HAS_AVERAGE_UPSTREAM) == 0) {
+			return null;
+		}
+		return averageWeight == 0 ? Double.NaN : upstreamSum / averageWeight;
+	}
+
+	private void setAverage(double average, long weight) {
+		averageWeight = weight;
+		if (weight == 0) {
+			upstreamSum = 0;
+			return;
+		}
+		// the average of a summary is a whole number of upstream nodes over
+		// its hypotheses; recover that number so the average round-trips
+		// exactly
+		double sum = average * weight;
+		double whole = Math.rint(sum);
+		upstreamSum = Math.abs(sum - whole) < 1e-9 * Math.max(1, whole) ? whole : sum;
+	}
+
+	/**
+	 * returns the number of species in the statement breakdown.
+	 *
+	 * @return
+	 */
+	public int speciesCount() {
+		return species.length;
+	}
+
+	/**
+	 * returns the name of the <tt>i</tt>th species of the breakdown, in name
+	 * order.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public String species(int i) {
+		return species[i];
+	}
+
+	/**
+	 * returns the statement count of the <tt>i</tt>th species of the
+	 * breakdown.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public int speciesStatements(int i) {
+		return speciesStatements[i];
+	}
+
+	/**
+	 * returns the filtered sub-summary of that name, or null.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public CompactKamSummary getFiltered(String name) {
+		for (int i = 0; i < filterNames.length; i++) {
+			if (filterNames[i].equals(name)) {
+				return filters[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Merge another summary into this one. The other summary is not
+	 * modified.
+	 *
+	 * @param other
+	 * @return this summary
+	 */
+	public CompactKamSummary merge(CompactKamSummary other) {
+		if (other == null) {
+			throw new IllegalArgumentException("other was null.");
+		}
+		upstreamSum += other.upstreamSum;
+		averageWeight += other.averageWeight;
+		for (int i = 0; i < METRIC_COUNT; i++) {
+			metrics[i] += other.metrics[i];
+		}
+		present |= other.present;
+		flags |= other.flags;
+		edgesMarginSquare += other.edgesMarginSquare;
+
+		mergeSpecies(other);
+
+		for (int i = 0; i < other.filters.length; i++) {
+			CompactKamSummary filter = getFiltered(other.filterNames[i]);
+			if (filter != null) {
+				filter.merge(other.filters[i]);
+			} else {
+				filterNames = Arrays.copyOf(filterNames, filterNames.length + 1);
+				filters = Arrays.copyOf(filters, filters.length + 1);
+				filterNames[filterNames.length - 1] = other.filterNames[i];
+				// copy, so later merges into this summary leave other alone
+				filters[filters.length - 1] = new CompactKamSummary().merge(other.filters[i]);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Merge the sorted species breakdown of another summary into this one.
+	 */
+	private void mergeSpecies(CompactKamSummary other) {
+		List<String> names = new ArrayList<String>(species.length + other.species.length);
+		int[] statements = new int[species.length + other.species.length];
+		long[] marginSquares = new long[statements.length];
+		int i = 0;
+		int j = 0;
+		while (i < species.length || j < other.species.length) {
+			int cmp = i == species.length ? 1 : j == other.species.length ? -1 : species[i].compareTo(other.species[j]);
+			int k = names.size();
+			if (cmp <= 0) {
+				names.add(species[i]);
+				statements[k] += speciesStatements[i];
+				marginSquares[k] += speciesMarginSquares[i];
+				i++;
+			}
+			if (cmp >= 0) {
+				if (cmp > 0) {
+					names.add(other.species[j]);
+				}
+				statements[k] += other.speciesStatements[j];
+				marginSquares[k] += other.speciesMarginSquares[j];
+				j++;
+			}
+		}
+		species = names.toArray(new String[names.size()]);
+		speciesStatements = Arrays.copyOf(statements, species.length);
+		speciesMarginSquares = Arrays.copyOf(marginSquares, species.length);
+	}
+
+	/**
+	 * returns the versioned binary encoding of the summary.
+	 *
+	 * @return
+	 */
+	public byte[] encode() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		try {
+			writeTo(new DataOutputStream(bytes));
+		} catch (IOException e) {
+			// not thrown writing to memory
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes a summary from {@link #encode()}.
+	 *
+	 * @param bytes
+	 * @return
+	 * @throws IOException
+	 *             if the bytes are not a summary of a supported version
+	 */
+	public static CompactKamSummary decode(byte[] bytes) throws IOException {
+		return readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	/**
+	 * Write the versioned binary encoding of the summary.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeByte(VERSION);
+		write(out);
+	}
+
+	/**
+	 * Reads a summary written by {@link #writeTo(DataOutput)}.
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 *             if the input is not a summary of a supported version
+	 */
+	public static CompactKamSummary readFrom(DataInput in) throws IOException {
+		int version = in.readUnsignedByte();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("unsupported summary version " + version);
+		}
+		return read(in, version, 0);
+	}
+
+	private void write(DataOutput out) throws IOException {
+		writeVarLong(out, flags);
+		writeVarLong(out, present);
+		for (int i = 0; i < METRIC_COUNT; i++) {
+			if (has(i)) {
+				writeVarLong(out, zigZag(metrics[i]));
+			}
+		}
+		if ((flags & HAS_AVERAGE_UPSTREAM) != 0) {
+			writeVarLong(out, averageWeight);
+			out.writeDouble(upstreamSum);
+		}
+		if ((flags & HAS_EDGES_MARGIN) != 0) {
+			writeVarLong(out, edgesMarginSquare);
+		}
+
+		writeVarLong(out, species.length);
+		for (int i = 0; i < species.length; i++) {
+			out.writeUTF(species[i]);
+			writeVarLong(out, zigZag(speciesStatements[i]));
+			if ((flags & HAS_SPECIES_MARGINS) != 0) {
+				writeVarLong(out, speciesMarginSquares[i]);
+			}
+		}
+
+		if ((flags & HAS_FILTERED) != 0) {
+			writeVarLong(out, filters.length);
+			for (int i = 0; i < filters.length; i++) {
+				out.writeUTF(filterNames[i]);
+				filters[i].write(out);
+			}
+		}
+	}
+
+	private static CompactKamSummary read(DataInput in, int version, int depth) throws IOException {
+		if (depth > MAX_DEPTH) {
+			throw new IOException("corrupt summary, filters nested deeper than " + MAX_DEPTH);
+		}
+		CompactKamSummary summary = new CompactKamSummary();
+		summary.flags = (int) readVarLong(in);
+		summary.present = (int) readVarLong(in);
+		for (int i = 0; i < METRIC_COUNT; i++) {
+			if (summary.has(i)) {
+				summary.metrics[i] = unZigZag(readVarLong(in));
+			}
+		}
+		if ((summary.flags & HAS_AVERAGE_UPSTREAM) != 0) {
+			if (version == 1) {
+				// version 1 kept the average alone, weighted by hypotheses
+				summary.setAverage(in.readDouble(), summary.getInt(HYPOTHESES));
+			} else {
+				summary.averageWeight = readVarLong(in);
+				summary.upstreamSum = in.readDouble();
+			}
+		}
+		if ((summary.flags & HAS_EDGES_MARGIN) != 0) {
+			summary.edgesMarginSquare = readVarLong(in);
+		}
+
+		int speciesCount = readCount(in);
+		summary.species = new String[speciesCount];
+		summary.speciesStatements = new int[speciesCount];
+		summary.speciesMarginSquares = new long[speciesCount];
+		for (int i = 0; i < speciesCount; i++) {
+			summary.species[i] = in.readUTF();
+			summary.speciesStatements[i] = unZigZag(readVarLong(in));
+			if ((summary.flags & HAS_SPECIES_MARGINS) != 0) {
+				summary.speciesMarginSquares[i] = readVarLong(in);
+			}
+		}
+
+		if ((summary.flags & HAS_FILTERED) != 0) {
+			int filterCount = readCount(in);
+			summary.filterNames = new String[filterCount];
+			summary.filters = new CompactKamSummary[filterCount];
+			for (int i = 0; i < filterCount; i++) {
+				summary.filterNames[i] = in.readUTF();
+				summary.filters[i] = read(in, version, depth + 1);
+			}
+		}
+		return summary;
+	}
+
+	private static int readCount(DataInput in) throws IOException {
+		long count = readVarLong(in);
+		if (count < 0 || count > MAX_COUNT) {
+			throw new IOException("corrupt summary count " + count);
+		}
+		return (int) count;
+	}
+
+	/**
+	 * Write an unsigned variable-length integer, 7 bits a byte, low bits
+	 * first.
+	 */
+	private static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.writeByte((int) (value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("corrupt summary varint");
+	}
+
+	/**
+	 * Map a signed int to an unsigned one, small magnitudes to small values.
+	 */
+	private static long zigZag(int value) {
+		return ((value << 1) ^ (value >> 31)) & 0xffffffffL;
+	}
+
+	private static int unZigZag(long value) {
+		int zigZag = (int) value;
+		return (zigZag >>> 1) ^ -(zigZag & 1);
+	}
+
+	private static long square(int margin) {
+		return (long) margin * margin;
+	}
+
+	private static int root(long square) {
+		return (int) Math.ceil(Math.sqrt(square));
+	}
+}
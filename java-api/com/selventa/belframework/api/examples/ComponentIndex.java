@@ -0,0 +1,304 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+
+/**
+ * ComponentIndex answers whether a path can exist between two nodes of a
+ * {@link KamGraph} without searching.
+ *
+ * <p>
+ * Weakly connected components over the edges a {@link TraversalMode}
+ * follows are found with union-find; in undirected modes they answer every
+ * query exactly.  Directed modes also condense the graph into strongly
+ * connected components with an iterative Tarjan search.  Tarjan numbers
+ * components in reverse topological order, so a node can only reach
+ * components numbered no higher than its own, and nodes in sink (or source)
+ * components reach (or are reached by) nothing outside them.  Pairs those
+ * rules cannot decide are reported as {@link Reachability#UNKNOWN}.
+ * </p>
+ */
+public final class ComponentIndex {
+
+    /**
+     * Reachability is the answer to a reachability query.
+     */
+    public enum Reachability {
+        /**
+         * A path exists.
+         */
+        REACHABLE,
+
+        /**
+         * No path exists.
+         */
+        UNREACHABLE,
+
+        /**
+         * The index cannot tell; a search is needed.
+         */
+        UNKNOWN
+    }
+
+    private final TraversalMode mode;
+
+    /**
+     * Holds the weakly connected component of each node.
+     */
+    private final int[] components;
+
+    /**
+     * Holds the strongly connected component of each node, <tt>null</tt> in
+     * undirected modes.
+     */
+    private final int[] strongComponents;
+
+    /**
+     * Holds whether each strongly connected component has an edge leaving
+     * it.
+     */
+    private final boolean[] hasOut;
+
+    /**
+     * Holds whether each strongly connected component has an edge entering
+     * it.
+     */
+    private final boolean[] hasIn;
+
+    private final int componentCount;
+    private final int strongComponentCount;
+
+    private ComponentIndex(TraversalMode mode, int[] components,
+            int componentCount, int[] strongComponents,
+            int strongComponentCount, boolean[] hasOut, boolean[] hasIn) {
+        this.mode = mode;
+        this.components = components;
+        this.componentCount = componentCount;
+        this.strongComponents = strongComponents;
+        this.strongComponentCount = strongComponentCount;
+        this.hasOut = hasOut;
+        this.hasIn = hasIn;
+    }
+
+    /**
+     * Build the component index of <tt>graph</tt> over the edges
+     * <tt>mode</tt> follows.
+     *
+     * @param graph {@link KamGraph}, the graph to index
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @return {@link ComponentIndex}
+     */
+    public static ComponentIndex build(KamGraph graph, TraversalMode mode) {
+        final int n = graph.nodeCount();
+        final int mask = mode.mask;
+
+        // union-find with path halving and union by size
+        final int[] parent = new int[n];
+        final int[] size = new int[n];
+        for (int v = 0; v < n; v++) {
+            parent[v] = v;
+            size[v] = 1;
+        }
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            if ((graph.edgeFlags[e] & mask) == 0) {
+                continue;
+            }
+            int a = find(parent, graph.edgeSources[e]);
+            int b = find(parent, graph.edgeTargets[e]);
+            if (a != b) {
+                if (size[a] < size[b]) {
+                    int swap = a;
+                    a = b;
+                    b = swap;
+                }
+                parent[b] = a;
+                size[a] += size[b];
+            }
+        }
+
+        // renumber roots densely, reusing the no longer needed size array
+        final int[] components = new int[n];
+        final int[] ids = size;
+        Arrays.fill(ids, -1);
+        int componentCount = 0;
+        for (int v = 0; v < n; v++) {
+            int root = find(parent, v);
+            if (ids[root] == -1) {
+                ids[root] = componentCount++;
+            }
+            components[v] = ids[root];
+        }
+
+        if (!mode.directed) {
+            return new ComponentIndex(mode, components, componentCount,
+                    null, 0, null, null);
+        }
+
+        final int[] strong = new int[n];
+        final int strongCount = tarjan(graph, mask, strong);
+        final boolean[] hasOut = new boolean[strongCount];
+        final boolean[] hasIn = new boolean[strongCount];
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            if ((graph.edgeFlags[e] & mask) == 0) {
+                continue;
+            }
+            int from = strong[graph.edgeSources[e]];
+            int to = strong[graph.edgeTargets[e]];
+            if (from != to) {
+                hasOut[from] = true;
+                hasIn[to] = true;
+            }
+        }
+        return new ComponentIndex(mode, components, componentCount, strong,
+                strongCount, hasOut, hasIn);
+    }
+
+    /**
+     * Returns whether <tt>target</tt> can be reached from <tt>source</tt>.
+     *
+     * @param source <tt>int</tt>, the source node index
+     * @param target <tt>int</tt>, the target node index
+     * @return {@link Reachability}
+     */
+    public Reachability reachability(int source, int target) {
+        if (source == target) {
+            return Reachability.REACHABLE;
+        }
+        if (components[source] != components[target]) {
+            return Reachability.UNREACHABLE;
+        }
+        if (!mode.directed) {
+            return Reachability.REACHABLE;
+        }
+
+        int from = strongComponents[source];
+        int to = strongComponents[target];
+        if (from == to) {
+            return Reachability.REACHABLE;
+        }
+        // edges only lead to lower numbered components
+        if (from < to || !hasOut[from] || !hasIn[to]) {
+            return Reachability.UNREACHABLE;
+        }
+        return Reachability.UNKNOWN;
+    }
+
+    /**
+     * Returns the traversal mode the index was built for.
+     *
+     * @return {@link TraversalMode}
+     */
+    public TraversalMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the number of weakly connected components.
+     *
+     * @return <tt>int</tt>
+     */
+    public int componentCount() {
+        return componentCount;
+    }
+
+    /**
+     * Returns the number of strongly connected components, <tt>0</tt> in
+     * undirected modes.
+     *
+     * @return <tt>int</tt>
+     */
+    public int strongComponentCount() {
+        return strongComponentCount;
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * Number the strongly connected components of the directed graph
+     * formed by the edges matching <tt>mask</tt>, in reverse topological
+     * order.  The depth-first search keeps its own stack of (node, next arc)
+     * frames so deep kams cannot overflow the thread stack.
+     *
+     * @return <tt>int</tt>, the number of components
+     */
+    private static int tarjan(KamGraph graph, int mask, int[] strong) {
+        final int n = graph.nodeCount();
+        final int[] order = new int[n];
+        final int[] low = new int[n];
+        final boolean[] onStack = new boolean[n];
+        final int[] stack = new int[n];
+        final int[] frameNodes = new int[n];
+        final int[] frameArcs = new int[n];
+        Arrays.fill(order, -1);
+
+        int counter = 0;
+        int stackSize = 0;
+        int count = 0;
+        for (int root = 0; root < n; root++) {
+            if (order[root] != -1) {
+                continue;
+            }
+            int depth = 0;
+            frameNodes[0] = root;
+            frameArcs[0] = graph.forwardOffsets[root];
+            order[root] = low[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                final int node = frameNodes[depth];
+                final int end = graph.forwardOffsets[node + 1];
+                int arc = frameArcs[depth];
+                boolean descended = false;
+                while (arc < end) {
+                    int edge = graph.forwardEdges[arc];
+                    int next = graph.forwardNeighbors[arc];
+                    arc++;
+                    if ((graph.edgeFlags[edge] & mask) == 0) {
+                        continue;
+                    }
+                    if (order[next] == -1) {
+                        frameArcs[depth] = arc;
+                        depth++;
+                        frameNodes[depth] = next;
+                        frameArcs[depth] = graph.forwardOffsets[next];
+                        order[next] = low[next] = counter++;
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                        descended = true;
+                        break;
+                    } else if (onStack[next] && order[next] < low[node]) {
+                        low[node] = order[next];
+                    }
+                }
+                if (descended) {
+                    continue;
+                }
+
+                // node is finished; pop its component if it is the root
+                if (low[node] == order[node]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        strong[member] = count;
+                    } while (member != node);
+                    count++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = frameNodes[depth];
+                    if (low[node] < low[parent]) {
+                        low[parent] = low[node];
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,314 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * DeltaStepping computes a full {@link ShortestPathTree} with the parallel
+ * delta-stepping algorithm.
+ *
+ * <p>
+ * Nodes are kept in buckets of distance width {@link #DELTA}.  The lowest
+ * non-empty bucket is settled by relaxing its light edges (weight up to
+ * <tt>DELTA</tt>) in parallel rounds until it stops refilling, then the
+ * heavy edges of every node it settled in one more parallel round.  With
+ * the 1 / 2 / 3 weights of {@link PathFinder#weight} a width of 2 keeps
+ * buckets wide enough for parallel work while only weight 3 edges are
+ * heavy.
+ * </p>
+ *
+ * <p>
+ * Each node's distance and predecessor edge are packed into one
+ * <tt>long</tt>, distance high, and lowered with a compare-and-set loop.
+ * Ties go to the lowest edge index, so the tree is the same whatever the
+ * thread interleaving.
+ * </p>
+ *
+ * <p>
+ * A DeltaStepping built with a thread count owns its pool and must be
+ * {@link #shutdown() shut down} when done; one built on a caller's pool
+ * leaves it running.
+ * </p>
+ */
+public class DeltaStepping {
+
+    /**
+     * The bucket width.
+     */
+    static final int DELTA = 2;
+
+    /**
+     * Frontiers smaller than this are relaxed on the calling thread.
+     */
+    private static final int LEAF_SIZE = 512;
+
+    private static final long UNREACHED = Long.MAX_VALUE;
+
+    /**
+     * Holds the pool relaxation rounds run on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * <tt>true</tt> if the pool was created here, and is shut down by
+     * {@link #shutdown()}.
+     */
+    private final boolean ownsPool;
+
+    /**
+     * Constructs the DeltaStepping with a pool of its own.
+     *
+     * @param threads <tt>int</tt>, the number of worker threads
+     */
+    public DeltaStepping(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1");
+        }
+        this.pool = new ForkJoinPool(threads);
+        this.ownsPool = true;
+    }
+
+    /**
+     * Constructs the DeltaStepping on a shared pool, which
+     * {@link #shutdown()} leaves running.
+     *
+     * @param pool {@link ForkJoinPool}, the pool to run on
+     */
+    public DeltaStepping(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool is null");
+        }
+        this.pool = pool;
+        this.ownsPool = false;
+    }
+
+    /**
+     * Shut down the pool, if this DeltaStepping created it.  Computations
+     * already running finish first.
+     */
+    public void shutdown() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Compute the shortest path tree rooted at <tt>root</tt> over the edges
+     * <tt>mode</tt> follows.
+     *
+     * @param graph {@link KamGraph}, the graph
+     * @param root <tt>int</tt>, the root node index
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param inTree <tt>boolean</tt>, <tt>true</tt> to compute distances to
+     * the root rather than from it; ignored by undirected modes
+     * @return {@link ShortestPathTree}
+     */
+    public ShortestPathTree compute(KamGraph graph, int root,
+            TraversalMode mode, boolean inTree) {
+        final int n = graph.nodeCount();
+        final Search search = new Search(graph, mode, inTree && mode.directed);
+        search.state.set(root, pack(0, -1));
+
+        // queued distances never run more than maxWeight past the current
+        // bucket, so a small ring of buckets suffices
+        final IntList[] ring = new IntList[graph.maxWeight() / DELTA + 2];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new IntList();
+        }
+        ring[0].add(root);
+        int queued = 1;
+
+        // stamps mark frontier and settled membership per bucket
+        final int[] frontierStamps = new int[n];
+        final int[] settledStamps = new int[n];
+        Arrays.fill(frontierStamps, -1);
+        Arrays.fill(settledStamps, -1);
+        final IntList settled = new IntList();
+        int round = 0;
+
+        for (int bucket = 0; queued > 0; bucket++) {
+            IntList slot = ring[bucket % ring.length];
+            if (slot.size == 0) {
+                continue;
+            }
+            settled.clear();
+
+            // light edges, repeated while the bucket refills itself
+            while (slot.size > 0) {
+                queued -= slot.size;
+                IntList frontier = new IntList();
+                for (int i = 0; i < slot.size; i++) {
+                    int node = slot.items[i];
+                    if (frontierStamps[node] != round
+                            && distance(search.state.get(node)) / DELTA == bucket) {
+                        frontierStamps[node] = round;
+                        frontier.add(node);
+                        if (settledStamps[node] != bucket) {
+                            settledStamps[node] = bucket;
+                            settled.add(node);
+                        }
+                    }
+                }
+                slot.clear();
+                round++;
+                queued += enqueue(search, ring, relax(search, frontier, true));
+            }
+
+            // heavy edges, once for every node the bucket settled
+            queued += enqueue(search, ring, relax(search, settled, false));
+        }
+
+        final int[] distances = new int[n];
+        final int[] predecessors = new int[n];
+        for (int v = 0; v < n; v++) {
+            long packed = search.state.get(v);
+            distances[v] = packed == UNREACHED ? ShortestPathTree.UNREACHABLE
+                    : distance(packed);
+            predecessors[v] = packed == UNREACHED ? -1 : (int) packed;
+        }
+        return new ShortestPathTree(root, distances, predecessors,
+                search.reverse);
+    }
+
+    /**
+     * Relax the light or heavy edges of <tt>nodes</tt>, in parallel if
+     * there are enough of them.
+     *
+     * @return {@link IntList}, the nodes whose distance improved
+     */
+    private IntList relax(Search search, IntList nodes, boolean light) {
+        if (nodes.size == 0) {
+            return nodes;
+        }
+        RelaxTask task = new RelaxTask(search, nodes, 0, nodes.size, light);
+        return nodes.size < LEAF_SIZE ? task.compute() : pool.invoke(task);
+    }
+
+    /**
+     * Queue each improved node in the bucket of its current distance.
+     *
+     * @return <tt>int</tt>, the number of nodes queued
+     */
+    private static int enqueue(Search search, IntList[] ring, IntList improved) {
+        for (int i = 0; i < improved.size; i++) {
+            int node = improved.items[i];
+            int bucket = distance(search.state.get(node)) / DELTA;
+            ring[bucket % ring.length].add(node);
+        }
+        return improved.size;
+    }
+
+    private static long pack(int distance, int edge) {
+        return ((long) distance << 32) | (edge & 0xffffffffL);
+    }
+
+    private static int distance(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    /**
+     * Search holds the shared state of one computation.
+     */
+    private static final class Search {
+        private final KamGraph graph;
+        private final int mask;
+        private final boolean directed;
+        private final boolean reverse;
+        private final AtomicLongArray state;
+
+        private Search(KamGraph graph, TraversalMode mode, boolean reverse) {
+            this.graph = graph;
+            this.mask = mode.mask;
+            this.directed = mode.directed;
+            this.reverse = reverse;
+            this.state = new AtomicLongArray(graph.nodeCount());
+            for (int v = 0; v < graph.nodeCount(); v++) {
+                state.set(v, UNREACHED);
+            }
+        }
+
+        /**
+         * Lower the packed state of <tt>node</tt> to <tt>candidate</tt>.
+         *
+         * @return <tt>boolean</tt>, <tt>true</tt> if it was lowered
+         */
+        private boolean lower(int node, long candidate) {
+            while (true) {
+                long current = state.get(node);
+                if (candidate >= current) {
+                    return false;
+                }
+                if (state.compareAndSet(node, current, candidate)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * RelaxTask relaxes the light or heavy edges of a range of nodes,
+     * splitting the range across the pool.
+     */
+    private static final class RelaxTask extends RecursiveTask<IntList> {
+        private static final long serialVersionUID = 5126474836213587429L;
+
+        private final Search search;
+        private final IntList nodes;
+        private final int from;
+        private final int to;
+        private final boolean light;
+
+        private RelaxTask(Search search, IntList nodes, int from, int to,
+                boolean light) {
+            this.search = search;
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.light = light;
+        }
+
+        @Override
+        protected IntList compute() {
+            if (to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                RelaxTask right = new RelaxTask(search, nodes, middle, to,
+                        light);
+                right.fork();
+                IntList improved = new RelaxTask(search, nodes, from, middle,
+                        light).compute();
+                improved.addAll(right.join());
+                return improved;
+            }
+
+            final KamGraph graph = search.graph;
+            final IntList improved = new IntList();
+            final int passes = search.directed ? 1 : 2;
+            for (int i = from; i < to; i++) {
+                final int node = nodes.items[i];
+                final int dref = distance(search.state.get(node));
+                for (int pass = 0; pass < passes; pass++) {
+                    // an in-tree walks the reverse adjacency first
+                    boolean forward = (pass == 0) != search.reverse;
+                    int[] offsets = forward ? graph.forwardOffsets : graph.reverseOffsets;
+                    int[] adjEdges = forward ? graph.forwardEdges : graph.reverseEdges;
+                    int[] neighbors = forward ? graph.forwardNeighbors : graph.reverseNeighbors;
+                    for (int j = offsets[node], end = offsets[node + 1]; j < end; j++) {
+                        int edge = adjEdges[j];
+                        int weight = graph.edgeWeights[edge];
+                        if ((graph.edgeFlags[edge] & search.mask) == 0
+                                || (weight <= DELTA) != light) {
+                            continue;
+                        }
+                        int next = neighbors[j];
+                        if (search.lower(next, pack(dref + weight, edge))) {
+                            improved.add(next);
+                        }
+                    }
+                }
+            }
+            return improved;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+
+/**
+ * DialPathSearch finds the shortest path using Dial's bucket queue, which is
+ * specialized for the small integer edge weights assigned by
+ * {@link PathFinder}.
+ *
+ * <p>
+ * Tentative distances of queued nodes always lie within
+ * <tt>maxWeight + 1</tt> consecutive values, so the queue is a ring of that
+ * many buckets.  Each bucket is an intrusive doubly linked list threaded
+ * through <tt>int</tt> arrays, which gives constant time insert,
+ * decrease-key and extract-min with no stale entries and no comparisons.
+ * The search stops as soon as the target node is settled.
+ * </p>
+ */
+public class DialPathSearch implements PathSearch {
+
+    /**
+     * Holds the edges and directions the search follows.
+     */
+    private final TraversalMode mode;
+
+    /**
+     * Constructs an undirected DialPathSearch.
+     */
+    public DialPathSearch() {
+        this(TraversalMode.UNDIRECTED);
+    }
+
+    /**
+     * Constructs the DialPathSearch.
+     *
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     */
+    public DialPathSearch(TraversalMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode is null");
+        }
+        this.mode = mode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GraphPath search(KamGraph graph, int source, int target) {
+        return search(graph, source, target, SearchBudget.unlimited())
+                .getPath();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchResult search(KamGraph graph, int source, int target,
+            SearchBudget budget) {
+        if (budget.limitsHops()) {
+            return HopLimitedSearch.search(graph, mode, source, target,
+                    budget);
+        }
+        final int n = graph.nodeCount();
+        final int[] distances = new int[n];
+        final int[] predecessors = new int[n];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        Arrays.fill(predecessors, -1);
+
+        final int mask = mode.mask;
+        final boolean directed = mode.directed;
+        final Buckets buckets = new Buckets(n, graph.maxWeight() + 1);
+        distances[source] = 0;
+        buckets.insert(source, 0);
+
+        int current = 0;
+        SearchResult.Status stop = budget.check();
+        while (stop == null && !buckets.isEmpty()) {
+            int node = buckets.first(current);
+            while (node == -1) {
+                node = buckets.first(++current);
+            }
+            buckets.remove(node, current);
+
+            // the target is settled, its distance is final
+            if (node == target) {
+                break;
+            }
+            stop = budget.settle();
+            if (stop != null) {
+                break;
+            }
+
+            for (int i = graph.forwardOffsets[node],
+                    end = graph.forwardOffsets[node + 1]; i < end; i++) {
+                int edge = graph.forwardEdges[i];
+                if ((graph.edgeFlags[edge] & mask) != 0) {
+                    relax(buckets, distances, predecessors, edge,
+                            graph.forwardNeighbors[i],
+                            current + graph.edgeWeights[edge]);
+                }
+            }
+            if (directed) {
+                continue;
+            }
+            for (int i = graph.reverseOffsets[node],
+                    end = graph.reverseOffsets[node + 1]; i < end; i++) {
+                int edge = graph.reverseEdges[i];
+                if ((graph.edgeFlags[edge] & mask) != 0) {
+                    relax(buckets, distances, predecessors, edge,
+                            graph.reverseNeighbors[i],
+                            current + graph.edgeWeights[edge]);
+                }
+            }
+        }
+
+        GraphPath path = GraphPath.trace(graph, predecessors, source, target);
+        return stop != null ? new SearchResult(stop, path)
+                : SearchResult.complete(path, false);
+    }
+
+    /**
+     * Lower the distance of <tt>node</tt> to <tt>dnew</tt> if it improves,
+     * moving it between buckets.
+     */
+    private void relax(Buckets buckets, int[] distances, int[] predecessors,
+            int edge, int node, int dnew) {
+        int dold = distances[node];
+        if (dold > dnew) {
+            if (dold != Integer.MAX_VALUE) {
+                buckets.remove(node, dold);
+            }
+            distances[node] = dnew;
+            predecessors[node] = edge;
+            buckets.insert(node, dnew);
+        }
+    }
+
+    /**
+     * Buckets is a ring of intrusive doubly linked node lists keyed by
+     * <tt>distance % size</tt>.
+     */
+    private static final class Buckets {
+        private final int[] heads;
+        private final int[] next;
+        private final int[] previous;
+        private int size;
+
+        private Buckets(int nodeCount, int bucketCount) {
+            heads = new int[bucketCount];
+            next = new int[nodeCount];
+            previous = new int[nodeCount];
+            Arrays.fill(heads, -1);
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private int first(int distance) {
+            return heads[distance % heads.length];
+        }
+
+        private void insert(int node, int distance) {
+            int bucket = distance % heads.length;
+            int head = heads[bucket];
+            next[node] = head;
+            previous[node] = -1;
+            if (head != -1) {
+                previous[head] = node;
+            }
+            heads[bucket] = node;
+            size++;
+        }
+
+        private void remove(int node, int distance) {
+            int before = previous[node];
+            int after = next[node];
+            if (before == -1) {
+                heads[distance % heads.length] = after;
+            } else {
+                next[before] = after;
+            }
+            if (after != -1) {
+                previous[after] = before;
+            }
+            size--;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+
+/**
+ * DijkstraPathSearch finds the shortest path using Dijkstra's algorithm over
+ * a {@link KamGraph}, stopping as soon as the target node is settled.
+ * Only edges followed by the search's {@link TraversalMode} are relaxed.
+ */
+public class DijkstraPathSearch implements PathSearch {
+
+    /**
+     * Holds the edges and directions the search follows.
+     */
+    private final TraversalMode mode;
+
+    /**
+     * Constructs an undirected DijkstraPathSearch.
+     */
+    public DijkstraPathSearch() {
+        this(TraversalMode.UNDIRECTED);
+    }
+
+    /**
+     * Constructs the DijkstraPathSearch.
+     *
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     */
+    public DijkstraPathSearch(TraversalMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode is null");
+        }
+        this.mode = mode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GraphPath search(KamGraph graph, int source, int target) {
+        return search(graph, source, target, SearchBudget.unlimited())
+                .getPath();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchResult search(KamGraph graph, int source, int target,
+            SearchBudget budget) {
+        if (budget.limitsHops()) {
+            return HopLimitedSearch.search(graph, mode, source, target,
+                    budget);
+        }
+        final int[] distances = new int[graph.nodeCount()];
+        final int[] predecessors = new int[graph.nodeCount()];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        Arrays.fill(predecessors, -1);
+        final PackedMinHeap unsettled = new PackedMinHeap(512);
+
+        unsettled.push(0, source);
+        distances[source] = 0;
+
+        SearchResult.Status stop = budget.check();
+        while (stop == null && !unsettled.isEmpty()) {
+            long minimum = unsettled.poll();
+            int minDistance = PackedMinHeap.node(minimum);
+
+            // skip stale queue entries, the node was settled at a shorter
+            // distance already
+            if (PackedMinHeap.priority(minimum) > distances[minDistance]) {
+                continue;
+            }
+
+            // the target is settled, its distance is final
+            if (minDistance == target) {
+                break;
+            }
+            stop = budget.settle();
+            if (stop != null) {
+                break;
+            }
+            relax(graph, distances, predecessors, unsettled, minDistance);
+        }
+
+        GraphPath path = GraphPath.trace(graph, predecessors, source, target);
+        return stop != null ? new SearchResult(stop, path)
+                : SearchResult.complete(path, false);
+    }
+
+    /**
+     * Relax all edges from the new <tt>minDistance</tt> node.
+     *
+     * @param graph {@link KamGraph}, the kam graph used for path find
+     * @param distances <tt>int[]</tt>, the distance of each node
+     * @param predecessors <tt>int[]</tt>, the predecessor edge of each node
+     * to capture a path trail
+     * @param unsettled {@link PackedMinHeap}, the queue of unsettled nodes
+     * which is sorted by minimum distance
+     * @param minDistance <tt>int</tt>, the current minimum distance node that
+     * is being relaxed
+     */
+    private void relax(KamGraph graph, int[] distances, int[] predecessors,
+            PackedMinHeap unsettled, int minDistance) {
+        final int dref = distances[minDistance];
+        final int mask = mode.mask;
+
+        // relax forward direction
+        for (int i = graph.forwardOffsets[minDistance],
+                end = graph.forwardOffsets[minDistance + 1]; i < end; i++) {
+            int edge = graph.forwardEdges[i];
+            if ((graph.edgeFlags[edge] & mask) != 0) {
+                relaxEdge(distances, predecessors, unsettled, edge,
+                        graph.forwardNeighbors[i],
+                        dref + graph.edgeWeights[edge]);
+            }
+        }
+        if (mode.directed) {
+            return;
+        }
+
+        // relax reverse direction
+        for (int i = graph.reverseOffsets[minDistance],
+                end = graph.reverseOffsets[minDistance + 1]; i < end; i++) {
+            int edge = graph.reverseEdges[i];
+            if ((graph.edgeFlags[edge] & mask) != 0) {
+                relaxEdge(distances, predecessors, unsettled, edge,
+                        graph.reverseNeighbors[i],
+                        dref + graph.edgeWeights[edge]);
+            }
+        }
+    }
+
+    /**
+     * Explore the new node and edge and see if this path's distance has
+     * improved.  If it has then update distance, predecessor, and queue the
+     * node.  Settled nodes never improve so they need no separate check.
+     *
+     * @param distances <tt>int[]</tt>, the distance of each node
+     * @param predecessors <tt>int[]</tt>, the predecessor edge of each node
+     * @param unsettled {@link PackedMinHeap}, the queue of unsettled nodes
+     * @param edge <tt>int</tt>, the edge index used in the new distance
+     * @param edgeNode <tt>int</tt>, the edge's node index to evaluate
+     * @param dnew <tt>int</tt>, the distance to <tt>edgeNode</tt> through
+     * <tt>edge</tt>
+     */
+    private void relaxEdge(int[] distances, int[] predecessors,
+            PackedMinHeap unsettled, int edge, int edgeNode, int dnew) {
+        if (distances[edgeNode] > dnew) {
+            distances[edgeNode] = dnew;
+            predecessors[edgeNode] = edge;
+            unsettled.push(dnew, edgeNode);
+        }
+    }
+}
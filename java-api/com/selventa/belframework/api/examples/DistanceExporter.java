@@ -0,0 +1,160 @@
+package com.selventa.belframework.api.examples;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+
+import com.selventa.belframework.api.KamStore;
+import com.selventa.belframework.api.KamStoreImpl;
+import com.selventa.belframework.common.cfg.SystemConfiguration;
+import com.selventa.belframework.df.DBConnection;
+import com.selventa.belframework.df.DatabaseService;
+import com.selventa.belframework.df.DatabaseServiceImpl;
+import com.selventa.belframework.kamstore.model.Kam;
+import com.selventa.belframework.kamstore.model.KamStoreException;
+
+/**
+ * DistanceExporter writes the shortest path distance from one source node
+ * to every node of a {@link Kam}.
+ *
+ * <p>
+ * The shortest path tree is computed in parallel by {@link DeltaStepping}
+ * and written as one tab-separated line per reachable node: the node id,
+ * its distance, and the id of its predecessor node and edge on a shortest
+ * path from the source.
+ * </p>
+ */
+public class DistanceExporter {
+
+    /**
+     * Holds the name of the KAM to path find in.
+     */
+    private final String kamName;
+
+    /**
+     * Holds the source node id.
+     */
+    private final int sourceNodeId;
+
+    /**
+     * Holds the output file to write distances to.
+     */
+    private final String outputFile;
+
+    /**
+     * Holds the edges and directions to follow.
+     */
+    private final TraversalMode mode;
+
+    /**
+     * Holds the number of worker threads.
+     */
+    private final int threads;
+
+    /**
+     * Constructs the DistanceExporter.
+     *
+     * @param kamName {@link String}, the kam name
+     * @param sourceNodeId <tt>int</tt>, the source node id
+     * @param outputFile {@link String}, the distances file
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param threads <tt>int</tt>, the number of worker threads
+     */
+    public DistanceExporter(String kamName, int sourceNodeId,
+            String outputFile, TraversalMode mode, int threads) {
+        if (kamName == null || outputFile == null || mode == null) {
+            throw new IllegalArgumentException("input(s) were null.");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("invalid thread count.");
+        }
+        this.kamName = kamName;
+        this.sourceNodeId = sourceNodeId;
+        this.outputFile = outputFile;
+        this.mode = mode;
+        this.threads = threads;
+    }
+
+    /**
+     * Load the kam, compute the distances, and write them to the output
+     * file.
+     *
+     * @throws IOException Thrown if the system configuration could not be
+     * read or the output file could not be written
+     * @throws SQLException Thrown if a SQL error occurred working with the
+     * kam
+     * @throws KamStoreException Thrown if the kam could not be loaded
+     */
+    public void run() throws IOException, SQLException, KamStoreException {
+        SystemConfiguration.createSystemConfiguration(null);
+        SystemConfiguration config = SystemConfiguration.getSystemConfiguration();
+
+        // Setup a database connector to the KAM Store.
+        DatabaseService dbService = new DatabaseServiceImpl();
+        DBConnection dbc = dbService.dbConnection(
+                config.getKamURL(),
+                config.getKamUser(),
+                config.getKamPassword());
+        KamStore kamStore = new KamStoreImpl(dbc);
+
+        System.out.println("Loading kam " + kamName + "...");
+        Kam kam = kamStore.getKam(kamName);
+        KamGraph graph = KamGraph.snapshot(kam);
+        kamStore.close(kam);
+        dbc.getConnection().close();
+
+        int source = graph.indexOf(sourceNodeId);
+        if (source == -1) {
+            System.out.println("Source node cannot be found in kam: " + kamName);
+            return;
+        }
+
+        System.out.println("Calculating distances from " + sourceNodeId
+                + " on " + threads + " threads...");
+        DeltaStepping deltaStepping = new DeltaStepping(threads);
+        ShortestPathTree tree;
+        try {
+            tree = deltaStepping.compute(graph, source, mode, false);
+        } finally {
+            deltaStepping.shutdown();
+        }
+
+        PrintWriter writer = new PrintWriter(new File(outputFile));
+        try {
+            write(graph, tree, writer);
+        } finally {
+            writer.close();
+        }
+        System.out.println("\nDistances saved to file: "
+                + new File(outputFile).getAbsolutePath());
+    }
+
+    /**
+     * Write one line per node reachable in <tt>tree</tt>.
+     *
+     * @param graph {@link KamGraph}, the graph the tree was computed over
+     * @param tree {@link ShortestPathTree}, the tree
+     * @param writer {@link PrintWriter}, the output writer
+     */
+    static void write(KamGraph graph, ShortestPathTree tree,
+            PrintWriter writer) {
+        writer.println("#node\tdistance\tpredecessor node\tpredecessor edge");
+        for (int v = 0; v < tree.nodeCount(); v++) {
+            int distance = tree.distance(v);
+            if (distance == ShortestPathTree.UNREACHABLE) {
+                continue;
+            }
+            int edge = tree.predecessor(v);
+            writer.print(graph.node(v).getId());
+            writer.print('\t');
+            writer.print(distance);
+            if (edge == -1) {
+                writer.println("\t-\t-");
+            } else {
+                writer.println("\t" + graph.node(graph.opposite(edge, v)).getId()
+                        + "\t" + graph.edge(edge).getId());
+            }
+        }
+    }
+}
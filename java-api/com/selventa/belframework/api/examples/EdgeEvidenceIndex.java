@@ -0,0 +1,242 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.selventa.belframework.api.KamStore;
+import com.selventa.belframework.kamstore.data.jdbc.KAMStoreDaoImpl.Annotation;
+import com.selventa.belframework.kamstore.data.jdbc.KAMStoreDaoImpl.BelStatement;
+import com.selventa.belframework.kamstore.model.Kam.KamEdge;
+import com.selventa.belframework.kamstore.model.KamStoreException;
+
+/**
+ * EdgeEvidenceIndex holds the supporting statements of every edge of a KAM
+ * and the annotation values of each statement, read from the KAM store once
+ * and shared by every summary that needs evidence.
+ *
+ * Statements and annotations are kept as offsets into flat <tt>int</tt>
+ * arrays and annotation values are interned to <tt>int</tt> codes, so the
+ * {@link BelStatement} and {@link Annotation} objects returned by the store
+ * are released as soon as each edge has been read.
+ */
+public final class EdgeEvidenceIndex {
+
+	private final KamEdge[] edges;
+	private final Map<Integer, Integer> edgeIndex;
+	private final int[] statementOffsets;
+	private final int[] statementIds;
+	private final int[] annotationOffsets;
+	private final int[] annotationValues;
+	private final String[] values;
+	private final Map<String, Integer> valueCodes;
+
+	private EdgeEvidenceIndex(KamEdge[] edges, Map<Integer, Integer> edgeIndex, int[] statementOffsets, int[] statementIds, int[] annotationOffsets,
+			int[] annotationValues, String[] values, Map<String, Integer> valueCodes) {
+		this.edges = edges;
+		this.edgeIndex = edgeIndex;
+		this.statementOffsets = statementOffsets;
+		this.statementIds = statementIds;
+		this.annotationOffsets = annotationOffsets;
+		this.annotationValues = annotationValues;
+		this.values = values;
+		this.valueCodes = valueCodes;
+	}
+
+	/**
+	 * Reads the supporting evidence of each edge.
+	 *
+	 * The KAM store only returns evidence one edge at a time, so this is one
+	 * query per edge; every summary then reads the index instead of the
+	 * store.
+	 *
+	 * @param kamStore
+	 * @param edges
+	 * @return
+	 * @throws KamStoreException
+	 */
+	public static EdgeEvidenceIndex load(KamStore kamStore, Collection<KamEdge> edges) throws KamStoreException {
+		if (kamStore == null || edges == null) {
+			throw new IllegalArgumentException("input(s) were null.");
+		}
+		KamEdge[] indexed = new KamEdge[edges.size()];
+		Map<Integer, Integer> edgeIndex = new HashMap<Integer, Integer>(edges.size() * 2);
+		int[] statementOffsets = new int[edges.size() + 1];
+		int[] statementIds = new int[Math.max(16, edges.size())];
+		int[] annotationOffsets = new int[statementIds.length + 1];
+		int[] annotationValues = new int[statementIds.length * 2];
+		Map<String, Integer> valueCodes = new HashMap<String, Integer>();
+		String[] values = new String[16];
+
+		int e = 0;
+		int statements = 0;
+		int annotations = 0;
+		for (KamEdge edge : edges) {
+			indexed[e] = edge;
+			edgeIndex.put(edge.getId(), e);
+			List<BelStatement> evidence = kamStore.getSupportingEvidence(edge);
+			for (BelStatement statement : evidence) {
+				if (statements == statementIds.length) {
+					statementIds = Arrays.copyOf(statementIds, statements * 2);
+					annotationOffsets = Arrays.copyOf(annotationOffsets, statements * 2 + 1);
+				}
+				statementIds[statements++] = statement.getId();
+				for (Annotation annotation : statement.getAnnotationList()) {
+					String value = annotation.getValue();
+					Integer code = valueCodes.get(value);
+					if (code == null) {
+						code = valueCodes.size();
+						valueCodes.put(value, code);
+						if (code == values.length) {
+							values = Arrays.copyOf(values, code * 2);
+						}
+						values[code] = value;
+					}
+					if (annotations == annotationValues.length) {
+						annotationValues = Arrays.copyOf(annotationValues, annotations * 2);
+					}
+					annotationValues[annotations++] = code;
+				}
+				annotationOffsets[statements] = annotations;
+			}
+			statementOffsets[++e] = statements;
+		}
+
+		return new EdgeEvidenceIndex(indexed, edgeIndex, statementOffsets, Arrays.copyOf(statementIds, statements), Arrays.copyOf(annotationOffsets,
+				statements + 1), Arrays.copyOf(annotationValues, annotations), Arrays.copyOf(values, valueCodes.size()), valueCodes);
+	}
+
+	/**
+	 * returns the number of edges indexed.
+	 *
+	 * @return
+	 */
+	public int edgeCount() {
+		return statementOffsets.length - 1;
+	}
+
+	/**
+	 * returns the total number of supporting statements, counted once per
+	 * edge they support.
+	 *
+	 * @return
+	 */
+	public int statementCount() {
+		return statementIds.length;
+	}
+
+	/**
+	 * returns the position of the edge in the index, or -1 if it was not
+	 * indexed.
+	 *
+	 * @param edge
+	 * @return
+	 */
+	public int indexOf(KamEdge edge) {
+		Integer e = edgeIndex.get(edge.getId());
+		return e == null ? -1 : e;
+	}
+
+	/**
+	 * returns the edge at position <tt>e</tt>.
+	 *
+	 * @param e
+	 * @return
+	 */
+	public KamEdge edge(int e) {
+		return edges[e];
+	}
+
+	/**
+	 * returns the first statement of the edge at position <tt>e</tt>.
+	 *
+	 * @param e
+	 * @return
+	 */
+	public int statementStart(int e) {
+		return statementOffsets[e];
+	}
+
+	/**
+	 * returns one past the last statement of the edge at position <tt>e</tt>.
+	 *
+	 * @param e
+	 * @return
+	 */
+	public int statementEnd(int e) {
+		return statementOffsets[e + 1];
+	}
+
+	/**
+	 * returns the id of statement <tt>s</tt>.
+	 *
+	 * @param s
+	 * @return
+	 */
+	public int statementId(int s) {
+		return statementIds[s];
+	}
+
+	/**
+	 * returns the first annotation of statement <tt>s</tt>.
+	 *
+	 * @param s
+	 * @return
+	 */
+	public int annotationStart(int s) {
+		return annotationOffsets[s];
+	}
+
+	/**
+	 * returns one past the last annotation of statement <tt>s</tt>.
+	 *
+	 * @param s
+	 * @return
+	 */
+	public int annotationEnd(int s) {
+		return annotationOffsets[s + 1];
+	}
+
+	/**
+	 * returns the value code of annotation <tt>a</tt>.
+	 *
+	 * @param a
+	 * @return
+	 */
+	public int annotationValue(int a) {
+		return annotationValues[a];
+	}
+
+	/**
+	 * returns the number of distinct annotation values.
+	 *
+	 * @return
+	 */
+	public int valueCount() {
+		return values.length;
+	}
+
+	/**
+	 * returns the annotation value of a value code.
+	 *
+	 * @param code
+	 * @return
+	 */
+	public String value(int code) {
+		return values[code];
+	}
+
+	/**
+	 * returns the value code of an annotation value, or -1 if no indexed
+	 * annotation has the value.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public int valueCode(String value) {
+		Integer code = valueCodes.get(value);
+		return code == null ? -1 : code;
+	}
+}
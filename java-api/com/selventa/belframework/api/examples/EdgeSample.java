@@ -0,0 +1,140 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import com.selventa.belframework.kamstore.model.Kam.KamEdge;
+
+/**
+ * EdgeSample is a uniform random sample, without replacement, of the edges
+ * of a network, used to estimate totals over all edges from the sampled
+ * edges alone.
+ *
+ * Totals are estimated as the population size times the sample mean, with a
+ * 95% confidence interval from the sample variance and the finite
+ * population correction, so a sample of every edge has no error.
+ */
+public final class EdgeSample {
+
+	/**
+	 * z score of a two-sided 95% confidence interval
+	 */
+	private static final double Z_95 = 1.96;
+
+	private final int population;
+	private final List<KamEdge> edges;
+
+	private EdgeSample(int population, List<KamEdge> edges) {
+		this.population = population;
+		this.edges = edges;
+	}
+
+	/**
+	 * Draw <tt>size</tt> edges, or every edge if there are fewer, keeping
+	 * their order.
+	 *
+	 * @param edges
+	 * @param size
+	 * @param seed
+	 *            the seed of the random selection, so a summary can be
+	 *            repeated
+	 * @return
+	 */
+	public static EdgeSample draw(Collection<KamEdge> edges, int size, long seed) {
+		if (edges == null) {
+			throw new IllegalArgumentException("edges was null.");
+		}
+		if (size < 1) {
+			throw new IllegalArgumentException("size must be >= 1");
+		}
+		int population = edges.size();
+		int wanted = Math.min(size, population);
+		List<KamEdge> sample = new ArrayList<KamEdge>(wanted);
+		if (wanted == population) {
+			sample.addAll(edges);
+			return new EdgeSample(population, sample);
+		}
+
+		// selection sampling, one pass: pick each edge with probability
+		// (still wanted) / (still unseen)
+		Random random = new Random(seed);
+		int seen = 0;
+		for (KamEdge edge : edges) {
+			if (random.nextInt(population - seen) < wanted - sample.size()) {
+				sample.add(edge);
+				if (sample.size() == wanted) {
+					break;
+				}
+			}
+			seen++;
+		}
+		return new EdgeSample(population, sample);
+	}
+
+	/**
+	 * returns the number of edges sampled from.
+	 *
+	 * @return
+	 */
+	public int getPopulation() {
+		return population;
+	}
+
+	/**
+	 * returns the sampled edges.
+	 *
+	 * @return
+	 */
+	public List<KamEdge> getEdges() {
+		return edges;
+	}
+
+	/**
+	 * Estimate the total of a per-edge value over all edges from its sum
+	 * and sum of squares over the sampled edges. For a yes/no value, such as
+	 * whether an edge belongs to a species, both sums are the number of
+	 * sampled edges with a yes.
+	 *
+	 * @param sum
+	 * @param sumOfSquares
+	 * @return
+	 */
+	public Estimate estimate(double sum, double sumOfSquares) {
+		int n = edges.size();
+		if (n == 0) {
+			return new Estimate(0, 0);
+		}
+		double mean = sum / n;
+		double total = population * mean;
+		if (n == population) {
+			return new Estimate(total, 0);
+		}
+		double variance = n > 1 ? Math.max(0, (sumOfSquares - sum * mean) / (n - 1)) : mean * mean;
+		double standardError = population * Math.sqrt((1 - (double) n / population) * variance / n);
+		return new Estimate(total, Z_95 * standardError);
+	}
+
+	/**
+	 * Estimate holds an estimated total and the half-width of its 95%
+	 * confidence interval.
+	 */
+	public static final class Estimate {
+		private final double total;
+		private final double margin;
+
+		private Estimate(double total, double margin) {
+			this.total = total;
+			this.margin = margin;
+		}
+
+		public double getTotal() {
+			return total;
+		}
+
+		public double getMargin() {
+			return margin;
+		}
+	}
+}
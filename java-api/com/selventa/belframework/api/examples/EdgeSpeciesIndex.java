@@ -0,0 +1,208 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.selventa.belframework.kamstore.model.Kam.KamEdge;
+
+/**
+ * EdgeSpeciesIndex records which species annotate the supporting evidence
+ * of each edge, as a bitmask per edge and a {@link BitSet} of edges per
+ * species, built in one pass over an {@link EdgeEvidenceIndex}.
+ *
+ * Species sub-networks and the statement breakdown are then read from the
+ * bits, for any number of species, without going back to the evidence.
+ */
+public final class EdgeSpeciesIndex {
+
+	private final EdgeEvidenceIndex evidence;
+	private final String[] species;
+	private final int words;
+	private final long[] masks;
+	private final BitSet[] speciesEdges;
+	private final int[] annotationCounts;
+	private final long[] annotationSquares;
+
+	private EdgeSpeciesIndex(EdgeEvidenceIndex evidence, String[] species, int words, long[] masks, BitSet[] speciesEdges, int[] annotationCounts,
+			long[] annotationSquares) {
+		this.evidence = evidence;
+		this.species = species;
+		this.words = words;
+		this.masks = masks;
+		this.speciesEdges = speciesEdges;
+		this.annotationCounts = annotationCounts;
+		this.annotationSquares = annotationSquares;
+	}
+
+	/**
+	 * Classifies the evidence of every edge by species.
+	 *
+	 * @param evidence
+	 *            the supporting evidence of the KAM edges
+	 * @param registry
+	 *            the species to classify, in report order
+	 * @return
+	 */
+	public static EdgeSpeciesIndex build(EdgeEvidenceIndex evidence, SpeciesRegistry registry) {
+		if (evidence == null || registry == null) {
+			throw new IllegalArgumentException("input(s) were null.");
+		}
+		final int count = registry.size();
+		final String[] species = new String[count];
+		for (int i = 0; i < count; i++) {
+			species[i] = registry.name(i);
+		}
+		// classify each distinct annotation value once
+		final int[] speciesOfValue = new int[evidence.valueCount()];
+		for (int code = 0; code < speciesOfValue.length; code++) {
+			speciesOfValue[code] = registry.code(evidence.value(code));
+		}
+
+		final int edges = evidence.edgeCount();
+		final int words = Math.max(1, (count + 63) >>> 6);
+		final long[] masks = new long[edges * words];
+		final BitSet[] speciesEdges = new BitSet[count];
+		for (int i = 0; i < count; i++) {
+			speciesEdges[i] = new BitSet(edges);
+		}
+		final int[] annotationCounts = new int[count];
+		final long[] annotationSquares = new long[count];
+		final int[] edgeCounts = new int[count];
+
+		for (int e = 0; e < edges; e++) {
+			for (int s = evidence.statementStart(e), send = evidence.statementEnd(e); s < send; s++) {
+				for (int a = evidence.annotationStart(s), aend = evidence.annotationEnd(s); a < aend; a++) {
+					int sp = speciesOfValue[evidence.annotationValue(a)];
+					if (sp == -1) {
+						continue;
+					}
+					annotationCounts[sp]++;
+					edgeCounts[sp]++;
+					masks[e * words + (sp >>> 6)] |= 1L << sp;
+				}
+			}
+			for (int w = 0; w < words; w++) {
+				for (long bits = masks[e * words + w]; bits != 0; bits &= bits - 1) {
+					int sp = (w << 6) + Long.numberOfTrailingZeros(bits);
+					speciesEdges[sp].set(e);
+					annotationSquares[sp] += (long) edgeCounts[sp] * edgeCounts[sp];
+					edgeCounts[sp] = 0;
+				}
+			}
+		}
+		return new EdgeSpeciesIndex(evidence, species, words, masks, speciesEdges, annotationCounts, annotationSquares);
+	}
+
+	/**
+	 * returns the number of species classified.
+	 *
+	 * @return
+	 */
+	public int speciesCount() {
+		return species.length;
+	}
+
+	/**
+	 * returns the name of species <tt>i</tt>.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public String species(int i) {
+		return species[i];
+	}
+
+	/**
+	 * returns true if a statement supporting the edge at position <tt>e</tt>
+	 * of the evidence index is annotated with species <tt>i</tt>.
+	 *
+	 * @param e
+	 * @param i
+	 * @return
+	 */
+	public boolean hasSpecies(int e, int i) {
+		return (masks[e * words + (i >>> 6)] & (1L << i)) != 0;
+	}
+
+	/**
+	 * returns the species bits of the edge at position <tt>e</tt>, species
+	 * <tt>64 * word</tt> to <tt>64 * word + 63</tt>.
+	 *
+	 * @param e
+	 * @param word
+	 * @return
+	 */
+	public long speciesMask(int e, int word) {
+		return masks[e * words + word];
+	}
+
+	/**
+	 * returns the positions of the edges supported by statements annotated
+	 * with species <tt>i</tt>. The set must not be modified.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public BitSet getEdgeSet(int i) {
+		return speciesEdges[i];
+	}
+
+	/**
+	 * returns the edges supported by statements annotated with species
+	 * <tt>i</tt>.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public List<KamEdge> getEdges(int i) {
+		BitSet set = speciesEdges[i];
+		List<KamEdge> edges = new ArrayList<KamEdge>(set.cardinality());
+		for (int e = set.nextSetBit(0); e >= 0; e = set.nextSetBit(e + 1)) {
+			edges.add(evidence.edge(e));
+		}
+		return edges;
+	}
+
+	/**
+	 * returns the number of annotations of species <tt>i</tt> on the
+	 * statements supporting the KAM edges.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public int annotationCount(int i) {
+		return annotationCounts[i];
+	}
+
+	/**
+	 * returns the sum, over the edges, of the square of the number of
+	 * annotations of species <tt>i</tt> on the statements supporting each
+	 * edge; with {@link #annotationCount(int)} it gives the variance of the
+	 * per-edge count.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public long annotationSumOfSquares(int i) {
+		return annotationSquares[i];
+	}
+
+	/**
+	 * returns the statement breakdown by species, the species with no
+	 * annotations left out.
+	 *
+	 * @return
+	 */
+	public Map<String, Integer> getStatementBreakdown() {
+		Map<String, Integer> breakdown = new HashMap<String, Integer>();
+		for (int i = 0; i < species.length; i++) {
+			if (annotationCounts[i] > 0) {
+				breakdown.put(species[i], annotationCounts[i]);
+			}
+		}
+		return breakdown;
+	}
+}
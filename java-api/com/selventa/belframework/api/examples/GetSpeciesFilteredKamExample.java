@@ -1,5 +1,6 @@
 package com.selventa.belframework.api.examples;
 
+import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.HashSet;
@@ -34,11 +35,29 @@ public class GetSpeciesFilteredKamExample {
     private KamStore kamStore;
     private DBConnection dbConnection;
 
+    /**
+     * Holds the {@link SpeciesRegistry species} this example filters by
+     */
+    private final SpeciesRegistry speciesRegistry;
+
     /**
      * Constructs the KamFilterExample
      */
     public GetSpeciesFilteredKamExample() {
+        this(SpeciesRegistry.defaults());
+    }
 
+    /**
+     * Constructs the KamFilterExample filtering by the species of
+     * <tt>speciesRegistry</tt>.
+     *
+     * @param speciesRegistry the {@link SpeciesRegistry species} to filter by
+     */
+    public GetSpeciesFilteredKamExample(final SpeciesRegistry speciesRegistry) {
+        if (speciesRegistry == null) {
+            throw new IllegalArgumentException("speciesRegistry was null.");
+        }
+        this.speciesRegistry = speciesRegistry;
     }
 
     /**
@@ -89,45 +108,30 @@ public class GetSpeciesFilteredKamExample {
         Kam unfilteredKam = kamStore.getKam(smallki);
         printKamInformation(unfilteredKam);
 
-        // load human-filtered kam
-        final Set<Species> species = new HashSet<GetSpeciesFilteredKamExample.Species>();
-        species.add(Species.HUMAN);
-        reportFilteredKam("human", smallki, species);
-
-        // load mouse-filtered kam
-        species.clear();
-        species.add(Species.MOUSE);
-        reportFilteredKam("mouse", smallki, species);
-
-        // load rat-filtered kam
-        species.clear();
-        species.add(Species.RAT);
-        reportFilteredKam("rat", smallki, species);
-
-        // load human/rat kam
-        species.clear();
-        species.add(Species.HUMAN);
-        species.add(Species.RAT);
-        reportFilteredKam("human/rat", smallki, species);
-
-        // load human/mouse kam
-        species.clear();
-        species.add(Species.HUMAN);
-        species.add(Species.MOUSE);
-        reportFilteredKam("human/mouse", smallki, species);
-
-        // load mouse/rat kam
-        species.clear();
-        species.add(Species.MOUSE);
-        species.add(Species.RAT);
-        reportFilteredKam("mouse/rat", smallki, species);
-
-        // load human/mouse/rat kam
-        species.clear();
-        species.add(Species.HUMAN);
-        species.add(Species.MOUSE);
-        species.add(Species.RAT);
-        reportFilteredKam("hmr", smallki, species);
+        // load a kam filtered to each species, each pair of species, and
+        // every species of the registry
+        final int count = speciesRegistry.size();
+        final Set<String> species = new HashSet<String>();
+        for (int i = 0; i < count; i++) {
+            species.clear();
+            species.add(speciesRegistry.name(i));
+            reportFilteredKam(label(i), smallki, species);
+        }
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                species.clear();
+                species.add(speciesRegistry.name(i));
+                species.add(speciesRegistry.name(j));
+                reportFilteredKam(label(i) + "/" + label(j), smallki, species);
+            }
+        }
+        if (count > 2) {
+            species.clear();
+            for (int i = 0; i < count; i++) {
+                species.add(speciesRegistry.name(i));
+            }
+            reportFilteredKam("all-species", smallki, species);
+        }
 
         // species-less kam
         System.out.println("Get species-less KAM:");
@@ -141,17 +145,27 @@ public class GetSpeciesFilteredKamExample {
         kamStore.teardown();
     }
 
+    /**
+     * Returns the report label of the <tt>i</tt>th species of the registry.
+     *
+     * @param i the species index
+     * @return the lower-case species {@link String name}
+     */
+    private String label(final int i) {
+        return speciesRegistry.name(i).toLowerCase();
+    }
+
     /**
      * Retrieve a filtered {@link Kam kam} and report metrics.
      *
      * @param label the filter {@link String label} to report
      * @param smallki the {@link KamInfo kam info} identifying the base kam
-     * @param species the {@link Set set} of {@link Species species} to use
+     * @param species the {@link Set set} of species names to use
      * @throws KamStoreException Thrown if an error occurred loading the
      * filtered {@link Kam kam}
      */
     private void reportFilteredKam(final String label, final KamInfo smallki,
-            final Set<Species> species) throws KamStoreException {
+            final Set<String> species) throws KamStoreException {
         final KamFilter humanFilter = createSpeciesFilter(species,
                 smallki,
                 kamStore);
@@ -177,10 +191,10 @@ public class GetSpeciesFilteredKamExample {
     }
 
     /**
-     * Creates a "Species" annotation filter with included
-     * {@link Species species}.
+     * Creates a "Species" annotation filter with included species of the
+     * {@link SpeciesRegistry species registry}.
      *
-     * @param includeSpecies the {@link Species species} to include
+     * @param includeSpecies the names of the species to include
      * @param kamInfo the {@link KamInfo kam info} that represents the
      * {@link Kam}
      * @param kamStore the {@link KamStore kam store}
@@ -188,7 +202,7 @@ public class GetSpeciesFilteredKamExample {
      * @throws KamStoreException Thrown if an error is encountered checking the
      * annotation types
      */
-    private KamFilter createSpeciesFilter(final Set<Species> includeSpecies,
+    private KamFilter createSpeciesFilter(final Set<String> includeSpecies,
             final KamInfo kamInfo, final KamStore kamStore)
             throws KamStoreException {
         final List<AnnotationType> atypes = kamStore.getAnnotationTypes(kamInfo);
@@ -207,9 +221,10 @@ public class GetSpeciesFilteredKamExample {
 
         final KamFilter kf = kamInfo.createKamFilter();
 
-        for (final Species s : Species.values()) {
-            AnnotationFilterCriteria crit = s.createCriteria(species);
-            crit.setInclude(includeSpecies.contains(s));
+        for (int i = 0; i < speciesRegistry.size(); i++) {
+            final AnnotationFilterCriteria crit = new AnnotationFilterCriteria(species);
+            crit.add(speciesRegistry.taxId(i));
+            crit.setInclude(includeSpecies.contains(speciesRegistry.name(i)));
             kf.add(crit);
         }
 
@@ -244,40 +259,28 @@ public class GetSpeciesFilteredKamExample {
 
         final KamFilter kf = kamInfo.createKamFilter();
         final AnnotationFilterCriteria afc = new AnnotationFilterCriteria(species);
-        afc.add("9606");
-        afc.add("10090");
-        afc.add("10116");
+        for (int i = 0; i < speciesRegistry.size(); i++) {
+            afc.add(speciesRegistry.taxId(i));
+        }
         afc.setInclude(false);
         kf.add(afc);
         return kf;
     }
 
     public static void main(String[] args) throws Exception {
-        GetSpeciesFilteredKamExample app = new GetSpeciesFilteredKamExample();
-        app.run();
-    }
-
-    /**
-     * {@link Species} defines the allowed species domain for this example.
-     *
-     * @author Anthony Bargnesi &lt;abargnesi@selventa.com&gt;
-     */
-    private static enum Species {
-        HUMAN(9606),
-        MOUSE(10090),
-        RAT(10116);
-
-        private final int taxId;
-
-        private Species(final int taxId) {
-            this.taxId = taxId;
+        SpeciesRegistry speciesRegistry = SpeciesRegistry.defaults();
+        if (args.length == 2
+                && (args[0].equals("-s") || args[0].equals("--species"))) {
+            speciesRegistry = SpeciesRegistry.load(new File(args[1]));
+        } else if (args.length != 0) {
+            System.out.println("Usage:\n"
+                    + "  -s FILE, --species FILE       The species to filter by, as name=taxId lines\n"
+                    + "                                (default Human, Mouse and Rat)\n");
+            System.exit(1);
         }
 
-        public AnnotationFilterCriteria createCriteria(
-                final AnnotationType species) {
-            final AnnotationFilterCriteria crit = new AnnotationFilterCriteria(species);
-            crit.add(String.valueOf(taxId));
-            return crit;
-        }
+        GetSpeciesFilteredKamExample app =
+                new GetSpeciesFilteredKamExample(speciesRegistry);
+        app.run();
     }
 }
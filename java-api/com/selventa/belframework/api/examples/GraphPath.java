@@ -0,0 +1,168 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.selventa.belframework.kamstore.model.Kam.KamEdge;
+import com.selventa.belframework.kamstore.model.Kam.KamNode;
+
+/**
+ * GraphPath is a path found over a {@link KamGraph}, held as node and edge
+ * indices from source to target.
+ */
+public final class GraphPath {
+
+    /**
+     * Holds the node indices, from source to target.
+     */
+    private final int[] nodes;
+
+    /**
+     * Holds the edge indices; <tt>edges[i]</tt> joins <tt>nodes[i]</tt> and
+     * <tt>nodes[i + 1]</tt>.
+     */
+    private final int[] edges;
+
+    /**
+     * Holds the summed edge weight of the path.
+     */
+    private final int distance;
+
+    /**
+     * Constructs the GraphPath.
+     *
+     * @param nodes <tt>int[]</tt>, the node indices from source to target
+     * @param edges <tt>int[]</tt>, the edge indices joining the nodes
+     * @param distance <tt>int</tt>, the summed edge weight
+     */
+    public GraphPath(int[] nodes, int[] edges, int distance) {
+        if (nodes == null || edges == null || nodes.length == 0
+                || edges.length != nodes.length - 1) {
+            throw new IllegalArgumentException("malformed path");
+        }
+        this.nodes = nodes;
+        this.edges = edges;
+        this.distance = distance;
+    }
+
+    /**
+     * Trace a path back from <tt>target</tt> to <tt>source</tt> through a
+     * predecessor edge array.
+     *
+     * @param graph {@link KamGraph}, the graph searched
+     * @param predecessors <tt>int[]</tt>, the predecessor edge of each node
+     * or <tt>-1</tt>
+     * @param source <tt>int</tt>, the source node index
+     * @param target <tt>int</tt>, the target node index
+     * @return {@link GraphPath}, or <tt>null</tt> if <tt>target</tt> was not
+     * reached
+     */
+    static GraphPath trace(KamGraph graph, int[] predecessors, int source,
+            int target) {
+        if (target != source && predecessors[target] == -1) {
+            return null;
+        }
+
+        int length = 0;
+        for (int node = target; node != source; length++) {
+            node = graph.opposite(predecessors[node], node);
+        }
+
+        int[] nodes = new int[length + 1];
+        int[] edges = new int[length];
+        int distance = 0;
+        int node = target;
+        nodes[length] = node;
+        for (int i = length - 1; i >= 0; i--) {
+            int edge = predecessors[node];
+            node = graph.opposite(edge, node);
+            edges[i] = edge;
+            nodes[i] = node;
+            distance += graph.weight(edge);
+        }
+        return new GraphPath(nodes, edges, distance);
+    }
+
+    /**
+     * Returns the summed edge weight of the path.
+     *
+     * @return <tt>int</tt>
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * Returns the number of edges on the path.
+     *
+     * @return <tt>int</tt>
+     */
+    public int getLength() {
+        return edges.length;
+    }
+
+    /**
+     * Returns the node index at <tt>position</tt> along the path.
+     *
+     * @param position <tt>int</tt>, <tt>0</tt> is the source
+     * @return <tt>int</tt>, the node index
+     */
+    public int nodeAt(int position) {
+        return nodes[position];
+    }
+
+    /**
+     * Returns the edge index at <tt>position</tt> along the path.
+     *
+     * @param position <tt>int</tt>, <tt>0</tt> is the edge leaving the source
+     * @return <tt>int</tt>, the edge index
+     */
+    public int edgeAt(int position) {
+        return edges[position];
+    }
+
+    /**
+     * Format the path as its comma-separated {@link KamNode kam node} ids.
+     *
+     * @param graph {@link KamGraph}, the graph the path was found in
+     * @return {@link String}, the node ids from source to target
+     */
+    public String formatNodeIds(KamGraph graph) {
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < nodes.length; i++) {
+            if (i > 0) {
+                ids.append(',');
+            }
+            ids.append(graph.node(nodes[i]).getId());
+        }
+        return ids.toString();
+    }
+
+    /**
+     * Resolve the path's {@link KamNode kam nodes}.
+     *
+     * @param graph {@link KamGraph}, the graph the path was found in
+     * @return {@link List} of {@link KamNode}, from source to target
+     */
+    public List<KamNode> getKamNodes(KamGraph graph) {
+        List<KamNode> kamNodes = new ArrayList<KamNode>(nodes.length);
+        for (int node : nodes) {
+            kamNodes.add(graph.node(node));
+        }
+        return kamNodes;
+    }
+
+    /**
+     * Resolve the path's {@link KamEdge kam edges}.
+     *
+     * @param graph {@link KamGraph}, the graph the path was found in
+     * @return {@link List} of {@link KamEdge}, from source to target
+     */
+    public List<KamEdge> getKamEdges(KamGraph graph) {
+        List<KamEdge> kamEdges = new ArrayList<KamEdge>(edges.length);
+        for (int edge : edges) {
+            kamEdges.add(graph.edge(edge));
+        }
+        return kamEdges;
+    }
+}
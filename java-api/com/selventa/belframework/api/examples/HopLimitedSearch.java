@@ -0,0 +1,171 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+
+/**
+ * HopLimitedSearch finds the shortest path using at most
+ * {@link SearchBudget#maxHops} edges, for the {@link PathSearch} engines to
+ * delegate to when a budget limits hops.
+ *
+ * <p>
+ * A single distance and hop count per node is not enough under a hop
+ * limit: the shortest path to a node may use more hops than a longer one,
+ * and only the longer one may still reach the target in time.  The search
+ * is a Dijkstra over <tt>(node, hops)</tt> labels instead.  Labels are
+ * settled in distance order, so a label is only worth settling if it
+ * reaches its node in fewer hops than every label settled there before; a
+ * label dominated in both distance and hops is dropped.  Each node settles
+ * at most <tt>maxHops + 1</tt> labels.
+ * </p>
+ */
+final class HopLimitedSearch {
+
+    private HopLimitedSearch() {
+
+    }
+
+    /**
+     * Find the shortest path from <tt>source</tt> to <tt>target</tt> of at
+     * most <tt>budget.maxHops</tt> edges.
+     *
+     * @param graph {@link KamGraph}, the graph to search
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param source <tt>int</tt>, the source node index
+     * @param target <tt>int</tt>, the target node index
+     * @param budget {@link SearchBudget}, the query limits
+     * @return {@link SearchResult}, the path and the reason the search ended
+     */
+    static SearchResult search(KamGraph graph, TraversalMode mode, int source,
+            int target, SearchBudget budget) {
+        final int maxHops = budget.maxHops;
+        final Labels labels = new Labels();
+        // the fewest hops of a label settled at each node
+        final int[] settledHops = new int[graph.nodeCount()];
+        Arrays.fill(settledHops, Integer.MAX_VALUE);
+        final PackedMinHeap unsettled = new PackedMinHeap(512);
+
+        unsettled.push(0, labels.add(source, -1, -1, 0, 0));
+        boolean pruned = false;
+        int found = -1;
+
+        SearchResult.Status stop = budget.check();
+        while (stop == null && !unsettled.isEmpty()) {
+            int label = PackedMinHeap.node(unsettled.poll());
+            int node = labels.nodes[label];
+            int hops = labels.hops[label];
+
+            // dominated: settled before at no greater distance, in no more
+            // hops
+            if (hops >= settledHops[node]) {
+                continue;
+            }
+            settledHops[node] = hops;
+
+            // the first label of the target settled is the shortest path
+            // within the hop limit
+            if (node == target) {
+                found = label;
+                break;
+            }
+            stop = budget.settle();
+            if (stop != null) {
+                break;
+            }
+
+            if (hops >= maxHops) {
+                pruned = true;
+                continue;
+            }
+            int distance = labels.distances[label];
+            for (int i = graph.forwardOffsets[node],
+                    end = graph.forwardOffsets[node + 1]; i < end; i++) {
+                relax(graph, mode, labels, settledHops, unsettled, label,
+                        graph.forwardEdges[i], graph.forwardNeighbors[i],
+                        distance, hops + 1);
+            }
+            if (mode.directed) {
+                continue;
+            }
+            for (int i = graph.reverseOffsets[node],
+                    end = graph.reverseOffsets[node + 1]; i < end; i++) {
+                relax(graph, mode, labels, settledHops, unsettled, label,
+                        graph.reverseEdges[i], graph.reverseNeighbors[i],
+                        distance, hops + 1);
+            }
+        }
+
+        GraphPath path = found == -1 ? null : labels.trace(graph, found);
+        return stop != null ? new SearchResult(stop, path)
+                : SearchResult.complete(path, pruned);
+    }
+
+    /**
+     * Queue a label for <tt>next</tt> through <tt>edge</tt>, unless a label
+     * settled there already uses no more hops.
+     */
+    private static void relax(KamGraph graph, TraversalMode mode,
+            Labels labels, int[] settledHops, PackedMinHeap unsettled,
+            int parent, int edge, int next, int distance, int hops) {
+        if ((graph.edgeFlags[edge] & mode.mask) == 0
+                || hops >= settledHops[next]) {
+            return;
+        }
+        int dnew = distance + graph.edgeWeights[edge];
+        unsettled.push(dnew, labels.add(next, edge, parent, hops, dnew));
+    }
+
+    /**
+     * Labels holds the search labels in parallel arrays; a label records
+     * its node, the edge it was reached by, its parent label, its hops and
+     * its distance.  {@link KShortestPaths} reuses it for hop-limited spur
+     * searches.
+     */
+    static final class Labels {
+        int[] nodes = new int[256];
+        int[] edges = new int[256];
+        int[] parents = new int[256];
+        int[] hops = new int[256];
+        int[] distances = new int[256];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        int add(int node, int edge, int parent, int hopCount,
+                int distance) {
+            if (size == nodes.length) {
+                int capacity = size << 1;
+                nodes = Arrays.copyOf(nodes, capacity);
+                edges = Arrays.copyOf(edges, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                hops = Arrays.copyOf(hops, capacity);
+                distances = Arrays.copyOf(distances, capacity);
+            }
+            nodes[size] = node;
+            edges[size] = edge;
+            parents[size] = parent;
+            hops[size] = hopCount;
+            distances[size] = distance;
+            return size++;
+        }
+
+        /**
+         * Returns the path from the root label to <tt>label</tt>.
+         */
+        GraphPath trace(KamGraph graph, int label) {
+            final int length = hops[label];
+            final int distance = distances[label];
+            int[] pathNodes = new int[length + 1];
+            int[] pathEdges = new int[length];
+            for (int i = length; i >= 0; i--) {
+                pathNodes[i] = nodes[label];
+                if (i > 0) {
+                    pathEdges[i - 1] = edges[label];
+                }
+                label = parents[label];
+            }
+            return new GraphPath(pathNodes, pathEdges, distance);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.selventa.belframework.api.examples;
+
+/**
+ * HyperLogLog estimates the number of distinct values offered to it in a
+ * fixed number of one byte registers, whatever the number of values.
+ *
+ * With precision <tt>p</tt> the sketch holds <tt>2^p</tt> registers and the
+ * estimate has a standard error of about <tt>1.04 / sqrt(2^p)</tt>, 0.8% at
+ * the default precision of 14. Sketches of the same precision merge by
+ * keeping the larger register, so partial sketches of chunks of a network
+ * combine into the sketch of the whole.
+ */
+public final class HyperLogLog {
+
+	public static final int DEFAULT_PRECISION = 14;
+
+	private final int precision;
+	private final byte[] registers;
+
+	/**
+	 * Constructs a sketch of the {@link #DEFAULT_PRECISION default
+	 * precision}.
+	 */
+	public HyperLogLog() {
+		this(DEFAULT_PRECISION);
+	}
+
+	/**
+	 * @param precision
+	 *            the number of hash bits choosing a register, 4 to 16
+	 */
+	public HyperLogLog(int precision) {
+		if (precision < 4 || precision > 16) {
+			throw new IllegalArgumentException("precision must be 4 to 16");
+		}
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+	/**
+	 * Offer a string value.
+	 *
+	 * @param value
+	 */
+	public void offer(String value) {
+		// 64-bit FNV-1a; String.hashCode has too few bits for large sets
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0, n = value.length(); i < n; i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		offerHash(mix(h));
+	}
+
+	/**
+	 * Offer a numeric value, such as a node id.
+	 *
+	 * @param value
+	 */
+	public void offer(long value) {
+		offerHash(mix(value));
+	}
+
+	private void offerHash(long hash) {
+		int register = (int) (hash >>> (64 - precision));
+		// rank of the first set bit of the remaining bits, 1-based
+		long rest = hash << precision;
+		int rank = rest == 0 ? 65 - precision : Long.numberOfLeadingZeros(rest) + 1;
+		if (rank > registers[register]) {
+			registers[register] = (byte) rank;
+		}
+	}
+
+	/**
+	 * MurmurHash3 finalizer, spreading every input bit over the hash.
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Merge another sketch of the same precision into this one.
+	 *
+	 * @param other
+	 */
+	public void merge(HyperLogLog other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("precision mismatch");
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+
+	/**
+	 * returns the estimated number of distinct values offered.
+	 *
+	 * @return
+	 */
+	public long estimate() {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double alpha = 0.7213 / (1 + 1.079 / m);
+		double estimate = alpha * m * m / sum;
+		// linear counting is more accurate while many registers are empty
+		if (estimate <= 2.5 * m && zeros > 0) {
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return Math.round(estimate);
+	}
+}
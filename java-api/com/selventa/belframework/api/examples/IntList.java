@@ -0,0 +1,56 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+
+/**
+ * IntList is a growable <tt>int</tt> array, for building lists of node and
+ * edge indices without boxing.  Its fields are read directly by the classes
+ * that fill it.
+ */
+final class IntList {
+
+    int[] items = new int[16];
+    int size;
+
+    /**
+     * Append <tt>value</tt>.
+     *
+     * @param value <tt>int</tt>, the value
+     */
+    void add(int value) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size++] = value;
+    }
+
+    /**
+     * Append every value of <tt>other</tt>.
+     *
+     * @param other {@link IntList}, the values
+     */
+    void addAll(IntList other) {
+        if (size + other.size > items.length) {
+            items = Arrays.copyOf(items,
+                    Math.max(size + other.size, size * 2));
+        }
+        System.arraycopy(other.items, 0, items, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Remove every value, keeping the capacity.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the values as an array of exactly {@link #size} elements.
+     *
+     * @return <tt>int[]</tt>
+     */
+    int[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+}
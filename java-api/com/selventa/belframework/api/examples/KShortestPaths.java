@@ -0,0 +1,543 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * KShortestPaths finds the <tt>k</tt> shortest loopless paths between two
+ * nodes of a {@link KamGraph} using Yen's algorithm.
+ *
+ * <p>
+ * A single {@link ShortestPathTree} into the target is computed up
+ * front.  It yields the first path directly and, because removing edges and
+ * nodes can only lengthen paths, its distances are an exact-when-unblocked
+ * lower bound for every spur search.  Spur searches are therefore A*
+ * searches that usually walk straight to the target, and spurs whose bound
+ * cannot beat the current candidates are skipped entirely.
+ * </p>
+ *
+ * <p>
+ * Spurs only start at or after the node where a path deviated from its
+ * parent (Lawler's refinement), the candidate set never holds more entries
+ * than paths still wanted, and each path is handed to the
+ * {@link PathListener} as soon as it is final.
+ * </p>
+ */
+public class KShortestPaths {
+
+    /**
+     * PathListener receives each path as soon as it is finalized.
+     */
+    public interface PathListener {
+
+        /**
+         * Called for each path, in order of increasing distance.
+         *
+         * @param rank <tt>int</tt>, the path rank, starting at <tt>1</tt>
+         * @param path {@link GraphPath}, the path
+         */
+        void pathFound(int rank, GraphPath path);
+    }
+
+    /**
+     * Orders candidates by distance, then length, then edge sequence, so
+     * two candidates compare equal only if they are the same path.
+     */
+    private static final Comparator<Candidate> CANDIDATE_ORDER = new Comparator<Candidate>() {
+        @Override
+        public int compare(Candidate c1, Candidate c2) {
+            GraphPath p1 = c1.path;
+            GraphPath p2 = c2.path;
+            if (p1.getDistance() != p2.getDistance()) {
+                return p1.getDistance() < p2.getDistance() ? -1 : 1;
+            }
+            if (p1.getLength() != p2.getLength()) {
+                return p1.getLength() < p2.getLength() ? -1 : 1;
+            }
+            for (int i = 0; i < p1.getLength(); i++) {
+                int e1 = p1.edgeAt(i);
+                int e2 = p2.edgeAt(i);
+                if (e1 != e2) {
+                    return e1 < e2 ? -1 : 1;
+                }
+            }
+            return 0;
+        }
+    };
+
+    /**
+     * Holds the edges and directions the search follows.
+     */
+    private final TraversalMode mode;
+
+    /**
+     * Constructs an undirected KShortestPaths.
+     */
+    public KShortestPaths() {
+        this(TraversalMode.UNDIRECTED);
+    }
+
+    /**
+     * Constructs the KShortestPaths.
+     *
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     */
+    public KShortestPaths(TraversalMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode is null");
+        }
+        this.mode = mode;
+    }
+
+    /**
+     * Find up to <tt>k</tt> shortest loopless paths from <tt>source</tt> to
+     * <tt>target</tt>, streaming each to <tt>listener</tt>.
+     *
+     * @param graph {@link KamGraph}, the graph to search
+     * @param source <tt>int</tt>, the source node index
+     * @param target <tt>int</tt>, the target node index
+     * @param k <tt>int</tt>, the number of paths wanted
+     * @param listener {@link PathListener}, receives each path
+     * @return <tt>int</tt>, the number of paths found
+     */
+    public int search(KamGraph graph, int source, int target, int k,
+            PathListener listener) {
+        return search(graph, source, target, k, listener,
+                SearchBudget.unlimited());
+    }
+
+    /**
+     * Find up to <tt>k</tt> shortest loopless paths from <tt>source</tt> to
+     * <tt>target</tt> within <tt>budget</tt>, streaming each to
+     * <tt>listener</tt>.
+     *
+     * <p>
+     * Under a hop limit only paths within it are generated: the first path
+     * is the shortest within the limit, and a spur from the <tt>i</tt>th
+     * node of a path takes at most <tt>maxHops - i</tt> hops, searched over
+     * <tt>(node, hops)</tt> labels as {@link HopLimitedSearch} does.  The
+     * tree into the target is always computed in full; the budget bounds
+     * the searches that follow.  If the budget runs out the paths reported
+     * so far stand and {@link SearchBudget#getExhausted()} gives the reason.
+     * </p>
+     *
+     * @param graph {@link KamGraph}, the graph to search
+     * @param source <tt>int</tt>, the source node index
+     * @param target <tt>int</tt>, the target node index
+     * @param k <tt>int</tt>, the number of paths wanted
+     * @param listener {@link PathListener}, receives each path
+     * @param budget {@link SearchBudget}, the query limits
+     * @return <tt>int</tt>, the number of paths found
+     */
+    public int search(KamGraph graph, int source, int target, int k,
+            PathListener listener, SearchBudget budget) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be >= 1");
+        }
+
+        ShortestPathTree toTarget = ShortestPathTree.compute(graph, target,
+                mode, true);
+        if (toTarget.distance(source) == ShortestPathTree.UNREACHABLE
+                || budget.check() != null) {
+            return 0;
+        }
+
+        GraphPath path = treePath(graph, toTarget, source);
+        if (path.getLength() > budget.maxHops) {
+            path = HopLimitedSearch.search(graph, mode, source, target,
+                    budget).getPath();
+            if (path == null || budget.getExhausted() != null) {
+                return 0;
+            }
+        }
+
+        List<GraphPath> found = new ArrayList<GraphPath>();
+        TreeSet<Candidate> candidates = new TreeSet<Candidate>(CANDIDATE_ORDER);
+        SpurSearch spur = new SpurSearch(graph, mode, toTarget, target,
+                budget.limitsHops());
+
+        int deviation = 0;
+        int reported = 0;
+        while (true) {
+            found.add(path);
+            listener.pathFound(++reported, path);
+            if (reported == k) {
+                break;
+            }
+            int wanted = k - reported;
+
+            int rootDistance = 0;
+            for (int i = 0; i < deviation; i++) {
+                rootDistance += graph.weight(path.edgeAt(i));
+            }
+            for (int i = deviation; i < path.getLength(); i++) {
+                int spurNode = path.nodeAt(i);
+                int spurHops = budget.maxHops == Integer.MAX_VALUE
+                        ? Integer.MAX_VALUE : budget.maxHops - i;
+
+                // the unblocked distance is a lower bound for this spur
+                if (candidates.size() >= wanted
+                        && rootDistance + toTarget.distance(spurNode)
+                                >= candidates.last().path.getDistance()) {
+                    rootDistance += graph.weight(path.edgeAt(i));
+                    continue;
+                }
+
+                spur.reset();
+                for (int j = 0; j < i; j++) {
+                    spur.blockNode(path.nodeAt(j));
+                }
+                for (GraphPath previous : found) {
+                    if (previous.getLength() > i && sharesRoot(previous, path, i)) {
+                        spur.blockEdge(previous.edgeAt(i));
+                    }
+                }
+
+                GraphPath spurPath = spur.search(spurNode, spurHops, budget);
+                if (budget.getExhausted() != null) {
+                    return reported;
+                }
+                if (spurPath != null) {
+                    Candidate candidate = new Candidate(join(graph, path, i,
+                            rootDistance, spurPath), i);
+                    candidates.add(candidate);
+                    while (candidates.size() > wanted) {
+                        candidates.pollLast();
+                    }
+                }
+                rootDistance += graph.weight(path.edgeAt(i));
+            }
+
+            if (candidates.isEmpty()) {
+                break;
+            }
+            Candidate next = candidates.pollFirst();
+            path = next.path;
+            deviation = next.deviation;
+        }
+        return reported;
+    }
+
+    /**
+     * Follow the target-rooted tree from <tt>source</tt> to the target.
+     * Undirected trees are symmetric, so this works for out-trees too.
+     */
+    private static GraphPath treePath(KamGraph graph, ShortestPathTree tree,
+            int source) {
+        int length = 0;
+        for (int node = source; tree.predecessor(node) != -1; length++) {
+            node = graph.opposite(tree.predecessor(node), node);
+        }
+        int[] nodes = new int[length + 1];
+        int[] edges = new int[length];
+        int node = source;
+        nodes[0] = source;
+        for (int i = 0; i < length; i++) {
+            edges[i] = tree.predecessor(node);
+            node = graph.opposite(edges[i], node);
+            nodes[i + 1] = node;
+        }
+        return new GraphPath(nodes, edges, tree.distance(source));
+    }
+
+    /**
+     * Returns <tt>true</tt> if the first <tt>length</tt> edges of both paths
+     * are equal.
+     */
+    private static boolean sharesRoot(GraphPath p1, GraphPath p2, int length) {
+        for (int i = 0; i < length; i++) {
+            if (p1.edgeAt(i) != p2.edgeAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Join the first <tt>length</tt> edges of <tt>root</tt> with
+     * <tt>spur</tt>.
+     */
+    private static GraphPath join(KamGraph graph, GraphPath root, int length,
+            int rootDistance, GraphPath spur) {
+        int[] nodes = new int[length + spur.getLength() + 1];
+        int[] edges = new int[length + spur.getLength()];
+        for (int i = 0; i < length; i++) {
+            nodes[i] = root.nodeAt(i);
+            edges[i] = root.edgeAt(i);
+        }
+        for (int i = 0; i <= spur.getLength(); i++) {
+            nodes[length + i] = spur.nodeAt(i);
+            if (i < spur.getLength()) {
+                edges[length + i] = spur.edgeAt(i);
+            }
+        }
+        return new GraphPath(nodes, edges, rootDistance + spur.getDistance());
+    }
+
+    /**
+     * Candidate is a path waiting in the candidate set along with the index
+     * it deviated from its parent path at.
+     */
+    private static final class Candidate {
+        private final GraphPath path;
+        private final int deviation;
+
+        private Candidate(GraphPath path, int deviation) {
+            this.path = path;
+            this.deviation = deviation;
+        }
+    }
+
+    /**
+     * SpurSearch is an A* search to the target over the graph minus blocked
+     * nodes and edges.  Its arrays are reused across spurs; a stamp marks
+     * which entries belong to the current spur so nothing is cleared.
+     *
+     * <p>
+     * A spur with a hop limit searches <tt>(node, hops)</tt> labels instead,
+     * keeping at each node only labels with fewer hops than those settled
+     * there.  The distance heuristic is consistent, so labels at one node
+     * settle in distance order and the first label of the target settled
+     * is the shortest spur within its hops.  Labels that cannot reach the
+     * target within the limit, by the unblocked hop count to it, are never
+     * queued.
+     * </p>
+     */
+    private static final class SpurSearch {
+        private final KamGraph graph;
+        private final int mask;
+        private final boolean directed;
+        private final ShortestPathTree toTarget;
+        private final int target;
+        private final int[] nodeStamps;
+        private final int[] edgeStamps;
+        private final int[] visitStamps;
+        private final int[] distances;
+        private final int[] predecessors;
+        private final PackedMinHeap unsettled = new PackedMinHeap(256);
+        private int stamp;
+
+        // hop-limited spurs only
+        private final int[] hopsToTarget;
+        private final int[] settledHops;
+        private final HopLimitedSearch.Labels labels;
+
+        private SpurSearch(KamGraph graph, TraversalMode mode,
+                ShortestPathTree toTarget, int target, boolean limitsHops) {
+            this.graph = graph;
+            this.mask = mode.mask;
+            this.directed = mode.directed;
+            this.toTarget = toTarget;
+            this.target = target;
+            nodeStamps = new int[graph.nodeCount()];
+            edgeStamps = new int[graph.edgeCount()];
+            visitStamps = new int[graph.nodeCount()];
+            distances = new int[graph.nodeCount()];
+            predecessors = new int[graph.nodeCount()];
+            if (limitsHops) {
+                hopsToTarget = hopsTo(graph, mode, target);
+                settledHops = new int[graph.nodeCount()];
+                labels = new HopLimitedSearch.Labels();
+            } else {
+                hopsToTarget = null;
+                settledHops = null;
+                labels = null;
+            }
+        }
+
+        /**
+         * Returns the fewest hops from every node to <tt>target</tt> over
+         * the edges <tt>mode</tt> follows, {@link Integer#MAX_VALUE} if it
+         * cannot be reached.
+         */
+        private static int[] hopsTo(KamGraph graph, TraversalMode mode,
+                int target) {
+            int[] hops = new int[graph.nodeCount()];
+            Arrays.fill(hops, Integer.MAX_VALUE);
+            int[] queue = new int[graph.nodeCount()];
+            int head = 0;
+            int tail = 0;
+            hops[target] = 0;
+            queue[tail++] = target;
+            while (head < tail) {
+                int node = queue[head++];
+                // walk edges backwards, from the node to those reaching it
+                tail = visit(graph, mode, graph.reverseOffsets,
+                        graph.reverseEdges, graph.reverseNeighbors, node, hops,
+                        queue, tail);
+                if (!mode.directed) {
+                    tail = visit(graph, mode, graph.forwardOffsets,
+                            graph.forwardEdges, graph.forwardNeighbors, node,
+                            hops, queue, tail);
+                }
+            }
+            return hops;
+        }
+
+        private static int visit(KamGraph graph, TraversalMode mode,
+                int[] offsets, int[] adjEdges, int[] neighbors, int node,
+                int[] hops, int[] queue, int tail) {
+            for (int i = offsets[node], end = offsets[node + 1]; i < end; i++) {
+                int next = neighbors[i];
+                if ((graph.edgeFlags[adjEdges[i]] & mode.mask) != 0
+                        && hops[next] == Integer.MAX_VALUE) {
+                    hops[next] = hops[node] + 1;
+                    queue[tail++] = next;
+                }
+            }
+            return tail;
+        }
+
+        private void reset() {
+            stamp++;
+            unsettled.clear();
+        }
+
+        private void blockNode(int node) {
+            nodeStamps[node] = stamp;
+        }
+
+        private void blockEdge(int edge) {
+            edgeStamps[edge] = stamp;
+        }
+
+        private GraphPath search(int origin, int maxHops,
+                SearchBudget budget) {
+            if (maxHops != Integer.MAX_VALUE) {
+                return searchLabels(origin, maxHops, budget);
+            }
+            visitStamps[origin] = stamp;
+            distances[origin] = 0;
+            predecessors[origin] = -1;
+            unsettled.push(toTarget.distance(origin), origin);
+
+            while (!unsettled.isEmpty()) {
+                long minimum = unsettled.poll();
+                int node = PackedMinHeap.node(minimum);
+                int dref = distances[node];
+                if (PackedMinHeap.priority(minimum)
+                        != dref + toTarget.distance(node)) {
+                    continue;
+                }
+                if (node == target) {
+                    return trace(origin);
+                }
+                if (budget.settle() != null) {
+                    return null;
+                }
+                for (int i = graph.forwardOffsets[node],
+                        end = graph.forwardOffsets[node + 1]; i < end; i++) {
+                    relax(graph.forwardEdges[i], graph.forwardNeighbors[i],
+                            dref);
+                }
+                if (directed) {
+                    continue;
+                }
+                for (int i = graph.reverseOffsets[node],
+                        end = graph.reverseOffsets[node + 1]; i < end; i++) {
+                    relax(graph.reverseEdges[i], graph.reverseNeighbors[i],
+                            dref);
+                }
+            }
+            return null;
+        }
+
+        private void relax(int edge, int node, int dref) {
+            if ((graph.edgeFlags[edge] & mask) == 0
+                    || edgeStamps[edge] == stamp || nodeStamps[node] == stamp) {
+                return;
+            }
+            int bound = toTarget.distance(node);
+            if (bound == ShortestPathTree.UNREACHABLE) {
+                return;
+            }
+            int dnew = dref + graph.edgeWeights[edge];
+            if (visitStamps[node] != stamp || dnew < distances[node]) {
+                visitStamps[node] = stamp;
+                distances[node] = dnew;
+                predecessors[node] = edge;
+                unsettled.push(dnew + bound, node);
+            }
+        }
+
+        /**
+         * The hop-limited spur search, over <tt>(node, hops)</tt> labels.
+         * {@link #visitStamps} marks the nodes with a settled label, and
+         * {@link #settledHops} the fewest hops settled there.
+         */
+        private GraphPath searchLabels(int origin, int maxHops,
+                SearchBudget budget) {
+            if (hopsToTarget[origin] > maxHops) {
+                return null;
+            }
+            labels.clear();
+            unsettled.push(toTarget.distance(origin),
+                    labels.add(origin, -1, -1, 0, 0));
+
+            while (!unsettled.isEmpty()) {
+                int label = PackedMinHeap.node(unsettled.poll());
+                int node = labels.nodes[label];
+                int hops = labels.hops[label];
+                if (visitStamps[node] == stamp && hops >= settledHops[node]) {
+                    continue;
+                }
+                visitStamps[node] = stamp;
+                settledHops[node] = hops;
+                if (node == target) {
+                    return labels.trace(graph, label);
+                }
+                if (budget.settle() != null) {
+                    return null;
+                }
+                int dref = labels.distances[label];
+                for (int i = graph.forwardOffsets[node],
+                        end = graph.forwardOffsets[node + 1]; i < end; i++) {
+                    relaxLabel(label, graph.forwardEdges[i],
+                            graph.forwardNeighbors[i], dref, hops + 1, maxHops);
+                }
+                if (directed) {
+                    continue;
+                }
+                for (int i = graph.reverseOffsets[node],
+                        end = graph.reverseOffsets[node + 1]; i < end; i++) {
+                    relaxLabel(label, graph.reverseEdges[i],
+                            graph.reverseNeighbors[i], dref, hops + 1, maxHops);
+                }
+            }
+            return null;
+        }
+
+        private void relaxLabel(int parent, int edge, int node, int dref,
+                int hops, int maxHops) {
+            if ((graph.edgeFlags[edge] & mask) == 0
+                    || edgeStamps[edge] == stamp || nodeStamps[node] == stamp
+                    || hopsToTarget[node] > maxHops - hops
+                    || (visitStamps[node] == stamp && hops >= settledHops[node])) {
+                return;
+            }
+            int dnew = dref + graph.edgeWeights[edge];
+            unsettled.push(dnew + toTarget.distance(node),
+                    labels.add(node, edge, parent, hops, dnew));
+        }
+
+        private GraphPath trace(int origin) {
+            int length = 0;
+            for (int node = target; node != origin; length++) {
+                node = graph.opposite(predecessors[node], node);
+            }
+            int[] nodes = new int[length + 1];
+            int[] edges = new int[length];
+            int node = target;
+            nodes[length] = target;
+            for (int i = length - 1; i >= 0; i--) {
+                edges[i] = predecessors[node];
+                node = graph.opposite(edges[i], node);
+                nodes[i] = node;
+            }
+            return new GraphPath(nodes, edges, distances[target]);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.selventa.belframework.api.examples;
+
+import static com.selventa.belframework.common.enums.BELFrameworkVersion.VERSION_LABEL;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+
+import com.selventa.belframework.api.KamStore;
+import com.selventa.belframework.api.KamStoreImpl;
+import com.selventa.belframework.common.cfg.SystemConfiguration;
+import com.selventa.belframework.df.DBConnection;
+import com.selventa.belframework.df.DatabaseService;
+import com.selventa.belframework.df.DatabaseServiceImpl;
+import com.selventa.belframework.kamstore.model.Kam;
+import com.selventa.belframework.kamstore.model.Kam.KamNode;
+import com.selventa.belframework.kamstore.model.KamStoreException;
+
+/**
+ * KamCentrality ranks the nodes of a {@link Kam} by betweenness centrality
+ * and reports their closeness, using {@link BrandesCentrality} over the
+ * {@link PathFinder} edge weights.
+ *
+ * <p>
+ * Results are written as one tab-separated line per node, highest
+ * betweenness first.  With a sample size or error target the scores are
+ * estimated from a random sample of sources and the error bound is written
+ * to the file header.
+ * </p>
+ */
+public class KamCentrality {
+
+    /**
+     * Holds the name of the KAM to rank.
+     */
+    private final String kamName;
+
+    /**
+     * Holds the output file to write scores to.
+     */
+    private final String outputFile;
+
+    /**
+     * Holds the edges and directions to follow.
+     */
+    private final TraversalMode mode;
+
+    /**
+     * Holds the number of worker threads.
+     */
+    private final int threads;
+
+    /**
+     * Holds the number of sampled sources, or <tt>0</tt> for exact scores.
+     */
+    private final int samples;
+
+    /**
+     * Holds the additive error target, or <tt>0</tt> if <tt>samples</tt> is
+     * used as given.
+     */
+    private final double epsilon;
+
+    /**
+     * Holds the confidence of the error bound.
+     */
+    private final double confidence;
+
+    /**
+     * Holds the sampling random seed.
+     */
+    private final long seed;
+
+    /**
+     * Constructs the KamCentrality.
+     *
+     * @param kamName {@link String}, the kam name
+     * @param outputFile {@link String}, the scores file
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param threads <tt>int</tt>, the number of worker threads
+     * @param samples <tt>int</tt>, the number of sampled sources, or
+     * <tt>0</tt>
+     * @param epsilon <tt>double</tt>, the additive error target for
+     * normalized betweenness, or <tt>0</tt>; overrides <tt>samples</tt>
+     * @param confidence <tt>double</tt>, the confidence of the error bound
+     * @param seed <tt>long</tt>, the sampling random seed
+     */
+    public KamCentrality(String kamName, String outputFile,
+            TraversalMode mode, int threads, int samples, double epsilon,
+            double confidence, long seed) {
+        if (kamName == null || outputFile == null || mode == null) {
+            throw new IllegalArgumentException("input(s) were null.");
+        }
+        if (threads < 1 || samples < 0 || epsilon < 0 || confidence <= 0
+                || confidence >= 1) {
+            throw new IllegalArgumentException("invalid centrality settings.");
+        }
+        this.kamName = kamName;
+        this.outputFile = outputFile;
+        this.mode = mode;
+        this.threads = threads;
+        this.samples = samples;
+        this.epsilon = epsilon;
+        this.confidence = confidence;
+        this.seed = seed;
+    }
+
+    /**
+     * Load the kam, compute the scores, and write them to the output file.
+     *
+     * @throws IOException Thrown if the system configuration could not be
+     * read or the output file could not be written
+     * @throws SQLException Thrown if a SQL error occurred working with the
+     * kam
+     * @throws KamStoreException Thrown if the kam could not be loaded
+     */
+    public void run() throws IOException, SQLException, KamStoreException {
+        SystemConfiguration.createSystemConfiguration(null);
+        SystemConfiguration config = SystemConfiguration.getSystemConfiguration();
+
+        // Setup a database connector to the KAM Store.
+        DatabaseService dbService = new DatabaseServiceImpl();
+        DBConnection dbc = dbService.dbConnection(
+                config.getKamURL(),
+                config.getKamUser(),
+                config.getKamPassword());
+        KamStore kamStore = new KamStoreImpl(dbc);
+
+        System.out.println("Loading kam " + kamName + "...");
+        Kam kam = kamStore.getKam(kamName);
+        KamGraph graph = KamGraph.snapshot(kam);
+        kamStore.close(kam);
+        dbc.getConnection().close();
+
+        BrandesCentrality centrality = new BrandesCentrality(threads);
+        int sources = epsilon > 0
+                ? BrandesCentrality.samplesFor(graph.nodeCount(), epsilon, confidence)
+                : samples;
+        CentralityScores scores;
+        if (sources > 0 && sources < graph.nodeCount()) {
+            System.out.println("Estimating centrality from " + sources
+                    + " of " + graph.nodeCount() + " nodes on " + threads
+                    + " threads...");
+            scores = centrality.sample(graph, mode, sources, seed);
+        } else {
+            System.out.println("Calculating centrality from all "
+                    + graph.nodeCount() + " nodes on " + threads
+                    + " threads...");
+            scores = centrality.compute(graph, mode);
+        }
+
+        PrintWriter writer = new PrintWriter(new File(outputFile));
+        try {
+            write(graph, scores, confidence, writer);
+        } finally {
+            writer.close();
+        }
+        System.out.println("\nCentrality saved to file: "
+                + new File(outputFile).getAbsolutePath());
+    }
+
+    /**
+     * Write one line per node, highest betweenness first.
+     *
+     * @param graph {@link KamGraph}, the graph the scores were computed over
+     * @param scores {@link CentralityScores}, the scores
+     * @param confidence <tt>double</tt>, the confidence of the reported
+     * error bound
+     * @param writer {@link PrintWriter}, the output writer
+     */
+    static void write(KamGraph graph, CentralityScores scores,
+            double confidence, PrintWriter writer) {
+        if (!scores.isExact()) {
+            writer.println("#sampled " + scores.getSamples() + " of "
+                    + scores.nodeCount() + " sources; normalized betweenness"
+                    + " within " + scores.errorBound(confidence) + " at "
+                    + confidence + " confidence");
+        }
+        writer.println("#node\tbetweenness\tnormalized betweenness\tcloseness\tlabel");
+        for (int v : scores.rankByBetweenness()) {
+            KamNode node = graph.node(v);
+            writer.println(node.getId() + "\t" + scores.betweenness(v) + "\t"
+                    + scores.normalizedBetweenness(v) + "\t"
+                    + scores.closeness(v) + "\t" + node.getLabel());
+        }
+    }
+
+    /**
+     * Ranks a kam by centrality with the command-line arguments provided in
+     * <tt>args</tt>.
+     *
+     * @param args <tt>String[]</tt>, the main command-line arguments
+     */
+    public static void main(String[] args) {
+        final StringBuilder bldr = new StringBuilder();
+        bldr.append("\n");
+        bldr.append(VERSION_LABEL).append(": KAM Centrality\n");
+        bldr.append("Copyright (c) 2011-2012, Selventa. All Rights Reserved.\n");
+        bldr.append("\n");
+        System.out.println(bldr.toString());
+
+        String kamName = null;
+        String outputFile = null;
+        TraversalMode mode = TraversalMode.UNDIRECTED;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int samples = 0;
+        double epsilon = 0;
+        double confidence = 0.95;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                printUsageThenExit();
+            }
+            if ((i + 1) >= args.length) {
+                printUsageThenExit();
+            }
+            String value = args[++i];
+            try {
+                if (arg.equals("-k") || arg.equals("--kam-name")) {
+                    kamName = value;
+                } else if (arg.equals("-o") || arg.equals("--output-file")) {
+                    outputFile = value;
+                } else if (arg.equals("-m") || arg.equals("--mode")) {
+                    mode = TraversalMode.forName(value);
+                } else if (arg.equals("--threads")) {
+                    threads = Integer.parseInt(value);
+                } else if (arg.equals("--samples")) {
+                    samples = Integer.parseInt(value);
+                } else if (arg.equals("--epsilon")) {
+                    epsilon = Double.parseDouble(value);
+                } else if (arg.equals("--confidence")) {
+                    confidence = Double.parseDouble(value);
+                } else if (arg.equals("--seed")) {
+                    seed = Long.parseLong(value);
+                } else {
+                    printUsageThenExit();
+                }
+            } catch (NumberFormatException e) {
+                printUsageThenExit();
+            }
+        }
+        if (kamName == null || mode == null || threads < 1 || samples < 0
+                || epsilon < 0 || confidence <= 0 || confidence >= 1) {
+            printUsageThenExit();
+        }
+        if (outputFile == null) {
+            outputFile = "centrality_" + kamName + ".tsv";
+        }
+
+        try {
+            new KamCentrality(kamName, outputFile, mode, threads, samples,
+                    epsilon, confidence, seed).run();
+        } catch (Exception e) {
+            System.out.println("Error ranking KAM - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Print the KamCentrality command-line arguments and exit the JVM.
+     */
+    private static void printUsageThenExit() {
+        System.out.println(
+                "Usage:\n" +
+                "  -k KAM,  --kam-name KAM     The kam to rank.\n" +
+                "  -o FILE, --output-file FILE The file to save scores to\n" +
+                "                              (default centrality_<kam>.tsv).\n" +
+                "  -m MODE, --mode MODE        The edges to follow; undirected (default),\n" +
+                "                              directed, or causal.\n" +
+                "  --threads N                 The number of worker threads (default cores).\n" +
+                "\n" +
+                "Sampling, for very large kams (default exact):\n" +
+                "  --samples N                 Estimate from N random source nodes.\n" +
+                "  --epsilon E                 Estimate from enough source nodes for every\n" +
+                "                              normalized betweenness to be within E.\n" +
+                "  --confidence C              The confidence of the error bound\n" +
+                "                              (default 0.95).\n" +
+                "  --seed S                    The sampling random seed (default 1).");
+        System.exit(1);
+    }
+}
@@ -1,5 +1,6 @@
 package com.selventa.belframework.api.examples;
 
+import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
@@ -29,9 +30,6 @@ import com.selventa.belframework.kamstore.model.filter.RelationshipTypeFilterCri
  */
 public class KamFilterExample {
 
-	private static final String HUMAN_TAX_ID = "9606";
-	private static final String MOUSE_TAX_ID = "10090";
-	private static final String RAT_TAX_ID = "10116";
 	private static final String SPECIES_ANNOTATION_TYPE_NAME = "Species";
 
 	/**
@@ -41,15 +39,45 @@ public class KamFilterExample {
 	private KamStore kamStore;
 	private DBConnection dbConnection;
 
+	/**
+	 * Holds the species the species filters are built from
+	 */
+	private final SpeciesRegistry speciesRegistry;
+
 	/**
 	 * Constructs the KamFilterExample
 	 */
 	public KamFilterExample() {
+		this(SpeciesRegistry.defaults());
+	}
 
+	/**
+	 * Constructs the KamFilterExample with the species of
+	 * <tt>speciesRegistry</tt>, which must hold at least one.
+	 * 
+	 * @param speciesRegistry
+	 */
+	public KamFilterExample(SpeciesRegistry speciesRegistry) {
+		if (speciesRegistry == null) {
+			throw new IllegalArgumentException("speciesRegistry was null.");
+		}
+		if (speciesRegistry.size() == 0) {
+			throw new IllegalArgumentException("speciesRegistry has no species.");
+		}
+		this.speciesRegistry = speciesRegistry;
 	}
 
 	public static void main(String[] args) throws Exception {
-		KamFilterExample app = new KamFilterExample();
+		SpeciesRegistry speciesRegistry = SpeciesRegistry.defaults();
+		if (args.length == 2 && (args[0].equals("-s") || args[0].equals("--species"))) {
+			speciesRegistry = SpeciesRegistry.load(new File(args[1]));
+		} else if (args.length != 0) {
+			System.out.println("Usage:\n" + "  -s FILE, --species FILE       The species to filter by, as name=taxId lines\n"
+					+ "                                (default Human, Mouse and Rat)\n");
+			System.exit(1);
+		}
+
+		KamFilterExample app = new KamFilterExample(speciesRegistry);
 		app.run();
 	}
 
@@ -139,6 +167,25 @@ public class KamFilterExample {
 		return annoType;
 	}
 
+	/**
+	 * Returns the lower-case names of species <tt>from</tt> to <tt>to</tt>
+	 * (exclusive) of the registry, joined by " or "
+	 * 
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	private String speciesNames(int from, int to) {
+		StringBuilder names = new StringBuilder();
+		for (int i = from; i < to; i++) {
+			if (i > from) {
+				names.append(" or ");
+			}
+			names.append(speciesRegistry.name(i).toLowerCase());
+		}
+		return names.toString();
+	}
+
 	public void run() throws Exception {
 
 		// set up the KAM store by supplying database information
@@ -168,34 +215,41 @@ public class KamFilterExample {
 		Kam causalKam = kamStore.getKam(kam.getKamInfo(), relFilter);
 		printKamInformation(causalKam);
 
-		//filter the kam so it only includes human or mouse specific knowledge
-		System.out.println("The same KAM with only human- or mouse-specific knowledge:");
+		// include the first two species of the registry (human and mouse by
+		// default) and exclude the last (rat)
+		int included = Math.min(2, speciesRegistry.size());
+		String includedNames = speciesNames(0, included);
+		String excludedName = speciesNames(speciesRegistry.size() - 1, speciesRegistry.size());
+
+		//filter the kam so it only includes knowledge specific to the included species
+		System.out.println("The same KAM with only " + includedNames + "-specific knowledge:");
 		KamFilter speciesIncludeFilter = kam.getKamInfo().createKamFilter();
-		AnnotationFilterCriteria humanMouseIncludeCriteria = new AnnotationFilterCriteria(getAnnotationType(kam, SPECIES_ANNOTATION_TYPE_NAME));
-		humanMouseIncludeCriteria.add(HUMAN_TAX_ID);
-		humanMouseIncludeCriteria.add(MOUSE_TAX_ID);
-		humanMouseIncludeCriteria.setInclude(true);
-		speciesIncludeFilter.add(humanMouseIncludeCriteria);
+		AnnotationFilterCriteria speciesIncludeCriteria = new AnnotationFilterCriteria(getAnnotationType(kam, SPECIES_ANNOTATION_TYPE_NAME));
+		for (int i = 0; i < included; i++) {
+			speciesIncludeCriteria.add(speciesRegistry.taxId(i));
+		}
+		speciesIncludeCriteria.setInclude(true);
+		speciesIncludeFilter.add(speciesIncludeCriteria);
 		Kam speciesIncludeKam = kamStore.getKam(kam.getKamInfo(), speciesIncludeFilter);
 		printKamInformation(speciesIncludeKam);
 		
-		//filter the kam so it includes everything but Rat specific knowledge
-		System.out.println("The same KAM with rat-specific knowledge excluded:");
+		//filter the kam so it includes everything but knowledge specific to the excluded species
+		System.out.println("The same KAM with " + excludedName + "-specific knowledge excluded:");
 		KamFilter speciesExcludeFilter = kam.getKamInfo().createKamFilter();
-		AnnotationFilterCriteria ratExcludeCriteria = new AnnotationFilterCriteria(getAnnotationType(kam, SPECIES_ANNOTATION_TYPE_NAME));
-		ratExcludeCriteria.add(RAT_TAX_ID);
-		ratExcludeCriteria.setInclude(false);
-		speciesExcludeFilter.add(ratExcludeCriteria);
+		AnnotationFilterCriteria speciesExcludeCriteria = new AnnotationFilterCriteria(getAnnotationType(kam, SPECIES_ANNOTATION_TYPE_NAME));
+		speciesExcludeCriteria.add(speciesRegistry.taxId(speciesRegistry.size() - 1));
+		speciesExcludeCriteria.setInclude(false);
+		speciesExcludeFilter.add(speciesExcludeCriteria);
 		Kam speciesExcludeKam = kamStore.getKam(kam.getKamInfo(), speciesExcludeFilter);
 		printKamInformation(speciesExcludeKam);
 
-		//filter the kam so it only includes human or mouse specific knowledge, and only include causal relationships
-		System.out.println("The same KAM with only human- or mouse-specific knowledge, and with only causal relationships:");
-		KamFilter casualHumanMouseFilter = kam.getKamInfo().createKamFilter();
-		casualHumanMouseFilter.add(causalRelationshipCriteria);
-		casualHumanMouseFilter.add(humanMouseIncludeCriteria);
-		Kam causalHumanMouseKam = kamStore.getKam(kam.getKamInfo(), casualHumanMouseFilter);
-		printKamInformation(causalHumanMouseKam);
+		//filter the kam so it only includes knowledge specific to the included species, and only include causal relationships
+		System.out.println("The same KAM with only " + includedNames + "-specific knowledge, and with only causal relationships:");
+		KamFilter causalSpeciesFilter = kam.getKamInfo().createKamFilter();
+		causalSpeciesFilter.add(causalRelationshipCriteria);
+		causalSpeciesFilter.add(speciesIncludeCriteria);
+		Kam causalSpeciesKam = kamStore.getKam(kam.getKamInfo(), causalSpeciesFilter);
+		printKamInformation(causalSpeciesKam);
 		
 		//filter the kam so knowledge from PubMed 12959952 and PubMed 14657031 are excluded
 		System.out.println("The same KAM with  knowledge from PubMed 12959952 and PubMed 14657031 are excluded:");
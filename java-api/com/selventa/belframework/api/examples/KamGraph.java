@@ -0,0 +1,363 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+import com.selventa.belframework.common.enums.RelationshipType;
+import com.selventa.belframework.kamstore.data.jdbc.KAMCatalogDao.KamInfo;
+import com.selventa.belframework.kamstore.model.Kam;
+import com.selventa.belframework.kamstore.model.Kam.KamEdge;
+import com.selventa.belframework.kamstore.model.Kam.KamNode;
+
+/**
+ * KamGraph is an immutable, compressed sparse row (CSR) snapshot of a
+ * {@link Kam}'s topology.
+ *
+ * <p>
+ * {@link KamNode} and {@link KamEdge} ids are mapped to dense <tt>int</tt>
+ * indices, in ascending id order, so indices are the same in every snapshot
+ * of a kam as compiled.  Forward / reverse adjacency is stored in flat
+ * primitive arrays together with per-edge weight and relationship flag
+ * bytes.  Path finding over the snapshot does not allocate per visited node
+ * or edge and never calls back into the {@link Kam}.
+ * </p>
+ *
+ * <p>
+ * The arrays are package-visible so the path engines in this package can
+ * walk them in tight loops.  They must be treated as read-only; a single
+ * snapshot is safe to share across threads.
+ * </p>
+ */
+public final class KamGraph {
+
+    /**
+     * Edge flag set on every edge.
+     */
+    static final int TRAVERSABLE = 1;
+
+    /**
+     * Edge flag set on edges with a causal relationship type.
+     */
+    static final int CAUSAL = 2;
+
+    /**
+     * Edge flag set on edges with a direct relationship type.
+     */
+    static final int DIRECT = 4;
+
+    /**
+     * Orders kam edges by id.
+     */
+    private static final Comparator<KamEdge> EDGE_ID_ORDER = new Comparator<KamEdge>() {
+        @Override
+        public int compare(KamEdge e1, KamEdge e2) {
+            return e1.getId().compareTo(e2.getId());
+        }
+    };
+
+    /**
+     * Holds the kam info of the snapshotted {@link Kam}.
+     */
+    private final KamInfo kamInfo;
+
+    /**
+     * Holds the kam nodes, indexed by dense node index.
+     */
+    private final KamNode[] nodes;
+
+    /**
+     * Holds the kam node ids in ascending order, indexed by dense node index.
+     */
+    final int[] nodeIds;
+
+    /**
+     * Holds the kam edges, indexed by dense edge index.
+     */
+    private final KamEdge[] edges;
+
+    /**
+     * Holds the source node index of each edge.
+     */
+    final int[] edgeSources;
+
+    /**
+     * Holds the target node index of each edge.
+     */
+    final int[] edgeTargets;
+
+    /**
+     * Holds the weight of each edge, see {@link PathFinder#weight(KamEdge)}.
+     */
+    final byte[] edgeWeights;
+
+    /**
+     * Holds the relationship flags of each edge, see {@link TraversalMode}.
+     */
+    final byte[] edgeFlags;
+
+    /**
+     * Holds the largest edge weight in the graph.
+     */
+    private final int maxWeight;
+
+    /**
+     * Holds the offsets into {@link #forwardEdges} for each node; the
+     * outgoing edges of node <tt>n</tt> are at
+     * <tt>[forwardOffsets[n], forwardOffsets[n + 1])</tt>.
+     */
+    final int[] forwardOffsets;
+
+    /**
+     * Holds the outgoing edge indices grouped by source node.
+     */
+    final int[] forwardEdges;
+
+    /**
+     * Holds the target node index of each entry in {@link #forwardEdges}.
+     */
+    final int[] forwardNeighbors;
+
+    /**
+     * Holds the offsets into {@link #reverseEdges} for each node.
+     */
+    final int[] reverseOffsets;
+
+    /**
+     * Holds the incoming edge indices grouped by target node.
+     */
+    final int[] reverseEdges;
+
+    /**
+     * Holds the source node index of each entry in {@link #reverseEdges}.
+     */
+    final int[] reverseNeighbors;
+
+    private KamGraph(KamInfo kamInfo, KamNode[] nodes, int[] nodeIds,
+            KamEdge[] edges, int[] edgeSources, int[] edgeTargets,
+            byte[] edgeWeights, byte[] edgeFlags) {
+        this.kamInfo = kamInfo;
+        this.nodes = nodes;
+        this.nodeIds = nodeIds;
+        this.edges = edges;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.edgeWeights = edgeWeights;
+        this.edgeFlags = edgeFlags;
+
+        int max = 0;
+        for (byte weight : edgeWeights) {
+            max = Math.max(max, weight);
+        }
+        this.maxWeight = max;
+
+        final int n = nodes.length;
+        final int m = edges.length;
+
+        this.forwardOffsets = new int[n + 1];
+        this.forwardEdges = new int[m];
+        this.forwardNeighbors = new int[m];
+        fill(edgeSources, edgeTargets, forwardOffsets, forwardEdges,
+                forwardNeighbors);
+
+        this.reverseOffsets = new int[n + 1];
+        this.reverseEdges = new int[m];
+        this.reverseNeighbors = new int[m];
+        fill(edgeTargets, edgeSources, reverseOffsets, reverseEdges,
+                reverseNeighbors);
+    }
+
+    /**
+     * Builds a CSR snapshot of <tt>kam</tt>.  The {@link Kam} is read once;
+     * the returned graph does not reference its adjacency structures.
+     *
+     * @param kam {@link Kam}, the kam to snapshot
+     * @return {@link KamGraph}, the snapshot
+     */
+    public static KamGraph snapshot(Kam kam) {
+        if (kam == null) {
+            throw new IllegalArgumentException("kam is null");
+        }
+
+        Collection<KamNode> kamNodes = kam.getNodes();
+        KamNode[] nodes = kamNodes.toArray(new KamNode[kamNodes.size()]);
+
+        // order nodes by id so id -> index is a binary search
+        int[] ids = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            ids[i] = nodes[i].getId();
+        }
+        Arrays.sort(ids);
+        KamNode[] sorted = new KamNode[nodes.length];
+        for (KamNode node : nodes) {
+            sorted[Arrays.binarySearch(ids, node.getId())] = node;
+        }
+
+        // order edges by id so edge indices are stable across snapshots
+        Collection<KamEdge> kamEdges = kam.getEdges();
+        KamEdge[] edges = kamEdges.toArray(new KamEdge[kamEdges.size()]);
+        Arrays.sort(edges, EDGE_ID_ORDER);
+        int[] sources = new int[edges.length];
+        int[] targets = new int[edges.length];
+        byte[] weights = new byte[edges.length];
+        byte[] flags = new byte[edges.length];
+        for (int e = 0; e < edges.length; e++) {
+            KamEdge edge = edges[e];
+            sources[e] = Arrays.binarySearch(ids, edge.getSourceNode().getId());
+            targets[e] = Arrays.binarySearch(ids, edge.getTargetNode().getId());
+            if (sources[e] < 0 || targets[e] < 0) {
+                throw new IllegalStateException("edge " + edge.getId()
+                        + " references a node missing from the kam");
+            }
+            weights[e] = (byte) PathFinder.weight(edge);
+            flags[e] = (byte) flags(edge.getRelationshipType());
+        }
+
+        return new KamGraph(kam.getKamInfo(), sorted, ids, edges, sources,
+                targets, weights, flags);
+    }
+
+    /**
+     * Returns the edge flags of relationship type <tt>rel</tt>.
+     */
+    private static int flags(RelationshipType rel) {
+        int flags = TRAVERSABLE;
+        if (rel.isCausal()) {
+            flags |= CAUSAL;
+        }
+        if (rel.isDirect()) {
+            flags |= DIRECT;
+        }
+        return flags;
+    }
+
+    /**
+     * Counting-sort the edges into CSR form keyed by <tt>from</tt>.
+     */
+    private static void fill(int[] from, int[] to, int[] offsets,
+            int[] adjEdges, int[] adjNeighbors) {
+        for (int e = 0; e < from.length; e++) {
+            offsets[from[e] + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] cursor = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int e = 0; e < from.length; e++) {
+            int slot = cursor[from[e]]++;
+            adjEdges[slot] = e;
+            adjNeighbors[slot] = to[e];
+        }
+    }
+
+    /**
+     * Returns the kam info of the snapshotted {@link Kam}.
+     *
+     * @return {@link KamInfo}
+     */
+    public KamInfo getKamInfo() {
+        return kamInfo;
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return <tt>int</tt>
+     */
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return <tt>int</tt>
+     */
+    public int edgeCount() {
+        return edges.length;
+    }
+
+    /**
+     * Returns the dense index of the {@link KamNode} with id <tt>nodeId</tt>.
+     *
+     * @param nodeId <tt>int</tt>, the kam node id
+     * @return <tt>int</tt>, the node index or <tt>-1</tt> if the node is not
+     * part of this graph
+     */
+    public int indexOf(int nodeId) {
+        int i = Arrays.binarySearch(nodeIds, nodeId);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * Returns the {@link KamNode} at dense index <tt>index</tt>.
+     *
+     * @param index <tt>int</tt>, the node index
+     * @return {@link KamNode}
+     */
+    public KamNode node(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Returns the {@link KamEdge} at dense index <tt>index</tt>.
+     *
+     * @param index <tt>int</tt>, the edge index
+     * @return {@link KamEdge}
+     */
+    public KamEdge edge(int index) {
+        return edges[index];
+    }
+
+    /**
+     * Returns the source node index of edge <tt>edge</tt>.
+     *
+     * @param edge <tt>int</tt>, the edge index
+     * @return <tt>int</tt>, the node index
+     */
+    public int source(int edge) {
+        return edgeSources[edge];
+    }
+
+    /**
+     * Returns the target node index of edge <tt>edge</tt>.
+     *
+     * @param edge <tt>int</tt>, the edge index
+     * @return <tt>int</tt>, the node index
+     */
+    public int target(int edge) {
+        return edgeTargets[edge];
+    }
+
+    /**
+     * Returns the endpoint of <tt>edge</tt> that is not <tt>node</tt>.
+     *
+     * @param edge <tt>int</tt>, the edge index
+     * @param node <tt>int</tt>, one endpoint of the edge
+     * @return <tt>int</tt>, the other endpoint
+     */
+    public int opposite(int edge, int node) {
+        int source = edgeSources[edge];
+        return source == node ? edgeTargets[edge] : source;
+    }
+
+    /**
+     * Returns the weight of edge <tt>edge</tt>.
+     *
+     * @param edge <tt>int</tt>, the edge index
+     * @return <tt>int</tt>, the edge weight
+     */
+    public int weight(int edge) {
+        return edgeWeights[edge];
+    }
+
+    /**
+     * Returns the largest edge weight in the graph, <tt>0</tt> if the graph
+     * has no edges.
+     *
+     * @return <tt>int</tt>
+     */
+    public int maxWeight() {
+        return maxWeight;
+    }
+}
@@ -0,0 +1,38 @@
+package com.selventa.belframework.api.examples;
+
+import com.selventa.belframework.kamstore.model.Kam.KamEdge;
+import com.selventa.belframework.kamstore.model.Kam.KamNode;
+import com.selventa.belframework.kamstore.model.KamStoreException;
+
+/**
+ * KamMetric accumulates one or more {@link KamSummary} metrics while a
+ * {@link KamMetricEngine} sweeps the nodes and edges of a network.
+ *
+ * Every node and every edge is visited exactly once per sweep, so a metric
+ * must keep whatever state it needs between visits instead of walking the
+ * collections itself.
+ */
+public interface KamMetric {
+
+	/**
+	 * Visit one node of the network.
+	 *
+	 * @param node
+	 */
+	void visitNode(KamNode node);
+
+	/**
+	 * Visit one edge of the network.
+	 *
+	 * @param edge
+	 * @throws KamStoreException
+	 */
+	void visitEdge(KamEdge edge) throws KamStoreException;
+
+	/**
+	 * Write the accumulated metrics to the summary, once the sweep is done.
+	 *
+	 * @param summary
+	 */
+	void report(KamSummary summary);
+}
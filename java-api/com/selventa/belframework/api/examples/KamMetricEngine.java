@@ -0,0 +1,184 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.selventa.belframework.kamstore.model.Kam.KamEdge;
+import com.selventa.belframework.kamstore.model.Kam.KamNode;
+import com.selventa.belframework.kamstore.model.KamStoreException;
+
+/**
+ * KamMetricEngine computes every registered {@link KamMetric} in a single
+ * sweep over the nodes and a single sweep over the edges of a network.
+ *
+ * New metrics are added by registering another accumulator, not by adding
+ * another loop over the KAM.
+ *
+ * Given a thread pool, and if every registered metric is a
+ * {@link MergeableKamMetric}, the nodes and edges are split into chunks that
+ * are swept in parallel into partial metrics. The partials are merged in
+ * chunk order, so the result is the same as a sequential sweep.
+ */
+public class KamMetricEngine {
+
+	/**
+	 * Smallest number of nodes or edges worth a chunk of their own
+	 */
+	private static final int MIN_CHUNK_SIZE = 4096;
+
+	private final ExecutorService pool;
+	private final int parallelism;
+	private final List<KamMetric> metrics = new ArrayList<KamMetric>();
+
+	/**
+	 * Constructs a sequential engine.
+	 */
+	public KamMetricEngine() {
+		this(null, 1);
+	}
+
+	/**
+	 * Constructs an engine sweeping chunks on <tt>pool</tt>.
+	 *
+	 * @param pool
+	 *            the pool to sweep chunks on, or null to sweep sequentially
+	 * @param parallelism
+	 *            the number of pool threads to split the work between
+	 */
+	public KamMetricEngine(ExecutorService pool, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be >= 1");
+		}
+		this.pool = pool;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Register a metric to be computed by the next sweep.
+	 *
+	 * @param metric
+	 * @return this engine
+	 */
+	public KamMetricEngine register(KamMetric metric) {
+		if (metric == null) {
+			throw new IllegalArgumentException("metric was null.");
+		}
+		metrics.add(metric);
+		return this;
+	}
+
+	/**
+	 * Visit every node, then every edge, with all registered metrics.
+	 *
+	 * @param nodes
+	 * @param edges
+	 * @throws KamStoreException
+	 */
+	public void sweep(Collection<KamNode> nodes, Collection<KamEdge> edges) throws KamStoreException {
+		final KamMetric[] registered = metrics.toArray(new KamMetric[metrics.size()]);
+		int chunks = chunks(nodes.size()) + chunks(edges.size());
+		if (pool == null || chunks < 2 || !mergeable(registered)) {
+			sweep(registered, nodes, edges);
+			return;
+		}
+
+		final KamNode[] nodeArray = nodes.toArray(new KamNode[nodes.size()]);
+		final KamEdge[] edgeArray = edges.toArray(new KamEdge[edges.size()]);
+		List<Future<MergeableKamMetric[]>> futures = new ArrayList<Future<MergeableKamMetric[]>>(chunks);
+		submitChunks(futures, registered, nodeArray, true);
+		submitChunks(futures, registered, edgeArray, false);
+
+		try {
+			for (Future<MergeableKamMetric[]> future : futures) {
+				MergeableKamMetric[] partials = future.get();
+				for (int i = 0; i < registered.length; i++) {
+					((MergeableKamMetric) registered[i]).merge(partials[i]);
+				}
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof KamStoreException) {
+				throw (KamStoreException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			for (Future<MergeableKamMetric[]> future : futures) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted computing metrics");
+		}
+	}
+
+	/**
+	 * Write the metrics of all registered accumulators to the summary.
+	 *
+	 * @param summary
+	 */
+	public void report(KamSummary summary) {
+		for (KamMetric metric : metrics) {
+			metric.report(summary);
+		}
+	}
+
+	private static void sweep(KamMetric[] registered, Collection<KamNode> nodes, Collection<KamEdge> edges) throws KamStoreException {
+		for (KamNode node : nodes) {
+			for (KamMetric metric : registered) {
+				metric.visitNode(node);
+			}
+		}
+		for (KamEdge edge : edges) {
+			for (KamMetric metric : registered) {
+				metric.visitEdge(edge);
+			}
+		}
+	}
+
+	private static boolean mergeable(KamMetric[] registered) {
+		for (KamMetric metric : registered) {
+			if (!(metric instanceof MergeableKamMetric)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int chunks(int size) {
+		return Math.min(parallelism, (size + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+	}
+
+	private void submitChunks(List<Future<MergeableKamMetric[]>> futures, final KamMetric[] registered, final Object[] elements,
+			final boolean nodes) {
+		final int chunks = chunks(elements.length);
+		for (int c = 0; c < chunks; c++) {
+			final int from = (int) ((long) elements.length * c / chunks);
+			final int to = (int) ((long) elements.length * (c + 1) / chunks);
+			futures.add(pool.submit(new Callable<MergeableKamMetric[]>() {
+				@Override
+				public MergeableKamMetric[] call() throws KamStoreException {
+					MergeableKamMetric[] partials = new MergeableKamMetric[registered.length];
+					for (int i = 0; i < registered.length; i++) {
+						partials[i] = ((MergeableKamMetric) registered[i]).newPartial();
+					}
+					for (int i = from; i < to; i++) {
+						for (MergeableKamMetric partial : partials) {
+							if (nodes) {
+								partial.visitNode((KamNode) elements[i]);
+							} else {
+								partial.visitEdge((KamEdge) elements[i]);
+							}
+						}
+					}
+					return partials;
+				}
+			}));
+		}
+	}
+}
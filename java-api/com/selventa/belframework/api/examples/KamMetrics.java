@@ -0,0 +1,166 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.selventa.belframework.common.enums.FunctionEnum;
+import com.selventa.belframework.common.enums.RelationshipType;
+import com.selventa.belframework.kamstore.model.Kam.KamEdge;
+import com.selventa.belframework.kamstore.model.Kam.KamNode;
+
+/**
+ * KamMetrics holds the {@link KamMetric} accumulators behind the
+ * {@link KamSummarizer} network summaries, alongside
+ * {@link CausalFanoutIndex}.
+ */
+public final class KamMetrics {
+
+	private KamMetrics() {
+
+	}
+
+	/**
+	 * returns true if the edge has one of the 4 causal relationship types.
+	 *
+	 * @param edge
+	 * @return
+	 */
+	public static boolean isCausal(KamEdge edge) {
+		RelationshipType type = edge.getRelationshipType();
+		return type == RelationshipType.INCREASES || type == RelationshipType.DIRECTLY_INCREASES || type == RelationshipType.DECREASES
+				|| type == RelationshipType.DIRECTLY_DECREASES;
+	}
+
+	/**
+	 * Counts rnaAbundance nodes, protein nodes with a phosphorylation
+	 * modification, and unique gene references, exactly or estimated by a
+	 * {@link HyperLogLog} sketch.
+	 */
+	public static class NodeFunctionCounts implements MergeableKamMetric {
+
+		private final NodeFeatureIndex features;
+		private int rnaAbundances;
+		private int phosphoProteins;
+		private final Set<String> geneReferences;
+		private final HyperLogLog geneReferenceSketch;
+
+		/**
+		 * @param features
+		 *            the parsed term features of the KAM nodes
+		 */
+		public NodeFunctionCounts(NodeFeatureIndex features) {
+			this(features, false);
+		}
+
+		/**
+		 * @param features
+		 *            the parsed term features of the KAM nodes
+		 * @param approximate
+		 *            true to estimate unique gene references in constant
+		 *            memory
+		 */
+		public NodeFunctionCounts(NodeFeatureIndex features, boolean approximate) {
+			if (features == null) {
+				throw new IllegalArgumentException("features was null.");
+			}
+			this.features = features;
+			this.geneReferences = approximate ? null : new HashSet<String>();
+			this.geneReferenceSketch = approximate ? new HyperLogLog() : null;
+		}
+
+		@Override
+		public void visitNode(KamNode node) {
+			if (node.getFunctionType() == FunctionEnum.RNA_ABUNDANCE) {
+				rnaAbundances++;
+			} else if (node.getFunctionType() == FunctionEnum.PROTEIN_ABUNDANCE) {
+				int packed = features.features(node);
+				if ((packed & NodeFeatureIndex.PHOSPHORYLATED) != 0) {
+					phosphoProteins++;
+				}
+				// a protein abundance of a single term references a gene
+				if ((packed & NodeFeatureIndex.SIMPLE) != 0) {
+					if (geneReferenceSketch != null) {
+						geneReferenceSketch.offer(node.getLabel());
+					} else {
+						geneReferences.add(node.getLabel());
+					}
+				}
+			}
+		}
+
+		@Override
+		public void visitEdge(KamEdge edge) {
+
+		}
+
+		@Override
+		public MergeableKamMetric newPartial() {
+			return new NodeFunctionCounts(features, geneReferenceSketch != null);
+		}
+
+		@Override
+		public void merge(MergeableKamMetric partial) {
+			NodeFunctionCounts counts = (NodeFunctionCounts) partial;
+			rnaAbundances += counts.rnaAbundances;
+			phosphoProteins += counts.phosphoProteins;
+			if (geneReferenceSketch != null) {
+				geneReferenceSketch.merge(counts.geneReferenceSketch);
+			} else {
+				geneReferences.addAll(counts.geneReferences);
+			}
+		}
+
+		@Override
+		public void report(KamSummary summary) {
+			summary.setNumOfRnaAbundanceNodes(rnaAbundances);
+			summary.setNumOfPhosphoProteinNodes(phosphoProteins);
+			if (geneReferenceSketch != null) {
+				summary.setNumOfUniqueGeneReferences((int) geneReferenceSketch.estimate());
+			} else {
+				summary.setNumOfUniqueGeneReferences(geneReferences.size());
+			}
+		}
+	}
+
+	/**
+	 * Counts increases and decreases edges, direct or not.
+	 */
+	public static class CausalEdgeCounts implements MergeableKamMetric {
+
+		private int increases;
+		private int decreases;
+
+		@Override
+		public void visitNode(KamNode node) {
+
+		}
+
+		@Override
+		public void visitEdge(KamEdge edge) {
+			RelationshipType type = edge.getRelationshipType();
+			if (type == RelationshipType.INCREASES || type == RelationshipType.DIRECTLY_INCREASES) {
+				increases++;
+			} else if (type == RelationshipType.DECREASES || type == RelationshipType.DIRECTLY_DECREASES) {
+				decreases++;
+			}
+		}
+
+		@Override
+		public MergeableKamMetric newPartial() {
+			return new CausalEdgeCounts();
+		}
+
+		@Override
+		public void merge(MergeableKamMetric partial) {
+			CausalEdgeCounts counts = (CausalEdgeCounts) partial;
+			increases += counts.increases;
+			decreases += counts.decreases;
+		}
+
+		@Override
+		public void report(KamSummary summary) {
+			summary.setNumOfIncreaseEdges(increases);
+			summary.setNumOfDecreaseEdges(decreases);
+		}
+	}
+}
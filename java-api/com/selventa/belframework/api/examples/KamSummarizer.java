@@ -2,26 +2,30 @@ package com.selventa.belframework.api.examples;
 
 import static com.selventa.belframework.common.enums.BELFrameworkVersion.VERSION_LABEL;
 
+import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
-import org.apache.commons.lang.StringUtils;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.selventa.belframework.api.KamStore;
 import com.selventa.belframework.api.KamStoreImpl;
 import com.selventa.belframework.common.InvalidArgument;
 import com.selventa.belframework.common.cfg.SystemConfiguration;
-import com.selventa.belframework.common.enums.FunctionEnum;
-import com.selventa.belframework.common.enums.RelationshipType;
 import com.selventa.belframework.df.DBConnection;
 import com.selventa.belframework.df.DatabaseService;
 import com.selventa.belframework.df.DatabaseServiceImpl;
@@ -39,10 +43,6 @@ import com.selventa.belframework.kamstore.model.KamStoreException;
  */
 public class KamSummarizer {
 
-	private static final String HUMAN_TAX_ID = "9606";
-	private static final String MOUSE_TAX_ID = "10090";
-	private static final String RAT_TAX_ID = "10116";
-
 	/**
 	 * Holds a reference to the system configuration
 	 */
@@ -50,6 +50,38 @@ public class KamSummarizer {
 	private KamStore kamStore;
 	private DBConnection dbConnection;
 
+	/**
+	 * Number of threads metrics are computed on
+	 */
+	private int threads = 1;
+	private ExecutorService metricPool;
+
+	/**
+	 * RNA fan-out that makes a transcriptional control a hypothesis
+	 */
+	private int hypothesisThreshold = CausalFanoutIndex.DEFAULT_HYPOTHESIS_THRESHOLD;
+
+	/**
+	 * Cache of computed summaries, or null to always summarize
+	 */
+	private KamSummaryCache summaryCache;
+
+	/**
+	 * Species summarized individually
+	 */
+	private SpeciesRegistry speciesRegistry = SpeciesRegistry.defaults();
+
+	/**
+	 * Number of edges whose evidence is sampled in approximate mode, or 0 to
+	 * summarize exactly
+	 */
+	private int sampleSize;
+
+	/**
+	 * Seed of the edge sample, fixed so approximate summaries repeat
+	 */
+	private static final long SAMPLE_SEED = 0x4b414d53L;
+
 	/**
 	 * Constructs the KamSummarizer
 	 */
@@ -57,6 +89,79 @@ public class KamSummarizer {
 
 	}
 
+	/**
+	 * Sets the number of threads to compute metrics on; 1 computes them on
+	 * the calling thread.
+	 * 
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be >= 1");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the number of causal edges to rnaAbundance() nodes that makes a
+	 * transcriptional control a hypothesis.
+	 * 
+	 * @param hypothesisThreshold
+	 */
+	public void setHypothesisThreshold(int hypothesisThreshold) {
+		if (hypothesisThreshold < 1) {
+			throw new IllegalArgumentException("hypothesisThreshold must be >= 1");
+		}
+		this.hypothesisThreshold = hypothesisThreshold;
+	}
+
+	/**
+	 * Sets the species to summarize individually.
+	 * 
+	 * @param speciesRegistry
+	 */
+	public void setSpeciesRegistry(SpeciesRegistry speciesRegistry) {
+		if (speciesRegistry == null) {
+			throw new IllegalArgumentException("speciesRegistry was null.");
+		}
+		this.speciesRegistry = speciesRegistry;
+	}
+
+	/**
+	 * Sets approximate mode: species statement counts and sub-networks are
+	 * estimated from the evidence of <tt>sampleSize</tt> uniformly sampled
+	 * edges, and unique counts from sketches; 0 summarizes exactly.
+	 * 
+	 * @param sampleSize
+	 */
+	public void setApproximate(int sampleSize) {
+		if (sampleSize < 0) {
+			throw new IllegalArgumentException("sampleSize must be >= 0");
+		}
+		this.sampleSize = sampleSize;
+	}
+
+	/**
+	 * returns the settings that change summary metrics, as recorded with
+	 * cached summaries.
+	 * 
+	 * @return
+	 */
+	protected String getSummarySettings() {
+		String settings = "hypothesisThreshold=" + hypothesisThreshold + ";species=" + speciesRegistry;
+		return sampleSize > 0 ? settings + ";sample=" + sampleSize : settings;
+	}
+
+	/**
+	 * Sets the cache to read summaries of unchanged KAMs from and to save new
+	 * summaries to; null to always summarize.
+	 * 
+	 * @param summaryCache
+	 */
+	public void setSummaryCache(KamSummaryCache summaryCache) {
+		this.summaryCache = summaryCache;
+	}
+
 	/**
 	 * Reads the system configuration from the default location
 	 * 
@@ -76,6 +181,15 @@ public class KamSummarizer {
 	 */
 	protected void setUpKamStore() throws SQLException, IOException {
 		setUpSystemConfiguration();
+		connectKamStore();
+	}
+
+	/**
+	 * Connects to the KAM store of the system configuration already read.
+	 * 
+	 * @throws SQLException
+	 */
+	protected void connectKamStore() throws SQLException {
 		// Setup a database connector to the KAM Store.
 		DatabaseService dbService = new DatabaseServiceImpl();
 		dbConnection = dbService.dbConnection(systemConfiguration.getKamURL(), systemConfiguration.getKamUser(), systemConfiguration.getKamPassword());
@@ -108,264 +222,314 @@ public class KamSummarizer {
 		try {
 			Kam kam;
 			if (kamName != null) {
-				// Look up the requested KAM and summarize.
-				kam = kamStore.getKam(kamName);
-				KamSummary summary = summarizeKam(kam);
+				// Reuse the cached summary if the KAM has not been recompiled
+				KamSummary summary = null;
+				if (summaryCache != null) {
+					KamInfo kamInfo = kamStore.getKamInfo(kamName);
+					if (kamInfo != null) {
+						summary = summaryCache.get(kamInfo, getSummarySettings());
+					}
+				}
+
+				if (summary == null) {
+					if (threads > 1) {
+						metricPool = Executors.newFixedThreadPool(threads);
+					}
+					// Look up the requested KAM and summarize.
+					kam = kamStore.getKam(kamName);
+					summary = summarizeKam(kam);
+					cacheSummary(kam.getKamInfo(), summary);
+				}
 				printKamSummary(summary);
 			}
 		} catch (InvalidArgument e) {
 			System.out.println(e.getMessage());
+		} finally {
+			if (metricPool != null) {
+				metricPool.shutdown();
+				metricPool = null;
+			}
 		}
 		tearDownKamStore();
 	}
 
 	/**
-	 * returns the number of rnaAbundance nodes.
+	 * Summarizes every KAM in the catalog on <tt>workers</tt> threads, each
+	 * with its own connection to the KAM store, then prints one report.
 	 * 
-	 * @param nodes
-	 * @return
-	 */
-	protected int getNumRnaNodes(Collection<KamNode> nodes) {
-		int count = 0;
-		for (KamNode node : nodes) {
-			if (node.getFunctionType() == FunctionEnum.RNA_ABUNDANCE) {
-				count++;
-			}
-		}
-		return count;
-	}
-
-	/**
-	 * return number of protein with phosphorylation modification
+	 * At most <tt>maxResident</tt> KAMs are loaded at any time; a worker
+	 * waits for a permit before loading a KAM and returns it once the KAM is
+	 * summarized and closed. Cached summaries of unchanged KAMs are used
+	 * without loading them.
 	 * 
-	 * @param nodes
-	 * @return
+	 * @param workers
+	 * @param maxResident
+	 * @throws IOException
+	 * @throws SQLException
+	 * @throws KamStoreException
 	 */
-	protected int getPhosphoProteinNodes(Collection<KamNode> nodes) {
-		int count = 0;
-		for (KamNode node : nodes) {
-			if (node.getFunctionType() == FunctionEnum.PROTEIN_ABUNDANCE && node.getLabel().indexOf("modification(P") > -1) {
-				count++;
-			}
+	public void runAll(int workers, int maxResident) throws IOException, SQLException, KamStoreException {
+		if (workers < 1 || maxResident < 1) {
+			throw new IllegalArgumentException("invalid catalog settings.");
 		}
-		return count;
-	}
 
-	/**
-	 * returns number unique gene reference
-	 * 
-	 * @param edges
-	 * @return
-	 */
-	protected int getUniqueGeneReference(Collection<KamNode> nodes) {
-		// count all protienAbundance reference
-		Set<String> uniqueLabels = new HashSet<String>();
-		for (KamNode node : nodes) {
-			if (node.getFunctionType() == FunctionEnum.PROTEIN_ABUNDANCE && StringUtils.countMatches(node.getLabel(), "(") == 1
-					&& StringUtils.countMatches(node.getLabel(), ")") == 1) {
-				uniqueLabels.add(node.getLabel());
-			}
+		// read the catalog, then leave the connections to the workers
+		setUpKamStore();
+		final List<KamInfo> kamInfos;
+		try {
+			kamInfos = kamStore.readCatalog();
+		} finally {
+			tearDownKamStore();
 		}
 
-		return uniqueLabels.size();
-	}
+		final KamSummary[] summaries = new KamSummary[kamInfos.size()];
+		final String[] errors = new String[kamInfos.size()];
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicInteger done = new AtomicInteger();
+		final Semaphore resident = new Semaphore(maxResident, true);
+		final int poolSize = Math.max(1, Math.min(workers, kamInfos.size()));
 
-	/**
-	 * returns number of inceases and directly_increases edges.
-	 * 
-	 * @param edges
-	 * @return
-	 */
-	protected int getIncreasesEdges(Collection<KamEdge> edges) {
-		int count = 0;
-		for (KamEdge edge : edges) {
-			if (edge.getRelationshipType() == RelationshipType.INCREASES || edge.getRelationshipType() == RelationshipType.DIRECTLY_INCREASES) {
-				count++;
+		// the workers share one pool to compute metrics on
+		final ExecutorService metrics = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>(poolSize);
+			for (int w = 0; w < poolSize; w++) {
+				futures.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						KamSummarizer worker = new KamSummarizer();
+						worker.systemConfiguration = systemConfiguration;
+						worker.summaryCache = summaryCache;
+						worker.hypothesisThreshold = hypothesisThreshold;
+						worker.speciesRegistry = speciesRegistry;
+						worker.sampleSize = sampleSize;
+						worker.threads = threads;
+						worker.metricPool = metrics;
+						worker.connectKamStore();
+						try {
+							for (int i = next.getAndIncrement(); i < summaries.length; i = next.getAndIncrement()) {
+								KamInfo kamInfo = kamInfos.get(i);
+								try {
+									summaries[i] = worker.summarizeCatalogKam(kamInfo, resident);
+								} catch (InvalidArgument e) {
+									errors[i] = e.getMessage();
+								} catch (KamStoreException e) {
+									errors[i] = e.getMessage();
+								} catch (IOException e) {
+									errors[i] = e.getMessage();
+								} catch (RuntimeException e) {
+									// one bad KAM does not abort the catalog
+									errors[i] = e.toString();
+								}
+								System.out.println(String.format("Summarized %s (%d of %d)", kamInfo.getName(), done.incrementAndGet(), summaries.length));
+							}
+						} finally {
+							try {
+								worker.tearDownKamStore();
+							} catch (SQLException e) {
+								// the summaries are done, so only report it
+								System.err.println("Warning: could not close a KAM store connection: " + e.getMessage());
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SQLException) {
+				throw (SQLException) e.getCause();
+			}
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted summarizing catalog");
+		} finally {
+			pool.shutdownNow();
+			if (metrics != null) {
+				metrics.shutdown();
 			}
 		}
-		return count;
+
+		printCatalogReport(kamInfos, summaries, errors);
 	}
 
 	/**
-	 * returns number of deceases and directly_decreases edges.
+	 * Summarizes one catalog KAM, from the cache if it is unchanged, holding
+	 * a <tt>resident</tt> permit while the KAM is loaded.
 	 * 
-	 * @param edges
+	 * @param kamInfo
+	 * @param resident
 	 * @return
+	 * @throws InvalidArgument
+	 * @throws KamStoreException
+	 * @throws IOException
+	 * @throws InterruptedException
 	 */
-	protected int getDecreasesEdges(Collection<KamEdge> edges) {
-		int count = 0;
-		for (KamEdge edge : edges) {
-			if (edge.getRelationshipType() == RelationshipType.DECREASES || edge.getRelationshipType() == RelationshipType.DIRECTLY_DECREASES) {
-				count++;
+	protected KamSummary summarizeCatalogKam(KamInfo kamInfo, Semaphore resident) throws InvalidArgument, KamStoreException, IOException,
+			InterruptedException {
+		if (summaryCache != null) {
+			KamSummary summary = summaryCache.get(kamInfo, getSummarySettings());
+			if (summary != null) {
+				return summary;
 			}
 		}
-		return count;
-	}
 
-	protected int getUpstreamCount(String label, Collection<KamEdge> edges) {
-		int count = 0;
-		for (KamEdge edge : edges) {
-			if (edge.getSourceNode().getLabel().equals(label) && isCausal(edge)) {
-				count++;
+		KamSummary summary;
+		resident.acquire();
+		try {
+			Kam kam = kamStore.getKam(kamInfo.getName());
+			try {
+				summary = summarizeKam(kam);
+			} finally {
+				kamStore.close(kam);
 			}
+		} finally {
+			resident.release();
 		}
-		return count;
+		cacheSummary(kamInfo, summary);
+		return summary;
 	}
 
 	/**
-	 * returns nodes with causal downstream to rnaAbundance() nodes.
+	 * Saves a summary to the cache, if any. The summary is already computed,
+	 * so a failed write only costs the next run a summarize; it is reported
+	 * and otherwise ignored.
 	 * 
-	 * @param edges
-	 * @return
+	 * @param kamInfo
+	 * @param summary
 	 */
-	protected Map<String, Integer> getTranscriptionalControls(Collection<KamEdge> edges) {
-		Map<String, Integer> controlCountMap = new HashMap<String, Integer>();
-		for (KamEdge edge : edges) {
-			if (edge.getTargetNode().getFunctionType() == FunctionEnum.RNA_ABUNDANCE && isCausal(edge)) {
-				if (controlCountMap.containsKey(edge.getSourceNode().getLabel())) {
-					int count = controlCountMap.get(edge.getSourceNode().getLabel());
-					count = count + 1;
-					controlCountMap.put(edge.getSourceNode().getLabel(), count);
-				} else {
-					controlCountMap.put(edge.getSourceNode().getLabel(), 1);
-				}
-			}
+	private void cacheSummary(KamInfo kamInfo, KamSummary summary) {
+		if (summaryCache == null) {
+			return;
 		}
-
-		return controlCountMap;
-	}
-
-	/**
-	 * returns nodes with 4+ causal downstream to rnaAbundance() nodes.
-	 * 
-	 * @param edges
-	 * @return
-	 */
-	protected Map<String, Integer> getHypotheses(Collection<KamEdge> edges) {
-		Map<String, Integer> controlCountMap = getTranscriptionalControls(edges);
-		Map<String, Integer> hypCountMap = new HashMap<String, Integer>();
-		for (String hyp : controlCountMap.keySet()) {
-			if (controlCountMap.get(hyp) >= 4) {
-				hypCountMap.put(hyp, controlCountMap.get(hyp));
-			}
+		try {
+			summaryCache.put(kamInfo, getSummarySettings(), summary);
+		} catch (IOException e) {
+			System.err.println("Warning: could not cache the summary of " + kamInfo.getName() + ": " + e.getMessage());
 		}
-		return hypCountMap;
 	}
 
 	/**
-	 * returns true if the edge has one of the 4 causal relationship types.
+	 * Creates the engine computing the node and edge metrics of a network
+	 * summary in one sweep.
 	 * 
-	 * @param edge
+	 * @param features
+	 *            the parsed term features of the KAM nodes
+	 * @param averageUpstream
+	 *            true to also compute the average upstream nodes per
+	 *            hypothesis
 	 * @return
 	 */
-	protected boolean isCausal(KamEdge edge) {
-		return edge.getRelationshipType() == RelationshipType.INCREASES || edge.getRelationshipType() == RelationshipType.DIRECTLY_INCREASES
-				|| edge.getRelationshipType() == RelationshipType.DECREASES || edge.getRelationshipType() == RelationshipType.DIRECTLY_DECREASES;
+	protected KamMetricEngine createMetricEngine(NodeFeatureIndex features, boolean averageUpstream) {
+		KamMetricEngine engine = new KamMetricEngine(metricPool, threads);
+		engine.register(new KamMetrics.NodeFunctionCounts(features, sampleSize > 0));
+		engine.register(new KamMetrics.CausalEdgeCounts());
+		engine.register(new CausalFanoutIndex(hypothesisThreshold, averageUpstream));
+		return engine;
 	}
 
 	protected KamSummary summarizeKam(Kam kam) throws InvalidArgument, KamStoreException {
 		KamSummary summary;
 		summary = new KamSummary();
+		Collection<KamNode> nodes = kam.getNodes();
+		Collection<KamEdge> edges = kam.getEdges();
 		summary.setKamInfo(kam.getKamInfo());
-		summary.setNumOfNodes(kam.getNodes().size());
-		summary.setNumOfEdges(kam.getEdges().size());
+		summary.setNumOfNodes(nodes.size());
+		summary.setNumOfEdges(edges.size());
 		summary.setNumOfBELDocuments(kamStore.getBelDocumentInfos(kam.getKamInfo()).size());
 		summary.setNumOfNamespaces(kamStore.getNamespaces(kam.getKamInfo()).size());
 		summary.setNumOfAnnotationTypes(kamStore.getAnnotationTypes(kam.getKamInfo()).size());
-		summary.setNumOfRnaAbundanceNodes(getNumRnaNodes(kam.getNodes()));
-		summary.setNumOfPhosphoProteinNodes(getPhosphoProteinNodes(kam.getNodes()));
-		summary.setNumOfUniqueGeneReferences(getUniqueGeneReference(kam.getNodes()));
-		summary.setNumOfIncreaseEdges(getIncreasesEdges(kam.getEdges()));
-		summary.setNumOfDecreaseEdges(getDecreasesEdges(kam.getEdges()));
-		summary.setNumOfTranscriptionalControls(getTranscriptionalControls(kam.getEdges()).size());
-		summary.setNumOfHypotheses(getHypotheses(kam.getEdges()).size());
-
-		for (KamEdge edge : kam.getEdges()) {
-			List<BelStatement> statements = kamStore.getSupportingEvidence(edge);
-			for (BelStatement statement : statements) {
-				List<Annotation> annotations = statement.getAnnotationList();
-				for (Annotation annotation : annotations) {
-					String species = null;
-					if (HUMAN_TAX_ID.equals(annotation.getValue())) {
-						species = "Human";
-					} else if (MOUSE_TAX_ID.equals(annotation.getValue())) {
-						species = "Mouse";
-					} else if (RAT_TAX_ID.equals(annotation.getValue())) {
-						species = "Rat";
-					}
-					if (species != null) {
-						addSpeciesCount(summary, species);
-					}
-				}
-			}
+
+		// parse the node labels once for the KAM and every sub-network
+		NodeFeatureIndex features = NodeFeatureIndex.build(nodes);
+		KamMetricEngine engine = createMetricEngine(features, false);
+		engine.sweep(nodes, edges);
+		engine.report(summary);
+
+		if (sampleSize > 0) {
+			summarizeSampledSpecies(summary, EdgeSample.draw(edges, sampleSize, SAMPLE_SEED));
+			return summary;
 		}
 
+		// read the supporting evidence of each edge once and classify it by
+		// species for the statement breakdown and every species sub-network
+		EdgeEvidenceIndex evidence = EdgeEvidenceIndex.load(kamStore, edges);
+		EdgeSpeciesIndex species = EdgeSpeciesIndex.build(evidence, speciesRegistry);
+		summary.getStatementBreakdownBySpeciesMap().putAll(species.getStatementBreakdown());
+
 		// breakdown human, mouse, rat and summary sub-network
-		summary.setFilteredKamSummaries(summarizeSpeciesSpecificEdges(kam));
+		summary.setFilteredKamSummaries(summarizeSpeciesSpecificEdges(species, features));
 
 		return summary;
 	}
 
-	private void addSpeciesCount(KamSummary summary, String species) {
-		if (summary.getStatementBreakdownBySpeciesMap() == null) {
-			summary.setStatementBreakdownBySpeciesMap(new HashMap<String, Integer>());
-		}
-		Integer count = summary.getStatementBreakdownBySpeciesMap().get(species);
-		if (count == null) {
-			count = 1;
-		} else {
-			count = count + 1;
-		}
-		summary.getStatementBreakdownBySpeciesMap().put(species, count);
-	}
+	/**
+	 * Estimate the statement breakdown and the species sub-networks from the
+	 * evidence of sampled edges only. Statement and edge counts are scaled
+	 * to the whole KAM with 95% confidence margins. Node counts are not
+	 * estimated; they are the exact number of nodes on the sampled species
+	 * edges, which falls short of the sub-network node count unless every
+	 * edge is sampled.
+	 * 
+	 * @param summary
+	 * @param sample
+	 * @throws KamStoreException
+	 */
+	protected void summarizeSampledSpecies(KamSummary summary, EdgeSample sample) throws KamStoreException {
+		EdgeEvidenceIndex evidence = EdgeEvidenceIndex.load(kamStore, sample.getEdges());
+		EdgeSpeciesIndex species = EdgeSpeciesIndex.build(evidence, speciesRegistry);
 
-	protected Collection<KamEdge> filterEdges(Kam kam, String speciesTaxId) throws KamStoreException {
-		Collection<KamEdge> filteredEdges = new ArrayList<KamEdge>();
-		for (KamEdge edge : kam.getEdges()) {
-			List<BelStatement> statements = kamStore.getSupportingEvidence(edge);
-			for (BelStatement statement : statements) {
-				List<Annotation> annotations = statement.getAnnotationList();
-				boolean isSpeciesAnnotated = false;
-				for (Annotation annotation : annotations) {
-					if (HUMAN_TAX_ID.equals(annotation.getValue()) || MOUSE_TAX_ID.equals(annotation.getValue()) || RAT_TAX_ID.equals(annotation.getValue())) {
-						isSpeciesAnnotated = true;
-					}
-					if (speciesTaxId.equals(annotation.getValue())) {
-						filteredEdges.add(edge);
-						break;
-					}
-				}
-				if (!isSpeciesAnnotated) {
-					// add all non species-specific edges
-					// filteredEdges.add(edge);
-				}
+		Map<String, Integer> margins = new TreeMap<String, Integer>();
+		Map<String, KamSummary> summaries = new LinkedHashMap<String, KamSummary>();
+		for (int i = 0; i < species.speciesCount(); i++) {
+			if (species.annotationCount(i) > 0) {
+				EdgeSample.Estimate statements = sample.estimate(species.annotationCount(i), species.annotationSumOfSquares(i));
+				summary.getStatementBreakdownBySpeciesMap().put(species.species(i), (int) Math.round(statements.getTotal()));
+				margins.put(species.species(i), (int) Math.ceil(statements.getMargin()));
+			}
+
+			List<KamEdge> speciesEdges = species.getEdges(i);
+			EdgeSample.Estimate edges = sample.estimate(speciesEdges.size(), speciesEdges.size());
+			Set<Integer> nodes = new HashSet<Integer>();
+			for (KamEdge edge : speciesEdges) {
+				nodes.add(edge.getSourceNode().getId());
+				nodes.add(edge.getTargetNode().getId());
 			}
+			KamSummary speciesSummary = new KamSummary();
+			speciesSummary.setApproximate(true);
+			speciesSummary.setNumOfNodes(nodes.size());
+			speciesSummary.setNumOfEdges((int) Math.round(edges.getTotal()));
+			speciesSummary.setNumOfEdgesMargin((int) Math.ceil(edges.getMargin()));
+			summaries.put(species.species(i) + " specific edges", speciesSummary);
 		}
-		return filteredEdges;
+		summary.setApproximate(true);
+		summary.setStatementBreakdownMarginBySpeciesMap(margins);
+		summary.setFilteredKamSummaries(summaries);
 	}
 
 	/**
 	 * Summarize human, mouse, and rat individually
 	 * 
-	 * @param kam
-	 * @param kamStore
+	 * @param species
+	 * @param features
 	 * @throws KamStoreException
 	 */
-	protected Map<String, KamSummary> summarizeSpeciesSpecificEdges(Kam kam) throws KamStoreException {
+	protected Map<String, KamSummary> summarizeSpeciesSpecificEdges(EdgeSpeciesIndex species, NodeFeatureIndex features) throws KamStoreException {
 		Map<String, KamSummary> summaries = new LinkedHashMap<String, KamSummary>();
-
-		Collection<KamEdge> humanEdges = filterEdges(kam, HUMAN_TAX_ID);
-		KamSummary humanSummary = summarizeKamNetwork(humanEdges);
-		summaries.put("Human specific edges", humanSummary);
-
-		Collection<KamEdge> mouseEdges = filterEdges(kam, MOUSE_TAX_ID);
-		KamSummary mouseSummary = summarizeKamNetwork(mouseEdges);
-		summaries.put("Mouse specific edges", mouseSummary);
-
-		Collection<KamEdge> ratEdges = filterEdges(kam, RAT_TAX_ID);
-		KamSummary ratSummary = summarizeKamNetwork(ratEdges);
-		summaries.put("Rat specific edges", ratSummary);
-
+		for (int i = 0; i < species.speciesCount(); i++) {
+			KamSummary speciesSummary = summarizeKamNetwork(species.getEdges(i), features);
+			summaries.put(species.species(i) + " specific edges", speciesSummary);
+		}
 		return summaries;
 	}
 
@@ -373,9 +537,11 @@ public class KamSummarizer {
 	 * Summarize nodes and edges
 	 * 
 	 * @param edges
+	 * @param features
 	 * @return
+	 * @throws KamStoreException
 	 */
-	protected KamSummary summarizeKamNetwork(Collection<KamEdge> edges) {
+	protected KamSummary summarizeKamNetwork(Collection<KamEdge> edges, NodeFeatureIndex features) throws KamStoreException {
 		KamSummary summary = new KamSummary();
 
 		Set<KamNode> nodes = new HashSet<KamNode>(); // unique set of nodes
@@ -385,20 +551,10 @@ public class KamSummarizer {
 		}
 		summary.setNumOfNodes(nodes.size());
 		summary.setNumOfEdges(edges.size());
-		summary.setNumOfRnaAbundanceNodes(getNumRnaNodes(nodes));
-		summary.setNumOfPhosphoProteinNodes(getPhosphoProteinNodes(nodes));
-		summary.setNumOfUniqueGeneReferences(getUniqueGeneReference(nodes));
-		summary.setNumOfIncreaseEdges(getIncreasesEdges(edges));
-		summary.setNumOfDecreaseEdges(getDecreasesEdges(edges));
-		summary.setNumOfTranscriptionalControls(getTranscriptionalControls(edges).size());
-		Map<String, Integer> hypCountMap = getHypotheses(edges);
-		summary.setNumOfHypotheses(hypCountMap.size());
-		// calculate average number of upstream nodes per hypothesis
-		int sumUpStreamNodes = 0;
-		for (String hyp : hypCountMap.keySet()) {
-			sumUpStreamNodes += getUpstreamCount(hyp, edges);
-		}
-		summary.setAverageHypothesisUpstreamNodes(((double) sumUpStreamNodes) / hypCountMap.size());
+
+		KamMetricEngine engine = createMetricEngine(features, true);
+		engine.sweep(nodes, edges);
+		engine.report(summary);
 
 		return summary;
 
@@ -416,6 +572,25 @@ public class KamSummarizer {
 		System.out.print("\n");
 	}
 
+	protected void printCatalogReport(List<KamInfo> kamInfos, KamSummary[] summaries, String[] errors) throws InvalidArgument, KamStoreException {
+		System.out.println("\n\nCatalog Summary:");
+		System.out.println("\tName\tNodes\tEdges\tHypotheses");
+		System.out.println("\t------\t-----\t-----\t----------");
+		for (int i = 0; i < summaries.length; i++) {
+			if (summaries[i] != null) {
+				System.out.println(String.format("\t%s\t%d\t%d\t%d", kamInfos.get(i).getName(), summaries[i].getNumOfNodes(), summaries[i].getNumOfEdges(),
+						summaries[i].getNumOfHypotheses()));
+			} else {
+				System.out.println(String.format("\t%s\tError - %s", kamInfos.get(i).getName(), errors[i]));
+			}
+		}
+		for (KamSummary summary : summaries) {
+			if (summary != null) {
+				printKamSummary(summary);
+			}
+		}
+	}
+
 	protected void printKamSummary(KamSummary summary) throws InvalidArgument, KamStoreException {
 
 		System.out.println(String.format("\n\nSummarizing KAM: %s", summary.getKamInfo().getName()));
@@ -426,8 +601,14 @@ public class KamSummarizer {
 		System.out.println(String.format("\tNum Namespaces:\t\t%d", summary.getNumOfNamespaces()));
 		System.out.println(String.format("\tNum Annotation Types:\t\t%d", summary.getNumOfAnnotationTypes()));
 		System.out.println();
+		Map<String, Integer> margins = summary.getStatementBreakdownMarginBySpeciesMap();
 		for (String species : summary.getStatementBreakdownBySpeciesMap().keySet()) {
-			System.out.println(String.format("\tNum Statements (%s):\t\t%d", species, summary.getStatementBreakdownBySpeciesMap().get(species)));
+			if (summary.isApproximate() && margins != null && margins.containsKey(species)) {
+				System.out.println(String.format("\tNum Statements (%s):\t\t~%d +/- %d (95%%)", species, summary.getStatementBreakdownBySpeciesMap().get(species),
+						margins.get(species)));
+			} else {
+				System.out.println(String.format("\tNum Statements (%s):\t\t%d", species, summary.getStatementBreakdownBySpeciesMap().get(species)));
+			}
 		}
 		System.out.println();
 		printNetworkSummary(summary);
@@ -442,10 +623,17 @@ public class KamSummarizer {
 	}
 
 	protected void printNetworkSummary(KamSummary summary) throws InvalidArgument, KamStoreException {
+		if (summary.isApproximate() && summary.getNumOfEdgesMargin() != null) {
+			// a sampled sub-network, only its edge count is estimated
+			System.out.println(String.format("\tNum Nodes (sampled edges):\t%d", summary.getNumOfNodes()));
+			System.out.println(String.format("\tNum Edges:\t~%d +/- %d (95%%)", summary.getNumOfEdges(), summary.getNumOfEdgesMargin()));
+			System.out.println();
+			return;
+		}
 		System.out.println(String.format("\tNum Nodes:\t%d", summary.getNumOfNodes()));
 		System.out.println(String.format("\tNum Edges:\t%d", summary.getNumOfEdges()));
 		System.out.println();
-		System.out.println(String.format("\tNum Unique Gene References:\t%d", summary.getNumOfUniqueGeneReferences()));
+		System.out.println(String.format("\tNum Unique Gene References:\t%s%d", summary.isApproximate() ? "~" : "", summary.getNumOfUniqueGeneReferences()));
 		System.out.println(String.format("\tNum RNA Abundances:\t\t%d", summary.getNumOfRnaAbundanceNodes()));
 		System.out.println(String.format("\tNum Phospho-Proteins:\t\t%d", summary.getNumOfPhosphoProteinNodes()));
 		System.out.println();
@@ -490,6 +678,14 @@ public class KamSummarizer {
 
 		String kamName = null;
 		boolean listCatalog = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String cacheDirectory = null;
+		String speciesFile = null;
+		boolean all = false;
+		int workers = Math.min(4, Runtime.getRuntime().availableProcessors());
+		int maxResident = -1;
+		int hypothesisThreshold = CausalFanoutIndex.DEFAULT_HYPOTHESIS_THRESHOLD;
+		int sampleSize = 0;
 		for (int i = 0; i < args.length; i++) {
 			String arg = args[i];
 
@@ -501,24 +697,91 @@ public class KamSummarizer {
 				} else {
 					printUsageThenExit();
 				}
+			} else if (arg.equals("-c") || arg.equals("--cache-dir")) {
+				if ((i + 1) < args.length) {
+					cacheDirectory = args[i + 1];
+				} else {
+					printUsageThenExit();
+				}
+			} else if (arg.equals("-s") || arg.equals("--species")) {
+				if ((i + 1) < args.length) {
+					speciesFile = args[i + 1];
+				} else {
+					printUsageThenExit();
+				}
+			} else if (arg.equals("-a") || arg.equals("--all")) {
+				all = true;
+			} else if (arg.equals("--threads")) {
+				threads = intArg(args, i);
+			} else if (arg.equals("--workers")) {
+				workers = intArg(args, i);
+			} else if (arg.equals("--max-resident")) {
+				maxResident = intArg(args, i);
+			} else if (arg.equals("--hypothesis-threshold")) {
+				hypothesisThreshold = intArg(args, i);
+			} else if (arg.equals("--approximate")) {
+				sampleSize = intArg(args, i);
 			}
 		}
 
-		if (kamName == null && !listCatalog) {
+		if ((kamName == null && !listCatalog && !all) || threads < 1 || workers < 1 || maxResident == 0 || maxResident < -1
+				|| hypothesisThreshold < 1 || sampleSize < 0) {
 			printUsageThenExit();
 		}
 
 		try {
-			new KamSummarizer().run(listCatalog, kamName);
+			KamSummarizer summarizer = new KamSummarizer();
+			summarizer.setThreads(threads);
+			summarizer.setHypothesisThreshold(hypothesisThreshold);
+			summarizer.setApproximate(sampleSize);
+			if (cacheDirectory != null) {
+				summarizer.setSummaryCache(new KamSummaryCache(new File(cacheDirectory)));
+			}
+			if (speciesFile != null) {
+				summarizer.setSpeciesRegistry(SpeciesRegistry.load(new File(speciesFile)));
+			}
+			if (all) {
+				summarizer.runAll(workers, maxResident == -1 ? workers : maxResident);
+			} else {
+				summarizer.run(listCatalog, kamName);
+			}
 		} catch (Exception e) {
 			System.out.println("Error summarizing KAM - " + e.getMessage());
 		}
 
 	}
 
+	private static int intArg(String[] args, int i) {
+		if ((i + 1) < args.length) {
+			try {
+				return Integer.parseInt(args[i + 1]);
+			} catch (NumberFormatException e) {
+				printUsageThenExit();
+			}
+		} else {
+			printUsageThenExit();
+		}
+		return -1;
+	}
+
 	private static void printUsageThenExit() {
 		System.out.println("Usage:\n" + "  -l       --list-catalog       Lists the KAMs in the KAM Store\n"
-				+ "  -k KAM,  --kam-name KAM       The kam to summarize\n");
+				+ "  -k KAM,  --kam-name KAM       The kam to summarize\n"
+				+ "  -a       --all                Summarize every kam in the catalog\n"
+				+ "  -c DIR,  --cache-dir DIR      Reuse summaries of unchanged kams saved in DIR\n"
+				+ "  -s FILE, --species FILE       The species to summarize, as name=taxId lines\n"
+				+ "                                (default Human, Mouse and Rat)\n"
+				+ "           --threads N          The number of threads to compute metrics of one\n"
+				+ "                                kam on (default cores)\n"
+				+ "           --workers N          The number of kams summarized at once with --all,\n"
+				+ "                                each on its own connection (default 4)\n"
+				+ "           --max-resident N     The number of kams loaded at once with --all\n"
+				+ "                                (default workers)\n"
+				+ "           --hypothesis-threshold N\n"
+				+ "                                The causal edges to rna abundances that make a\n"
+				+ "                                transcriptional control a hypothesis (default 4)\n"
+				+ "           --approximate N      Estimate species counts from the evidence of N\n"
+				+ "                                sampled edges, and unique counts from sketches\n");
 		System.exit(1);
 	}
 }
@@ -12,7 +12,11 @@ public class KamSummary implements Serializable {
 	 * 
 	 */
 	private static final long serialVersionUID = 3821417973867497192L;
-	private KamInfo kamInfo;
+	/**
+	 * Not serialized; reattached from the catalog when a cached summary is
+	 * loaded
+	 */
+	private transient KamInfo kamInfo;
 	private Integer numOfNodes;
 	private Integer numOfEdges;
 	private Integer numOfBELDocuments;
@@ -40,6 +44,14 @@ public class KamSummary implements Serializable {
 
 	private Map<String, Integer> statementBreakdownBySpeciesMap = new TreeMap<String,Integer>();
 
+	/**
+	 * Set if counts were estimated from an edge sample and sketches; margins
+	 * are the half-widths of 95% confidence intervals
+	 */
+	private boolean approximate;
+	private Integer numOfEdgesMargin;
+	private Map<String, Integer> statementBreakdownMarginBySpeciesMap;
+
 	protected KamInfo getKamInfo() {
 		return kamInfo;
 	}
@@ -202,8 +214,29 @@ public class KamSummary implements Serializable {
 	public void setFilteredKamSummaries(Map<String, KamSummary> filteredKamSummaries) {
 		this.filteredKamSummaries = filteredKamSummaries;
 	}
-	
-	
-	
-	
+
+	public boolean isApproximate() {
+		return approximate;
+	}
+
+	public void setApproximate(boolean approximate) {
+		this.approximate = approximate;
+	}
+
+	public Integer getNumOfEdgesMargin() {
+		return numOfEdgesMargin;
+	}
+
+	public void setNumOfEdgesMargin(Integer numOfEdgesMargin) {
+		this.numOfEdgesMargin = numOfEdgesMargin;
+	}
+
+	public Map<String, Integer> getStatementBreakdownMarginBySpeciesMap() {
+		return statementBreakdownMarginBySpeciesMap;
+	}
+
+	public void setStatementBreakdownMarginBySpeciesMap(
+			Map<String, Integer> statementBreakdownMarginBySpeciesMap) {
+		this.statementBreakdownMarginBySpeciesMap = statementBreakdownMarginBySpeciesMap;
+	}
 }
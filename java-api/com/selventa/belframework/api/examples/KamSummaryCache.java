@@ -0,0 +1,151 @@
+package com.selventa.belframework.api.examples;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import com.selventa.belframework.kamstore.data.jdbc.KAMCatalogDao.KamInfo;
+
+/**
+ * KamSummaryCache keeps computed {@link KamSummary summaries}, including
+ * their filtered sub-summaries, in a directory with one file per KAM.
+ *
+ * Each file records the KAM name, its last compiled time and the settings
+ * the summary was computed with; a summary is only returned while the KAM
+ * in the catalog still has the same compile time and is asked for with the
+ * same settings, otherwise the KAM is summarized again and its file
+ * replaced. Summaries are stored in the {@link CompactKamSummary} encoding.
+ */
+public class KamSummaryCache {
+
+	private static final int MAGIC = 0x4b414d53;
+	private static final int VERSION = 3;
+
+	private final File directory;
+
+	/**
+	 * @param directory
+	 *            the directory holding summary files
+	 */
+	public KamSummaryCache(File directory) {
+		if (directory == null) {
+			throw new IllegalArgumentException("directory was null.");
+		}
+		this.directory = directory;
+	}
+
+	/**
+	 * returns the cached summary of the KAM, or null if there is none for
+	 * its current compile time and the settings.
+	 *
+	 * @param kamInfo
+	 * @param settings
+	 *            the summary settings, as a string
+	 * @return
+	 */
+	public KamSummary get(KamInfo kamInfo, String settings) {
+		long lastCompiled = lastCompiled(kamInfo);
+		File file = file(kamInfo);
+		if (lastCompiled == -1 || !file.isFile()) {
+			return null;
+		}
+
+		KamSummary summary;
+		try {
+			summary = read(file, kamInfo.getName(), lastCompiled, settings);
+		} catch (IOException e) {
+			// truncated or corrupt, summarize again
+			return null;
+		} catch (RuntimeException e) {
+			// corrupt in a way the decoder did not anticipate
+			return null;
+		}
+		if (summary != null) {
+			summary.setKamInfo(kamInfo);
+		}
+		return summary;
+	}
+
+	/**
+	 * Saves the summary of the KAM, replacing any summary of an earlier
+	 * compile or other settings.
+	 *
+	 * @param kamInfo
+	 * @param settings
+	 *            the summary settings, as a string
+	 * @param summary
+	 * @throws IOException
+	 */
+	public void put(KamInfo kamInfo, String settings, KamSummary summary) throws IOException {
+		if (kamInfo == null || settings == null || summary == null) {
+			throw new IllegalArgumentException("input(s) were null.");
+		}
+		long lastCompiled = lastCompiled(kamInfo);
+		// an unknown compile time can never be verified, so do not persist
+		if (lastCompiled == -1) {
+			return;
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create directory " + directory);
+		}
+
+		// write aside and rename, so concurrent readers never see a partial
+		// file
+		File file = file(kamInfo);
+		File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(kamInfo.getName());
+				out.writeLong(lastCompiled);
+				out.writeUTF(settings);
+				CompactKamSummary.of(summary).writeTo(out);
+			} finally {
+				out.close();
+			}
+			if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+				throw new IOException("cannot replace " + file);
+			}
+		} finally {
+			if (tmp.exists()) {
+				tmp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Read a summary file, returning null if it is not a summary of the
+	 * current version for the KAM, compile time and settings.
+	 */
+	private static KamSummary read(File file, String kamName, long lastCompiled, String settings) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+			if (!kamName.equals(in.readUTF()) || in.readLong() != lastCompiled || !settings.equals(in.readUTF())) {
+				return null;
+			}
+			return CompactKamSummary.readFrom(in).toKamSummary();
+		} finally {
+			in.close();
+		}
+	}
+
+	private File file(KamInfo kamInfo) {
+		return new File(directory, kamInfo.getName().replaceAll("[^A-Za-z0-9_.-]", "_") + ".summary");
+	}
+
+	private static long lastCompiled(KamInfo kamInfo) {
+		Date date = kamInfo.getLastCompiled();
+		return date == null ? -1 : date.getTime();
+	}
+}
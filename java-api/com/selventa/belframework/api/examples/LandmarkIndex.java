@@ -0,0 +1,412 @@
+package com.selventa.belframework.api.examples;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.selventa.belframework.kamstore.data.jdbc.KAMCatalogDao.KamInfo;
+
+/**
+ * LandmarkIndex holds precomputed shortest path distances between a small
+ * set of landmark nodes and every node of a {@link KamGraph}, for use as A*
+ * lower bounds (the ALT technique: A*, Landmarks, Triangle inequality).
+ *
+ * <p>
+ * For any landmark <tt>L</tt> the triangle inequality gives
+ * <tt>d(v, t) &gt;= d(L, t) - d(L, v)</tt> and
+ * <tt>d(v, t) &gt;= d(v, L) - d(t, L)</tt>, so the maximum over all
+ * landmarks is an admissible and consistent heuristic.  Directed
+ * {@link TraversalMode traversal modes} keep separate tables for distances
+ * from and to each landmark; undirected ones share one table for both.
+ * Landmarks are chosen by farthest-point selection so they sit on the
+ * periphery of the graph, where the bounds are tightest.
+ * </p>
+ *
+ * <p>
+ * Tables are stored on disk as flat <tt>int</tt> arrays, one file per kam
+ * and traversal mode.  The file header records the kam's last compiled
+ * timestamp, its graph size and the number of landmarks asked for;
+ * {@link #load(File, KamGraph, TraversalMode, int)} rebuilds the tables
+ * whenever they no longer match.
+ * </p>
+ */
+public final class LandmarkIndex {
+
+    /**
+     * Identifies a landmark index file.
+     */
+    private static final int MAGIC = 0x414c5449;
+
+    /**
+     * The landmark index file format version.
+     */
+    private static final int VERSION = 3;
+
+    /**
+     * Marks an unreachable node in the distance tables.
+     */
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final String kamName;
+    private final TraversalMode mode;
+    private final long lastCompiled;
+    private final int nodeCount;
+    private final int edgeCount;
+
+    /**
+     * Holds the number of landmarks asked for; a graph with fewer nodes
+     * that can be landmarks gets fewer.
+     */
+    private final int requestedCount;
+    private final int[] landmarks;
+
+    /**
+     * Holds <tt>from[l][v]</tt>, the distance from landmark <tt>l</tt> to
+     * node <tt>v</tt>.
+     */
+    private final int[][] from;
+
+    /**
+     * Holds <tt>to[l][v]</tt>, the distance from node <tt>v</tt> to landmark
+     * <tt>l</tt>; the same tables as {@link #from} in undirected modes.
+     */
+    private final int[][] to;
+
+    private LandmarkIndex(String kamName, TraversalMode mode,
+            long lastCompiled, int nodeCount, int edgeCount,
+            int requestedCount, int[] landmarks, int[][] from, int[][] to) {
+        this.kamName = kamName;
+        this.mode = mode;
+        this.lastCompiled = lastCompiled;
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.requestedCount = requestedCount;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Load the landmark index for <tt>graph</tt> from <tt>directory</tt>,
+     * building and saving it first if it is missing or stale.
+     *
+     * @param directory {@link File}, the directory holding index files
+     * @param graph {@link KamGraph}, the graph to index
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param landmarkCount <tt>int</tt>, the number of landmarks to select
+     * @return {@link LandmarkIndex}, the index
+     * @throws IOException Thrown if an IO error occurred reading or writing
+     * the index file
+     */
+    public static LandmarkIndex load(File directory, KamGraph graph,
+            TraversalMode mode, int landmarkCount) throws IOException {
+        String kamName = kamName(graph);
+        long lastCompiled = lastCompiled(graph);
+        File file = new File(directory, fileName(kamName, mode));
+
+        if (file.isFile()) {
+            LandmarkIndex index;
+            try {
+                index = read(file, graph.nodeCount());
+            } catch (IOException e) {
+                // truncated or corrupt, rebuild it
+                index = null;
+            }
+            if (index != null && index.matches(graph) && index.mode == mode
+                    && index.requestedCount == landmarkCount) {
+                return index;
+            }
+        }
+
+        LandmarkIndex index = build(graph, mode, landmarkCount);
+        // an unknown compile time can never be verified, so do not persist
+        if (lastCompiled != -1) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("cannot create directory " + directory);
+            }
+            index.write(file);
+        }
+        return index;
+    }
+
+    /**
+     * Build the landmark index for <tt>graph</tt> in memory.
+     *
+     * @param graph {@link KamGraph}, the graph to index
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param landmarkCount <tt>int</tt>, the number of landmarks to select
+     * @return {@link LandmarkIndex}, the index
+     */
+    public static LandmarkIndex build(KamGraph graph, TraversalMode mode,
+            int landmarkCount) {
+        if (landmarkCount < 1) {
+            throw new IllegalArgumentException("landmarkCount must be >= 1");
+        }
+
+        final int n = graph.nodeCount();
+        int[] chosen = new int[Math.min(landmarkCount, n)];
+        int[][] fromTables = new int[chosen.length][];
+        int[][] toTables = new int[chosen.length][];
+
+        // closest[v] is the distance between v and its nearest chosen
+        // landmark; unreachable nodes are farthest, so every component gets
+        // covered
+        int[] closest = new int[n];
+        Arrays.fill(closest, UNREACHABLE);
+
+        int count = 0;
+        int next = highestDegree(graph);
+        while (count < chosen.length && next != -1) {
+            chosen[count] = next;
+            fromTables[count] = ShortestPathTree.compute(graph, next, mode,
+                    false).distances;
+            toTables[count] = mode.directed ? ShortestPathTree.compute(graph,
+                    next, mode, true).distances : fromTables[count];
+            for (int v = 0; v < n; v++) {
+                closest[v] = Math.min(closest[v], Math.min(
+                        fromTables[count][v], toTables[count][v]));
+            }
+            count++;
+
+            next = -1;
+            long farthest = 0;
+            for (int v = 0; v < n; v++) {
+                if (closest[v] > farthest && degree(graph, v) > 0) {
+                    farthest = closest[v];
+                    next = v;
+                }
+            }
+        }
+
+        return new LandmarkIndex(kamName(graph), mode, lastCompiled(graph),
+                n, graph.edgeCount(), landmarkCount,
+                Arrays.copyOf(chosen, count),
+                Arrays.copyOf(fromTables, count),
+                Arrays.copyOf(toTables, count));
+    }
+
+    /**
+     * Returns <tt>true</tt> if this index was built for <tt>graph</tt>'s
+     * kam as currently compiled.
+     *
+     * @param graph {@link KamGraph}, the graph
+     * @return <tt>boolean</tt>
+     */
+    public boolean matches(KamGraph graph) {
+        return lastCompiled != -1
+                && lastCompiled == lastCompiled(graph)
+                && kamName.equals(kamName(graph))
+                && nodeCount == graph.nodeCount()
+                && edgeCount == graph.edgeCount();
+    }
+
+    /**
+     * Returns the traversal mode the index was built for.
+     *
+     * @return {@link TraversalMode}
+     */
+    public TraversalMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the number of landmarks.
+     *
+     * @return <tt>int</tt>
+     */
+    public int landmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Returns a lower bound on the distance from <tt>node</tt> to
+     * <tt>target</tt>.
+     *
+     * @param node <tt>int</tt>, the node index
+     * @param target <tt>int</tt>, the target node index
+     * @return <tt>int</tt>, the lower bound, or {@link #UNREACHABLE} if a
+     * landmark proves <tt>target</tt> cannot be reached from <tt>node</tt>
+     */
+    public int lowerBound(int node, int target) {
+        int bound = 0;
+        for (int l = 0; l < landmarks.length; l++) {
+            // d(v, t) >= d(L, t) - d(L, v); if L reaches v it reaches
+            // everything v reaches
+            int fv = from[l][node];
+            int ft = from[l][target];
+            if (fv != UNREACHABLE) {
+                if (ft == UNREACHABLE) {
+                    return UNREACHABLE;
+                }
+                if (ft - fv > bound) {
+                    bound = ft - fv;
+                }
+            }
+
+            // d(v, t) >= d(v, L) - d(t, L); if t reaches L so does
+            // everything that reaches t
+            int tv = to[l][node];
+            int tt = to[l][target];
+            if (tt != UNREACHABLE) {
+                if (tv == UNREACHABLE) {
+                    return UNREACHABLE;
+                }
+                if (tv - tt > bound) {
+                    bound = tv - tt;
+                }
+            }
+        }
+        return bound;
+    }
+
+    private static int degree(KamGraph graph, int node) {
+        return graph.forwardOffsets[node + 1] - graph.forwardOffsets[node]
+                + graph.reverseOffsets[node + 1] - graph.reverseOffsets[node];
+    }
+
+    private static int highestDegree(KamGraph graph) {
+        int best = -1;
+        int bestDegree = 0;
+        for (int v = 0; v < graph.nodeCount(); v++) {
+            int degree = degree(graph, v);
+            if (degree > bestDegree) {
+                bestDegree = degree;
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    private static String kamName(KamGraph graph) {
+        KamInfo kamInfo = graph.getKamInfo();
+        return kamInfo == null ? "" : kamInfo.getName();
+    }
+
+    private static long lastCompiled(KamGraph graph) {
+        KamInfo kamInfo = graph.getKamInfo();
+        Date date = kamInfo == null ? null : kamInfo.getLastCompiled();
+        return date == null ? -1 : date.getTime();
+    }
+
+    private static String fileName(String kamName, TraversalMode mode) {
+        String name = kamName.replaceAll("[^A-Za-z0-9_.-]", "_");
+        if (mode != TraversalMode.UNDIRECTED) {
+            name += "." + mode.name().toLowerCase();
+        }
+        return name + ".alt";
+    }
+
+    /**
+     * Write the index to <tt>file</tt>.  It is written aside and renamed,
+     * so concurrent readers never see a partial file.
+     */
+    private void write(File file) throws IOException {
+        File tmp = File.createTempFile(file.getName(), ".tmp",
+                file.getParentFile());
+        try {
+            writeTables(tmp);
+            if (!tmp.renameTo(file)
+                    && !(file.delete() && tmp.renameTo(file))) {
+                throw new IOException("cannot replace " + file);
+            }
+        } finally {
+            if (tmp.exists()) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private void writeTables(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(kamName);
+            out.writeUTF(mode.name());
+            out.writeLong(lastCompiled);
+            out.writeInt(nodeCount);
+            out.writeInt(edgeCount);
+            out.writeInt(requestedCount);
+            out.writeInt(landmarks.length);
+            for (int i = 0; i < landmarks.length; i++) {
+                out.writeInt(landmarks[i]);
+                for (int d : from[i]) {
+                    out.writeInt(d);
+                }
+                if (mode.directed) {
+                    for (int d : to[i]) {
+                        out.writeInt(d);
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Read an index file, returning <tt>null</tt> if it is not a landmark
+     * index of the current version for a graph of
+     * <tt>expectedNodeCount</tt> nodes.  Counts are checked before any table
+     * is allocated, so a corrupt header fails with an {@link IOException}.
+     */
+    private static LandmarkIndex read(File file, int expectedNodeCount)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 1 << 16));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            String kamName = in.readUTF();
+            TraversalMode mode = TraversalMode.forName(in.readUTF());
+            if (mode == null) {
+                return null;
+            }
+            long lastCompiled = in.readLong();
+            int nodeCount = in.readInt();
+            if (nodeCount != expectedNodeCount) {
+                return null;
+            }
+            int edgeCount = in.readInt();
+            int requestedCount = in.readInt();
+            int landmarkCount = in.readInt();
+            if (requestedCount < 1 || landmarkCount < 0
+                    || landmarkCount > Math.min(requestedCount, nodeCount)) {
+                throw new IOException("corrupt landmark index " + file);
+            }
+            int[] landmarks = new int[landmarkCount];
+            int[][] from = new int[landmarks.length][];
+            int[][] to = new int[landmarks.length][];
+            for (int i = 0; i < landmarks.length; i++) {
+                landmarks[i] = in.readInt();
+                if (landmarks[i] < 0 || landmarks[i] >= nodeCount) {
+                    throw new IOException("corrupt landmark index " + file);
+                }
+                from[i] = readTable(in, nodeCount);
+                to[i] = mode.directed ? readTable(in, nodeCount) : from[i];
+            }
+            return new LandmarkIndex(kamName, mode, lastCompiled, nodeCount,
+                    edgeCount, requestedCount, landmarks, from, to);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static int[] readTable(DataInputStream in, int nodeCount)
+            throws IOException {
+        int[] table = new int[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            table[v] = in.readInt();
+        }
+        return table;
+    }
+}
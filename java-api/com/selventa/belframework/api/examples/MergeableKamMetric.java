@@ -0,0 +1,27 @@
+package com.selventa.belframework.api.examples;
+
+/**
+ * MergeableKamMetric is a {@link KamMetric} that can be accumulated over
+ * separate chunks of a network in parallel and merged afterwards.
+ *
+ * Merging partials must give exactly the metrics a single sequential sweep
+ * would, whatever the chunking.
+ */
+public interface MergeableKamMetric extends KamMetric {
+
+	/**
+	 * Creates an empty partial of this metric, with the same settings, to
+	 * accumulate one chunk.
+	 *
+	 * @return
+	 */
+	MergeableKamMetric newPartial();
+
+	/**
+	 * Adds the metrics accumulated by a partial created by
+	 * {@link #newPartial()} to this metric.
+	 *
+	 * @param partial
+	 */
+	void merge(MergeableKamMetric partial);
+}
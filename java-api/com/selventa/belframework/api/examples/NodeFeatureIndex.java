@@ -0,0 +1,213 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.selventa.belframework.kamstore.model.Kam.KamNode;
+
+/**
+ * NodeFeatureIndex holds the term features of every node of a KAM, parsed
+ * once from the node labels and packed into one <tt>int</tt> per node, so
+ * summaries and filters test bits instead of scanning label strings.
+ *
+ * The packed features are:
+ * <ul>
+ * <li>bits 0-7, the parenthesis nesting depth of the term</li>
+ * <li>{@link #SIMPLE}, a term with a single function and no nested terms</li>
+ * <li>{@link #MODIFIED}, a term with a protein modification</li>
+ * <li>{@link #PHOSPHORYLATED}, a term with a phosphorylation</li>
+ * <li>bits 16-31, the code of the namespace of the first parameter, see
+ * {@link #namespace(int)}; 0 if there is none or the KAM has more than
+ * 65535 namespaces</li>
+ * </ul>
+ */
+public final class NodeFeatureIndex {
+
+	public static final int DEPTH_MASK = 0xff;
+	public static final int SIMPLE = 1 << 8;
+	public static final int MODIFIED = 1 << 9;
+	public static final int PHOSPHORYLATED = 1 << 10;
+	private static final int NAMESPACE_SHIFT = 16;
+	private static final int MAX_NAMESPACE_CODE = 0xffff;
+
+	// node ids in ascending order, and the features of each
+	private final int[] nodeIds;
+	private final int[] features;
+	private final List<String> namespaces;
+	private final Map<String, Integer> namespaceCodes;
+
+	private NodeFeatureIndex(int[] nodeIds, int[] features, List<String> namespaces, Map<String, Integer> namespaceCodes) {
+		this.nodeIds = nodeIds;
+		this.features = features;
+		this.namespaces = namespaces;
+		this.namespaceCodes = namespaceCodes;
+	}
+
+	/**
+	 * Parses the label of every node.
+	 *
+	 * @param nodes
+	 * @return
+	 */
+	public static NodeFeatureIndex build(Collection<KamNode> nodes) {
+		if (nodes == null) {
+			throw new IllegalArgumentException("nodes was null.");
+		}
+		int[] nodeIds = new int[nodes.size()];
+		int i = 0;
+		for (KamNode node : nodes) {
+			nodeIds[i++] = node.getId();
+		}
+		Arrays.sort(nodeIds);
+		int[] features = new int[nodeIds.length];
+		List<String> namespaces = new ArrayList<String>();
+		Map<String, Integer> namespaceCodes = new HashMap<String, Integer>();
+		// code 0 is no namespace
+		namespaces.add(null);
+
+		for (KamNode node : nodes) {
+			features[Arrays.binarySearch(nodeIds, node.getId())] = parse(node.getLabel(), namespaces, namespaceCodes);
+		}
+		return new NodeFeatureIndex(nodeIds, features, namespaces, namespaceCodes);
+	}
+
+	/**
+	 * Parses the features of one label in a single scan, interning its
+	 * namespace unless <tt>namespaces</tt> is null.
+	 */
+	private static int parse(String label, List<String> namespaces, Map<String, Integer> namespaceCodes) {
+		int opens = 0;
+		int closes = 0;
+		int depth = 0;
+		int maxDepth = 0;
+		int namespaceStart = -1;
+		int namespaceEnd = -1;
+		for (int i = 0, n = label.length(); i < n; i++) {
+			char c = label.charAt(i);
+			if (c == '(') {
+				opens++;
+				maxDepth = Math.max(maxDepth, ++depth);
+				if (namespaceEnd == -1) {
+					// the first parameter may be a nested term
+					namespaceStart = i + 1;
+				}
+			} else if (c == ')') {
+				closes++;
+				depth--;
+				if (namespaceEnd == -1) {
+					namespaceStart = -1;
+				}
+			} else if (c == ':' && namespaceEnd == -1 && namespaceStart != -1) {
+				namespaceEnd = i;
+			} else if ((c == ',' || c == '"') && namespaceEnd == -1) {
+				// the first parameter has no namespace prefix
+				namespaceStart = -1;
+			}
+		}
+
+		int packed = Math.min(maxDepth, DEPTH_MASK);
+		if (opens == 1 && closes == 1) {
+			packed |= SIMPLE;
+		}
+		if (label.indexOf("modification(") > -1) {
+			packed |= MODIFIED;
+			if (label.indexOf("modification(P") > -1) {
+				packed |= PHOSPHORYLATED;
+			}
+		}
+		if (namespaces != null && namespaceStart != -1 && namespaceEnd > namespaceStart) {
+			String namespace = label.substring(namespaceStart, namespaceEnd);
+			Integer code = namespaceCodes.get(namespace);
+			if (code == null && namespaces.size() <= MAX_NAMESPACE_CODE) {
+				code = namespaces.size();
+				namespaces.add(namespace);
+				namespaceCodes.put(namespace, code);
+			}
+			if (code != null) {
+				packed |= code << NAMESPACE_SHIFT;
+			}
+		}
+		return packed;
+	}
+
+	/**
+	 * returns the number of nodes indexed.
+	 *
+	 * @return
+	 */
+	public int nodeCount() {
+		return features.length;
+	}
+
+	/**
+	 * returns the packed features of the node, parsing the label of a node
+	 * that was not indexed.
+	 *
+	 * @param node
+	 * @return
+	 */
+	public int features(KamNode node) {
+		int i = Arrays.binarySearch(nodeIds, node.getId());
+		if (i >= 0) {
+			return features[i];
+		}
+		// not in this kam; its namespace is left uncoded
+		return parse(node.getLabel(), null, null);
+	}
+
+	/**
+	 * returns true if the node has every feature bit of <tt>flags</tt>.
+	 *
+	 * @param node
+	 * @param flags
+	 * @return
+	 */
+	public boolean has(KamNode node, int flags) {
+		return (features(node) & flags) == flags;
+	}
+
+	/**
+	 * returns the nesting depth of packed features.
+	 *
+	 * @param features
+	 * @return
+	 */
+	public static int depth(int features) {
+		return features & DEPTH_MASK;
+	}
+
+	/**
+	 * returns the namespace code of packed features, 0 for none.
+	 *
+	 * @param features
+	 * @return
+	 */
+	public static int namespaceCode(int features) {
+		return features >>> NAMESPACE_SHIFT;
+	}
+
+	/**
+	 * returns the namespace of a namespace code, null for code 0.
+	 *
+	 * @param code
+	 * @return
+	 */
+	public String namespace(int code) {
+		return namespaces.get(code);
+	}
+
+	/**
+	 * returns the code of a namespace, or -1 if no indexed node uses it.
+	 *
+	 * @param namespace
+	 * @return
+	 */
+	public int namespaceCode(String namespace) {
+		Integer code = namespaceCodes.get(namespace);
+		return code == null ? -1 : code;
+	}
+}
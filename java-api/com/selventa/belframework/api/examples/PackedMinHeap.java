@@ -0,0 +1,113 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+
+/**
+ * PackedMinHeap is a binary min-heap of <tt>(priority, node)</tt> pairs,
+ * each packed into a single <tt>long</tt> so that no entry objects are
+ * allocated.
+ *
+ * <p>
+ * The heap has no decrease-key; callers push a new entry when a node's
+ * priority improves and skip stale entries on {@link #poll()} by comparing
+ * the popped priority with their own distance array.
+ * </p>
+ */
+final class PackedMinHeap {
+
+    private long[] heap;
+    private int size;
+
+    /**
+     * Constructs the heap with an initial capacity.
+     *
+     * @param capacity <tt>int</tt>, the initial capacity
+     */
+    PackedMinHeap(int capacity) {
+        heap = new long[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Push <tt>node</tt> with a non-negative <tt>priority</tt>.
+     *
+     * @param priority <tt>int</tt>, the priority
+     * @param node <tt>int</tt>, the node index
+     */
+    void push(int priority, int node) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size << 1);
+        }
+        long entry = ((long) priority << 32) | (node & 0xFFFFFFFFL);
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    /**
+     * Remove and return the minimum entry.  Use {@link #priority(long)} and
+     * {@link #node(long)} to unpack it.
+     *
+     * @return <tt>long</tt>, the packed entry
+     */
+    long poll() {
+        long min = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            int right = child + 1;
+            if (right < size && heap[right] < heap[child]) {
+                child = right;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return min;
+    }
+
+    /**
+     * Returns the minimum entry without removing it.
+     *
+     * @return <tt>long</tt>, the packed entry
+     */
+    long peek() {
+        return heap[0];
+    }
+
+    /**
+     * Returns the priority of the minimum entry without removing it.
+     *
+     * @return <tt>int</tt>
+     */
+    int peekPriority() {
+        return priority(heap[0]);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    static int priority(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    static int node(long entry) {
+        return (int) entry;
+    }
+}
@@ -7,27 +7,20 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
 
 import com.selventa.belframework.api.KamStore;
 import com.selventa.belframework.api.KamStoreImpl;
-import com.selventa.belframework.api.examples.xgmml.XGMMLObjects.Edge;
-import com.selventa.belframework.api.examples.xgmml.XGMMLObjects.Node;
+import com.selventa.belframework.api.examples.XGMMLObjects.Edge;
+import com.selventa.belframework.api.examples.XGMMLObjects.Node;
 import com.selventa.belframework.common.cfg.SystemConfiguration;
 import com.selventa.belframework.common.enums.RelationshipType;
 import com.selventa.belframework.df.DBConnection;
 import com.selventa.belframework.df.DatabaseService;
 import com.selventa.belframework.df.DatabaseServiceImpl;
 import com.selventa.belframework.kamstore.data.jdbc.KAMStoreDaoImpl.BelTerm;
-import com.selventa.belframework.kamstore.model.EdgeDirectionType;
 import com.selventa.belframework.kamstore.model.Kam;
 import com.selventa.belframework.kamstore.model.Kam.KamEdge;
 import com.selventa.belframework.kamstore.model.Kam.KamNode;
@@ -38,7 +31,10 @@ import com.selventa.belframework.kamstore.model.KamStoreException;
  * 
  * <p>
  * This pathfinder uses Dijkstra's algorithm to find the shortest path from
- * source to target {@link KamNode} id.
+ * source to target {@link KamNode} id.  The search runs over a
+ * {@link KamGraph} snapshot of the kam rather than the {@link Kam} itself,
+ * using the {@link PathSearch} engine selected on the command-line.  The
+ * {@link TraversalMode} restricts the search to directed or causal edges.
  * </p>
  * 
  * @author Anthony Bargnesi &lt;abargnesi@selventa.com&gt;
@@ -65,6 +61,21 @@ public class PathFinder {
      */
     private final String outputFile;
     
+    /**
+     * Holds the path search engine.
+     */
+    private final PathSearch pathSearch;
+    
+    /**
+     * Holds the limits each search is run within.
+     */
+    private SearchBudget limits = SearchBudget.unlimited();
+    
+    /**
+     * Holds the number of hops around the path to include in the XGMML.
+     */
+    private int neighborhood;
+    
     /**
      * Holds a reference to the system configuration.
      */
@@ -75,6 +86,11 @@ public class PathFinder {
      */
     private KamStore kamStore;
     
+    /**
+     * Holds the KAM Store database connection.
+     */
+    private DBConnection dbc;
+    
     /**
      * Constructs the PathFinder with a kam name, source / target node id,
      * and XGMML output file.
@@ -86,8 +102,24 @@ public class PathFinder {
      */
     public PathFinder(String kamName, Integer sourceNodeId,
             Integer targetNodeId, String outputFile) {
+        this(kamName, sourceNodeId, targetNodeId, outputFile,
+                new DijkstraPathSearch());
+    }
+    
+    /**
+     * Constructs the PathFinder with a kam name, source / target node id,
+     * XGMML output file, and path search engine.
+     * 
+     * @param kamName {@link String}, the kam name
+     * @param sourceNodeId {@link Integer}, the source node id
+     * @param targetNodeId {@link Integer}, the target node id
+     * @param outputFile {@link String}, the XGMML output file
+     * @param pathSearch {@link PathSearch}, the path search engine
+     */
+    public PathFinder(String kamName, Integer sourceNodeId,
+            Integer targetNodeId, String outputFile, PathSearch pathSearch) {
         if (kamName == null || sourceNodeId == null || targetNodeId == null
-                || outputFile == null) {
+                || outputFile == null || pathSearch == null) {
             throw new IllegalArgumentException("input(s) were null.");
         }
         
@@ -95,6 +127,7 @@ public class PathFinder {
         this.sourceNodeId = sourceNodeId;
         this.targetNodeId = targetNodeId;
         this.outputFile = outputFile;
+        this.pathSearch = pathSearch;
         
         try {
             SystemConfiguration.createSystemConfiguration(null);
@@ -105,6 +138,33 @@ public class PathFinder {
         }
     }
     
+    /**
+     * Set the limits each search is run within.  A fresh budget with these
+     * limits is used for every search.
+     * 
+     * @param limits {@link SearchBudget}, the search limits
+     */
+    public void setLimits(SearchBudget limits) {
+        if (limits == null) {
+            throw new IllegalArgumentException("limits is null");
+        }
+        this.limits = limits;
+    }
+    
+    /**
+     * Set the number of hops around the path whose nodes are included in
+     * the XGMML, in either edge direction.
+     * 
+     * @param neighborhood <tt>int</tt>, the hops, <tt>0</tt> (the default)
+     * for the path nodes only
+     */
+    public void setNeighborhood(int neighborhood) {
+        if (neighborhood < 0) {
+            throw new IllegalArgumentException("neighborhood must be >= 0");
+        }
+        this.neighborhood = neighborhood;
+    }
+    
     /**
      * Run the path find implementation and output the results.
      * 
@@ -120,63 +180,36 @@ public class PathFinder {
         System.out.println("Calculating shortest path from " + sourceNodeId
                 + " to " + targetNodeId + "...");
         
-        // Setup a database connector to the KAM Store.
-        DatabaseService dbService = new DatabaseServiceImpl();
-        DBConnection dbc = dbService.dbConnection(
-                config.getKamURL(),
-                config.getKamUser(),
-                config.getKamPassword());
-
-        // Connect to the KAM Store. This establishes a connection to the
-        // KamStore database and sets up the system to read and process
-        // Kams. 
-        kamStore = new KamStoreImpl(dbc);
-
-        // Use the KamStore object to load the Kam which the user requested. If the Kam
-        // is not found a KamStoreException will be thrown
-        Kam kam = kamStore.getKam(kamName);
-        
-        KamNode sourceNode = kam.findNode(sourceNodeId);
-        KamNode targetNode = kam.findNode(targetNodeId);
+        Kam kam = openKam();
+        KamNode sourceNode = findNode(kam, sourceNodeId, "Source");
+        KamNode targetNode = findNode(kam, targetNodeId, "Target");
         
-        // verify that the source node exists, otherwise fail.
-        if (sourceNode == null) {
-            System.out.println("Source node cannot be found in kam: " + kamName);
-            System.out.println("Terminated.");
-            System.exit(1);
-        }
-        
-        // verify that the target node exists, otherwise fail.
-        if (targetNode == null) {
-            System.out.println("Target node cannot be found in kam: " + kamName);
-            System.out.println("Terminated.");
-            System.exit(1);
-        }
-        
-        // do the dijkstra 
-        Map<KamNode, KamNode> predecessors = doPathFind(kam, sourceNode,
-                targetNode);
+        // snapshot the kam into a primitive graph for path finding
+        KamGraph graph = KamGraph.snapshot(kam);
+        int source = graph.indexOf(sourceNode.getId());
+        int target = graph.indexOf(targetNode.getId());
+
+        // do the path search
+        SearchResult result = pathSearch.search(graph, source, target,
+                limits.renew());
+        GraphPath path = result.getPath();
         
-        if (!predecessors.containsKey(targetNode)) {
-            if (sourceNode != null && targetNode != null) {
-                System.out.println("A path from [ " + sourceNode.getLabel()
-                        + " ] to [ " + targetNode.getLabel()
-                        + " ] could not be found.");
-            }
+        if (path == null) {
+            System.out.println("A path from [ " + sourceNode.getLabel()
+                    + " ] to [ " + targetNode.getLabel()
+                    + " ] could not be found ("
+                    + result.getStatus().getLabel() + ").");
         } else {
-            // construct path from target to source
-            List<KamNode> pathNodes = new ArrayList<Kam.KamNode>();
-            pathNodes.add(targetNode);
+            List<KamNode> pathNodes = path.getKamNodes(graph);
             
-            KamNode predecessor = predecessors.get(targetNode);
-            while (predecessor != null) {
-                pathNodes.add(predecessor);
-                predecessor = predecessors.get(predecessor);
+            if (result.getStatus() == SearchResult.Status.FOUND) {
+                System.out.println("Path found:");
+            } else {
+                // the search was stopped with the target labelled
+                System.out.println("Search stopped ("
+                        + result.getStatus().getLabel()
+                        + "), best path found so far:");
             }
-            
-            Collections.reverse(pathNodes);
-            
-            System.out.println("Path found:");
             int i = 1;
             for (KamNode pathNode : pathNodes) {
                 System.out.println("  (" + i + ") Path node id: " + pathNode.getId());
@@ -184,167 +217,145 @@ public class PathFinder {
                 i++;
             }
             
-            writeXGMML(kam, pathNodes);
+            writeXGMML(graph, path);
             System.out.println("\nXGMML saved to file: " + new File(outputFile).getAbsolutePath());
         }
         
-        // We are done with the Kam so we can close it out. This releases any
-        // cached
-        // data and connections to the Kam Store database
-        kamStore.close(kam);
-
-        // Close the database connection
-        dbc.getConnection().close();
-        
-        // Report that they process is complete
-        System.out.println("\nTerminated.");
+        closeKam(kam);
     }
     
     /**
-     * Provides the main loop of the Dijkstra shortest path algorithm.
+     * Run the undirected k-shortest loopless paths search and stream each
+     * path to the output file.
      * 
-     * @param kam {@link Kam}, the kam to path find on
-     * @param sourceNode {@link KamNode}, the kam node to path find from
-     * @param targetNode {@link KamNode}, the kam node to path find to
-     * @return {@link Map} of {@link KamNode} to {@link KamNode}, the
-     * kam node predecessors map that allows tracing back the found path
+     * @param k <tt>int</tt>, the number of paths to find
+     * @throws SQLException Thrown if a SQL error occurred working with the
+     * kam
+     * @throws KamStoreException Thrown if the {@link KamStoreImpl} could not find
+     * the kam
+     * @throws IOException Thrown if an IO error occurred writing the output
+     * file
+     * @see #runKShortestPaths(int, TraversalMode)
      */
-    private Map<KamNode, KamNode> doPathFind(Kam kam, KamNode sourceNode,
-            KamNode targetNode) {
-        final Map<KamNode, Integer> distances = new HashMap<KamNode, Integer>();
-        final Map<KamNode, KamNode> predecessors = new HashMap<Kam.KamNode, Kam.KamNode>();
-        final Set<KamNode> settled = new HashSet<KamNode>();
-        final Queue<KamNode> unsettled = new PriorityQueue<KamNode>(512, new Comparator<KamNode>() {
-            @Override
-            public int compare(KamNode kn1, KamNode kn2) {
-                Integer kn1d = distances.get(kn1);
-                Integer kn2d = distances.get(kn2);
-                return kn1d.compareTo(kn2d);
-            }
-        });
+    public void runKShortestPaths(int k) throws SQLException,
+            KamStoreException, IOException {
+        runKShortestPaths(k, TraversalMode.UNDIRECTED);
+    }
+    
+    /**
+     * Run the k-shortest loopless paths search and stream each path to the
+     * output file, one tab-separated line per path, as soon as it is found.
+     * 
+     * @param k <tt>int</tt>, the number of paths to find
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @throws SQLException Thrown if a SQL error occurred working with the
+     * kam
+     * @throws KamStoreException Thrown if the {@link KamStoreImpl} could not find
+     * the kam
+     * @throws IOException Thrown if an IO error occurred writing the output
+     * file
+     */
+    public void runKShortestPaths(int k, TraversalMode mode)
+            throws SQLException, KamStoreException, IOException {
+        System.out.println("Calculating " + k + " shortest paths from "
+                + sourceNodeId + " to " + targetNodeId + "...");
         
-        unsettled.add(sourceNode);
-        distances.put(sourceNode, 0);
+        Kam kam = openKam();
+        KamNode sourceNode = findNode(kam, sourceNodeId, "Source");
+        KamNode targetNode = findNode(kam, targetNodeId, "Target");
         
-        while (!unsettled.isEmpty()) {
-            KamNode minDistance = findMinimum(unsettled);
-            settled.add(minDistance);
-            relax(distances, predecessors, settled, unsettled, kam, minDistance);
+        final KamGraph graph = KamGraph.snapshot(kam);
+        final PrintWriter writer = new PrintWriter(new File(outputFile));
+        writer.println("#rank\tdistance\tpath");
+        SearchBudget budget = limits.renew();
+        int found;
+        try {
+            found = new KShortestPaths(mode).search(graph,
+                    graph.indexOf(sourceNode.getId()),
+                    graph.indexOf(targetNode.getId()), k,
+                    new KShortestPaths.PathListener() {
+                        @Override
+                        public void pathFound(int rank, GraphPath path) {
+                            writer.println(rank + "\t" + path.getDistance()
+                                    + "\t" + path.formatNodeIds(graph));
+                            writer.flush();
+                        }
+                    }, budget);
+        } finally {
+            writer.close();
         }
         
-        return predecessors;
+        if (budget.getExhausted() != null) {
+            System.out.println("Search stopped ("
+                    + budget.getExhausted().getLabel() + ").");
+        }
+        System.out.println(found + " path(s) saved to file: "
+                + new File(outputFile).getAbsolutePath());
+        closeKam(kam);
     }
     
     /**
-     * Find the minimum distance {@link KamNode} on the unsettled queue.  Since
-     * a priority queue is used as the queue implementation, the minimum
-     * distance node will always be the head of the queue, so pop it.
+     * Connect to the KAM Store and load the kam.
      * 
-     * @param unsettled {@link Queue} of {@link KamNode}, the unsettled kam
-     * nodes
-     * @return {@link KamNode} the minimum distance kam node
+     * @return {@link Kam}, the loaded kam
+     * @throws SQLException Thrown if a SQL error occurred connecting to the
+     * KAM Store
+     * @throws KamStoreException Thrown if the kam could not be found
      */
-    private KamNode findMinimum(Queue<KamNode> unsettled) {
-        return unsettled.remove();
-    }
+    private Kam openKam() throws SQLException, KamStoreException {
+        // Setup a database connector to the KAM Store.
+        DatabaseService dbService = new DatabaseServiceImpl();
+        dbc = dbService.dbConnection(
+                config.getKamURL(),
+                config.getKamUser(),
+                config.getKamPassword());
 
-    /**
-     * Relax all edges from the new <tt>minDistance</tt> node.
-     * 
-     * @param distances {@link Map} of {@link KamNode} to {@link Integer}
-     * distance
-     * @param predecessor {@link Map} of {@link KamNode} to {@link KamNode}
-     * to capture a path trail
-     * @param settled {@link Set} of {@link KamNode}, the nodes that have
-     * already been settled
-     * @param unsettled {@link Queue} of {@link KamNode}, the queue of
-     * unsettled nodes which is sorted by minimum distance
-     * @param kam {@link Kam}, the kam used for path find
-     * @param minDistance {@link KamNode}, the current minimum distance
-     * node that is being relaxed
-     */
-    private void relax(Map<KamNode, Integer> distances,
-            Map<KamNode, KamNode> predecessor, Set<KamNode> settled,
-            Queue<KamNode> unsettled, Kam kam, KamNode minDistance) {
-        
-        // relax forward direction
-        Set<KamEdge> edges = kam.getAdjacentEdges(minDistance, EdgeDirectionType.FORWARD);
-        for (KamEdge edge : edges) {
-            KamNode target = edge.getTargetNode();
-            
-            // if we have visited this node, skip it
-            if (settled.contains(target)) {
-                continue;
-            }
-            
-            relaxEdge(distances, predecessor, settled, unsettled, kam,
-                    minDistance, edge, target);
-        }
-        
-        // relax reverse direction
-        edges = kam.getAdjacentEdges(minDistance, EdgeDirectionType.REVERSE);
-        for (KamEdge edge : edges) {
-            KamNode source = edge.getSourceNode();
-            
-            // if we have visited this node, skip it
-            if (settled.contains(source)) {
-                continue;
-            }
-            
-            relaxEdge(distances, predecessor, settled, unsettled, kam,
-                    minDistance, edge, source);
-        }
+        // Connect to the KAM Store. This establishes a connection to the
+        // KamStore database and sets up the system to read and process
+        // Kams. 
+        kamStore = new KamStoreImpl(dbc);
+
+        // Use the KamStore object to load the Kam which the user requested. If the Kam
+        // is not found a KamStoreException will be thrown
+        return kamStore.getKam(kamName);
     }
     
     /**
-     * Explore the new node and edge and see if this path's distance has
-     * improved.  If it has then update distance, predecessor, and indicate
-     * the node as settled.
+     * Find the node <tt>nodeId</tt> in <tt>kam</tt>, terminating if it does
+     * not exist.
      * 
-     * @param distances {@link Map} of {@link KamNode} to {@link Integer}
-     * distance
-     * @param predecessor {@link Map} of {@link KamNode} to {@link KamNode}
-     * to capture a path trail
-     * @param settled {@link Set} of {@link KamNode}, the nodes that have
-     * already been settled
-     * @param unsettled {@link Queue} of {@link KamNode}, the queue of
-     * unsettled nodes which is sorted by minimum distance
-     * @param kam {@link Kam}, the kam used for path find
-     * @param minDistance {@link KamNode}, the current minimum distance
-     * node that is being relaxed
-     * @param edge {@link KamEdge}, the kam edge to use in new distance
-     * calculation
-     * @param edgeNode {@link KamNode}, the kam edge's node to evaluate
+     * @param kam {@link Kam}, the kam
+     * @param nodeId {@link Integer}, the kam node id
+     * @param role {@link String}, the node's role for the error message
+     * @return {@link KamNode}, the kam node
      */
-    private void relaxEdge(Map<KamNode, Integer> distances,
-            Map<KamNode, KamNode> predecessor, Set<KamNode> settled,
-            Queue<KamNode> unsettled, Kam kam, KamNode minDistance,
-            KamEdge edge, KamNode edgeNode) {
-        Integer dt = distance(edgeNode, distances);
-        Integer dref = distances.get(minDistance);
-        
-        // distance to dt is less if traveling through dref, so promote
-        Integer dnew = dref + weight(edge);
-        if (dt > dnew) {
-            distances.put(edgeNode, dnew);
-            predecessor.put(edgeNode, minDistance);
-            unsettled.add(edgeNode);
+    private KamNode findNode(Kam kam, Integer nodeId, String role) {
+        KamNode node = kam.findNode(nodeId);
+        if (node == null) {
+            System.out.println(role + " node cannot be found in kam: " + kamName);
+            System.out.println("Terminated.");
+            System.exit(1);
         }
+        return node;
     }
     
     /**
-     * Return the distance for <tt>node</tt>.  If <tt>node</tt> does not exist
-     * in the <tt>distances</tt> map then return {@link Integer#MAX_VALUE}.
+     * Close the kam and the KAM Store connection.
      * 
-     * @param node {@link KamNode}, the kam node to retrieve distance for
-     * @param distances {@link Map} of {@link KamNode} to {@link Integer}
-     * distance
-     * @return <tt>int</tt> the kam nodes distance or {@link Integer#MAX_VALUE}
-     * if a distance hasn't yet been seen for this node
+     * @param kam {@link Kam}, the kam to close
+     * @throws SQLException Thrown if the connection could not be closed
      */
-    private int distance(KamNode node, Map<KamNode, Integer> distances) {
-        Integer distance = distances.get(node);
-        return distance == null ? Integer.MAX_VALUE : distance;
+    private void closeKam(Kam kam) throws SQLException {
+        // We are done with the Kam so we can close it out. This releases any
+        // cached
+        // data and connections to the Kam Store database
+        kamStore.close(kam);
+
+        // Close the database connection
+        dbc.getConnection().close();
+        
+        // Report that they process is complete
+        System.out.println("\nTerminated.");
     }
     
     /**
@@ -353,7 +364,7 @@ public class PathFinder {
      * @param edge {@link KamEdge}, the kam eddge to weight
      * @return <tt>int</tt> the weight of the {@link KamEdge}
      */
-    private int weight(KamEdge edge) {
+    static int weight(KamEdge edge) {
         RelationshipType rel = edge.getRelationshipType();
         if (rel.isDirect()) {
             return 1;
@@ -365,56 +376,106 @@ public class PathFinder {
     }
     
     /**
-     * Write the XGMML representation of the discovered path.
+     * Create the {@link PathSearch} engine named <tt>algorithm</tt>, behind
+     * a {@link ReachabilityFilter}.
+     * 
+     * @param algorithm {@link String}, the algorithm name
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param indexDirectory {@link File}, the directory to keep landmark
+     * index files in, used by the <tt>alt</tt> algorithm
+     * @param landmarks <tt>int</tt>, the number of landmarks, used by the
+     * <tt>alt</tt> algorithm
+     * @param treeCache {@link ShortestPathTreeCache}, the tree cache, used by
+     * the <tt>tree</tt> algorithm
+     * @return {@link PathSearch}, the engine, or <tt>null</tt> if the name is
+     * not recognized
+     */
+    static PathSearch createPathSearch(String algorithm, TraversalMode mode,
+            File indexDirectory, int landmarks,
+            ShortestPathTreeCache treeCache) {
+        PathSearch pathSearch;
+        if ("dijkstra".equals(algorithm)) {
+            pathSearch = new DijkstraPathSearch(mode);
+        } else if ("bidirectional".equals(algorithm)) {
+            pathSearch = new BidirectionalPathSearch(mode);
+        } else if ("dial".equals(algorithm)) {
+            pathSearch = new DialPathSearch(mode);
+        } else if ("alt".equals(algorithm)) {
+            pathSearch = new AltPathSearch(mode, indexDirectory, landmarks);
+        } else if ("tree".equals(algorithm) && treeCache != null) {
+            pathSearch = new CachedTreePathSearch(treeCache, mode);
+        } else {
+            return null;
+        }
+        
+        // answer pairs in different components without searching
+        return new ReachabilityFilter(pathSearch, mode);
+    }
+    
+    /**
+     * Write the XGMML representation of the discovered path and, if a
+     * neighborhood is set, the nodes around it.  Nodes and edges are taken
+     * from the path nodes' adjacency in <tt>graph</tt>, so the cost is
+     * proportional to the exported subgraph, not the kam.
      * 
-     * @param kam {@link Kam}, the kam used for path find
-     * @param pathNodes {@link List} of {@link KamNode}, the path's kam nodes
+     * @param graph {@link KamGraph}, the graph used for path find
+     * @param path {@link GraphPath}, the discovered path
      * @throws IOException Thrown if an IO error occurs while writing out the
      * XGMML file
      * @throws KamStoreException Thrown if an KamStore error occurs while
      * retrieving the supporting terms for a {@link KamNode}
      */
-    private void writeXGMML(Kam kam, List<KamNode> pathNodes)
+    private void writeXGMML(KamGraph graph, GraphPath path)
             throws IOException, KamStoreException {
-        // Set up a writer to write the XGMML
-        PrintWriter writer = new PrintWriter(new File(outputFile));
-
-        // Write xgmml <graph> element header
-        XGMMLUtility.writeStart("Path from " + sourceNodeId + " to "
-                + targetNodeId, writer);
+        PathSubgraph subgraph = PathSubgraph.around(graph, path, neighborhood);
 
-        // Iterate over the path nodes and capture in XGMML
-        for (KamNode pathNode : pathNodes) {
+        // fetch every node's supporting terms, once each, before writing;
+        // the KAM Store has no multi-node lookup
+        Map<Integer, Node> xNodes = new HashMap<Integer, Node>();
+        List<List<BelTerm>> supportingTerms = new ArrayList<List<BelTerm>>(
+                subgraph.nodeCount());
+        for (int i = 0; i < subgraph.nodeCount(); i++) {
+            KamNode kamNode = graph.node(subgraph.node(i));
             Node xNode = new Node();
-            xNode.id = pathNode.getId();
-            xNode.label = pathNode.getLabel();
-            xNode.function = pathNode.getFunctionType();
+            xNode.id = kamNode.getId();
+            xNode.label = kamNode.getLabel();
+            xNode.function = kamNode.getFunctionType();
+            xNodes.put(subgraph.node(i), xNode);
+            supportingTerms.add(kamStore.getSupportingTerms(kamNode));
+        }
 
-            List<BelTerm> supportingTerms = kamStore
-                    .getSupportingTerms(pathNode);
+        // Set up a writer to write the XGMML
+        PrintWriter writer = new PrintWriter(new File(outputFile));
+        try {
+            // Write xgmml <graph> element header
+            XGMMLUtility.writeStart("Path from " + sourceNodeId + " to "
+                    + targetNodeId, writer);
 
-            XGMMLUtility.writeNode(xNode, supportingTerms, writer);
-        }
-        
-        Set<KamNode> pathNodeSet = new HashSet<Kam.KamNode>(pathNodes);
+            // Capture the path nodes, and their neighborhood, in XGMML
+            for (int i = 0; i < subgraph.nodeCount(); i++) {
+                XGMMLUtility.writeNode(xNodes.get(subgraph.node(i)),
+                        supportingTerms.get(i), writer);
+            }
 
-        // Iterate over the path nodes, find the edges, and capture in XGMML
-        for (KamEdge edge : kam.getEdges()) {
-            if (pathNodeSet.contains(edge.getSourceNode())
-                    && pathNodeSet.contains(edge.getTargetNode())) {
+            // Capture the edges between them in XGMML
+            for (int i = 0; i < subgraph.edgeCount(); i++) {
+                int edge = subgraph.edge(i);
+                KamEdge kamEdge = graph.edge(edge);
                 Edge xEdge = new Edge();
-                xEdge.id = edge.getId();
-                xEdge.rel = edge.getRelationshipType();
-                xEdge.source = edge.getSourceNode().getId();
-                xEdge.target = edge.getTargetNode().getId();
-                
-                XGMMLUtility.writeEdge(xEdge, writer);
+                xEdge.id = kamEdge.getId();
+                xEdge.rel = kamEdge.getRelationshipType();
+                xEdge.source = kamEdge.getSourceNode().getId();
+                xEdge.target = kamEdge.getTargetNode().getId();
+
+                XGMMLUtility.writeEdge(xNodes.get(graph.source(edge)),
+                        xNodes.get(graph.target(edge)), xEdge, writer);
             }
-        }
 
-        // Close out the writer
-        XGMMLUtility.writeEnd(writer);
-        writer.close();
+            // Close out the writer
+            XGMMLUtility.writeEnd(writer);
+        } finally {
+            writer.close();
+        }
     }
     
     /**
@@ -439,6 +500,21 @@ public class PathFinder {
         Integer sourceNodeId = null;
         Integer targetNodeId = null;
         String outputFile = null;
+        String algorithm = "dijkstra";
+        TraversalMode mode = TraversalMode.UNDIRECTED;
+        String indexDirectory = ".";
+        int landmarks = 16;
+        int treeCacheMegabytes = 256;
+        int maxHops = SearchBudget.UNLIMITED;
+        int maxSettled = SearchBudget.UNLIMITED;
+        long timeout = SearchBudget.UNLIMITED;
+        int neighborhood = 0;
+        String batchFile = null;
+        String sourcesFile = null;
+        String targetsFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int kShortest = 0;
+        boolean distances = false;
         for(int i = 0; i < args.length; i++) {
             String arg = args[i];
             
@@ -474,21 +550,219 @@ public class PathFinder {
                 } else {
                     printUsageThenExit();
                 }
+            } else if (arg.equals("-a") || arg.equals("--algorithm")) {
+                if ((i + 1) < args.length) {
+                    algorithm = args[i + 1];
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("-m") || arg.equals("--mode")) {
+                if ((i + 1) < args.length) {
+                    mode = TraversalMode.forName(args[i + 1]);
+                    if (mode == null) {
+                        printUsageThenExit();
+                    }
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("--landmarks")) {
+                if ((i + 1) < args.length) {
+                    try {
+                        landmarks = Integer.parseInt(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        printUsageThenExit();
+                    }
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("--tree-cache")) {
+                if ((i + 1) < args.length) {
+                    try {
+                        treeCacheMegabytes = Integer.parseInt(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        printUsageThenExit();
+                    }
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("--index-dir")) {
+                if ((i + 1) < args.length) {
+                    indexDirectory = args[i + 1];
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("-b") || arg.equals("--batch")) {
+                if ((i + 1) < args.length) {
+                    batchFile = args[i + 1];
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("--sources")) {
+                if ((i + 1) < args.length) {
+                    sourcesFile = args[i + 1];
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("--targets")) {
+                if ((i + 1) < args.length) {
+                    targetsFile = args[i + 1];
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("-K") || arg.equals("--k-shortest")) {
+                if ((i + 1) < args.length) {
+                    try {
+                        kShortest = Integer.parseInt(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        printUsageThenExit();
+                    }
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("--neighborhood")) {
+                if ((i + 1) < args.length) {
+                    try {
+                        neighborhood = Integer.parseInt(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        printUsageThenExit();
+                    }
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("--max-hops")) {
+                if ((i + 1) < args.length) {
+                    try {
+                        maxHops = Integer.parseInt(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        printUsageThenExit();
+                    }
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("--max-settled")) {
+                if ((i + 1) < args.length) {
+                    try {
+                        maxSettled = Integer.parseInt(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        printUsageThenExit();
+                    }
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("--timeout")) {
+                if ((i + 1) < args.length) {
+                    try {
+                        timeout = Long.parseLong(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        printUsageThenExit();
+                    }
+                } else {
+                    printUsageThenExit();
+                }
+            } else if (arg.equals("-D") || arg.equals("--distances")) {
+                distances = true;
+            } else if (arg.equals("--threads")) {
+                if ((i + 1) < args.length) {
+                    try {
+                        threads = Integer.parseInt(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        printUsageThenExit();
+                    }
+                } else {
+                    printUsageThenExit();
+                }
             }
         }
 
-        if (kamName == null || sourceNodeId == null || targetNodeId == null) {
+        boolean batch = batchFile != null || sourcesFile != null
+                || targetsFile != null;
+        if (kamName == null) {
+            printUsageThenExit();
+        }
+        if (batch) {
+            // either a pairs file or both a sources and a targets file
+            if ((batchFile != null) == (sourcesFile != null || targetsFile != null)
+                    || (batchFile == null && (sourcesFile == null || targetsFile == null))
+                    || threads < 1) {
+                printUsageThenExit();
+            }
+        } else if (distances) {
+            if (sourceNodeId == null || targetNodeId != null || threads < 1) {
+                printUsageThenExit();
+            }
+        } else if (sourceNodeId == null || targetNodeId == null
+                || kShortest < 0) {
             printUsageThenExit();
         }
         
         if (outputFile == null) {
-            outputFile = "path_" + sourceNodeId + "_" + targetNodeId + ".xgmml";
+            if (batch) {
+                outputFile = "paths.tsv";
+            } else if (distances) {
+                outputFile = "distances_" + sourceNodeId + ".tsv";
+            } else if (kShortest > 0) {
+                outputFile = "paths_" + sourceNodeId + "_" + targetNodeId + ".tsv";
+            } else {
+                outputFile = "path_" + sourceNodeId + "_" + targetNodeId + ".xgmml";
+            }
+        }
+        
+        if (landmarks < 1 || treeCacheMegabytes < 1 || maxHops < 0
+                || maxSettled < 0 || timeout < 0 || neighborhood < 0) {
+            printUsageThenExit();
+        }
+        SearchBudget limits = new SearchBudget(maxHops, maxSettled, timeout);
+        ShortestPathTreeCache treeCache = null;
+        if ("tree".equals(algorithm)) {
+            treeCache = new ShortestPathTreeCache(treeCacheMegabytes * 1024L * 1024L);
+        }
+        PathSearch pathSearch = createPathSearch(algorithm, mode,
+                new File(indexDirectory), landmarks, treeCache);
+        if (pathSearch == null) {
+            printUsageThenExit();
+        }
+        
+        if (batch) {
+            try {
+                BatchPathFinder batchPathFinder;
+                if (batchFile != null) {
+                    int[][] queries = BatchPathFinder.readPairs(new File(batchFile));
+                    batchPathFinder = new BatchPathFinder(kamName, queries[0],
+                            queries[1], outputFile, pathSearch, threads, limits);
+                } else {
+                    batchPathFinder = BatchPathFinder.crossProduct(kamName,
+                            BatchPathFinder.readIds(new File(sourcesFile)),
+                            BatchPathFinder.readIds(new File(targetsFile)),
+                            outputFile, pathSearch, threads, limits);
+                }
+                batchPathFinder.run();
+            } catch (Exception e) {
+                System.out.println("Error running path batch - " + e.getMessage());
+            }
+            return;
+        }
+        
+        if (distances) {
+            try {
+                new DistanceExporter(kamName, sourceNodeId, outputFile, mode,
+                        threads).run();
+            } catch (Exception e) {
+                System.out.println("Error exporting distances - " + e.getMessage());
+            }
+            return;
         }
         
         //Run path finder.
         try {
-            new PathFinder(kamName, sourceNodeId, targetNodeId, outputFile)
-                    .runPathFind();
+            PathFinder pathFinder = new PathFinder(kamName, sourceNodeId,
+                    targetNodeId, outputFile, pathSearch);
+            pathFinder.setLimits(limits);
+            pathFinder.setNeighborhood(neighborhood);
+            if (kShortest > 0) {
+                pathFinder.runKShortestPaths(kShortest, mode);
+            } else {
+                pathFinder.runPathFind();
+            }
         } catch (Exception e) {
             System.out.println("Error exporting KAM - " + e.getMessage());
         }
@@ -503,7 +777,37 @@ public class PathFinder {
                 "  -k KAM,     --kam-name KAM        The kam to pathfind in.\n" +
                 "  -s NODE ID, --source-node-id NODE ID  The source node id to pathfind from.\n" +
                 "  -t NODE ID, --target-node-id NODE ID  The target node id to pathfind to.\n" +
-                "  -o FILE,    --output-file FILE     The file to save the XGMML path to.");
+                "  -o FILE,    --output-file FILE     The file to save the XGMML path to.\n" +
+                "  --neighborhood N                   Also save the nodes within N edges of\n" +
+                "                                     the path to the XGMML (default 0).\n" +
+                "  -a ALGORITHM, --algorithm ALGORITHM  The path search algorithm;\n" +
+                "                                     dijkstra (default), bidirectional, dial, alt,\n" +
+                "                                     or tree (caches the full shortest path tree\n" +
+                "                                     of each source; suits batches with few sources).\n" +
+                "  -m MODE,    --mode MODE            The edges to follow; undirected (default),\n" +
+                "                                     directed (source to target only), or causal\n" +
+                "                                     (directed, causal and direct edges only).\n" +
+                "  --landmarks N                      The number of alt landmarks (default 16).\n" +
+                "  --index-dir DIR                    The directory for alt landmark index files\n" +
+                "                                     (default current directory).\n" +
+                "  --tree-cache MB                    The tree algorithm's cache size (default 256).\n" +
+                "  --max-hops N                       Only extend paths up to N edges.\n" +
+                "  --max-settled N                    Stop a search after settling N nodes.\n" +
+                "  --timeout MS                       Stop a search after MS milliseconds.\n" +
+                "                                     A stopped search reports why, and the best\n" +
+                "                                     path found so far if any.\n" +
+                "  -K N,       --k-shortest N         Find the N shortest loopless paths and\n" +
+                "                                     write them to -o as they are found.\n" +
+                "  -D,         --distances            Instead of -t, write the distance from -s\n" +
+                "                                     to every node to -o (default\n" +
+                "                                     distances_<source>.tsv), computed on\n" +
+                "                                     --threads threads.\n" +
+                "\n" +
+                "Batch mode, instead of -s / -t (results are written to -o, default paths.tsv):\n" +
+                "  -b FILE,    --batch FILE           A file of \"source-id target-id\" lines.\n" +
+                "  --sources FILE --targets FILE      Files of node ids, one per line; every\n" +
+                "                                     source is paired with every target.\n" +
+                "  --threads N                        The number of worker threads (default cores).");
         System.exit(1);
     }
 }
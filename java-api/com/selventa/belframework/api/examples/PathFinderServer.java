@@ -0,0 +1,679 @@
+package com.selventa.belframework.api.examples;
+
+import static com.selventa.belframework.common.enums.BELFrameworkVersion.VERSION_LABEL;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import com.selventa.belframework.api.KamStore;
+import com.selventa.belframework.api.KamStoreImpl;
+import com.selventa.belframework.common.cfg.SystemConfiguration;
+import com.selventa.belframework.df.DBConnection;
+import com.selventa.belframework.df.DatabaseService;
+import com.selventa.belframework.df.DatabaseServiceImpl;
+import com.selventa.belframework.kamstore.model.Kam;
+import com.selventa.belframework.kamstore.model.KamStoreException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * PathFinderServer is a long-running, local HTTP server that answers path
+ * queries against resident {@link KamGraph kam graphs}.
+ *
+ * <p>
+ * The KAM Store connection is opened once at startup.  Each kam is loaded
+ * and snapshotted the first time it is queried (or at startup, if named on
+ * the command-line) and its {@link KamGraph} is kept for the life of the
+ * server, so only the first query against a kam pays the load cost.
+ * Queries run concurrently on a fixed pool of worker threads.
+ * </p>
+ *
+ * <p>
+ * Endpoints:
+ * <ul>
+ * <li><tt>GET /path?kam=KAM&amp;source=ID&amp;target=ID[&amp;algorithm=NAME][&amp;mode=MODE][&amp;k=N][&amp;maxHops=N][&amp;maxSettled=N][&amp;timeout=MS]</tt>
+ * - the shortest path, or the <tt>k</tt> shortest loopless paths, as
+ * tab-separated lines</li>
+ * <li><tt>GET /kams</tt> - the resident kams and their sizes</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * Every query runs within a {@link SearchBudget} built from the server's
+ * limits; a query may ask for tighter limits but not looser ones, so one
+ * pathological query cannot hold a worker thread indefinitely.  Queries
+ * still running when the server stops are cancelled.
+ * </p>
+ */
+public class PathFinderServer {
+
+    /**
+     * Seconds to wait for queries in flight when stopping.
+     */
+    private static final int STOP_WAIT_SECONDS = 30;
+
+    /**
+     * Holds the path search engines, by algorithm and traversal mode name.
+     */
+    private final Map<String, PathSearch> pathSearches;
+
+    /**
+     * Holds the address to listen on.
+     */
+    private final InetSocketAddress address;
+
+    /**
+     * Holds the number of query worker threads.
+     */
+    private final int threads;
+
+    /**
+     * Holds the loaded (or loading) graph of each kam, by kam name.
+     */
+    private final ConcurrentMap<String, Future<KamGraph>> graphs = new ConcurrentHashMap<String, Future<KamGraph>>();
+
+    /**
+     * Holds the most edges on a path.
+     */
+    private final int maxHops;
+
+    /**
+     * Holds the most nodes a query may settle.
+     */
+    private final int maxSettled;
+
+    /**
+     * Holds the time a query may run, in milliseconds.
+     */
+    private final long timeoutMillis;
+
+    /**
+     * Holds the budgets of the queries in flight.
+     */
+    private final Set<SearchBudget> running = Collections.newSetFromMap(new ConcurrentHashMap<SearchBudget, Boolean>());
+
+    private KamStore kamStore;
+    private DBConnection dbc;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructs the PathFinderServer.
+     *
+     * @param address {@link InetSocketAddress}, the address to listen on
+     * @param threads <tt>int</tt>, the number of query worker threads
+     * @param indexDirectory {@link File}, the directory to keep landmark
+     * index files in
+     * @param landmarks <tt>int</tt>, the number of alt landmarks
+     * @param treeCacheBytes <tt>long</tt>, the memory budget of the
+     * shortest path tree cache used by the <tt>tree</tt> algorithm
+     * @param maxHops <tt>int</tt>, the most edges on a path, or
+     * {@link SearchBudget#UNLIMITED}
+     * @param maxSettled <tt>int</tt>, the most nodes a query may settle, or
+     * {@link SearchBudget#UNLIMITED}
+     * @param timeoutMillis <tt>long</tt>, the time a query may run, or
+     * {@link SearchBudget#UNLIMITED}
+     */
+    public PathFinderServer(InetSocketAddress address, int threads,
+            File indexDirectory, int landmarks, long treeCacheBytes,
+            int maxHops, int maxSettled, long timeoutMillis) {
+        if (address == null || indexDirectory == null) {
+            throw new IllegalArgumentException("input(s) were null.");
+        }
+        if (threads < 1 || landmarks < 1 || treeCacheBytes < 1
+                || maxHops < 0 || maxSettled < 0 || timeoutMillis < 0) {
+            throw new IllegalArgumentException("invalid server settings.");
+        }
+        this.address = address;
+        this.threads = threads;
+        this.maxHops = maxHops;
+        this.maxSettled = maxSettled;
+        this.timeoutMillis = timeoutMillis;
+
+        // engines are stateless per query, so one of each serves every thread;
+        // the tree engines of every mode share one cache
+        ShortestPathTreeCache treeCache = new ShortestPathTreeCache(treeCacheBytes);
+        Map<String, PathSearch> searches = new HashMap<String, PathSearch>();
+        for (String algorithm : new String[] { "dijkstra", "bidirectional",
+                "dial", "alt", "tree" }) {
+            for (TraversalMode mode : TraversalMode.values()) {
+                searches.put(engineKey(algorithm, mode),
+                        PathFinder.createPathSearch(algorithm, mode,
+                                indexDirectory, landmarks, treeCache));
+            }
+        }
+        this.pathSearches = searches;
+    }
+
+    /**
+     * Connect to the KAM Store, load the <tt>preload</tt> kams, and start
+     * answering queries.
+     *
+     * @param preload {@link List} of {@link String}, the kams to load before
+     * accepting queries
+     * @throws IOException Thrown if the system configuration could not be
+     * read or the server could not bind
+     * @throws SQLException Thrown if a SQL error occurred connecting to the
+     * KAM Store
+     * @throws KamStoreException Thrown if a preload kam could not be loaded
+     */
+    public void start(List<String> preload) throws IOException, SQLException,
+            KamStoreException {
+        SystemConfiguration.createSystemConfiguration(null);
+        SystemConfiguration config = SystemConfiguration.getSystemConfiguration();
+
+        // Setup a database connector to the KAM Store.
+        DatabaseService dbService = new DatabaseServiceImpl();
+        dbc = dbService.dbConnection(
+                config.getKamURL(),
+                config.getKamUser(),
+                config.getKamPassword());
+        kamStore = new KamStoreImpl(dbc);
+
+        for (String kamName : preload) {
+            graph(kamName);
+        }
+
+        server = HttpServer.create(address, 0);
+        server.createContext("/path", new PathHandler());
+        server.createContext("/kams", new KamsHandler());
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("Listening on " + address + " with " + threads
+                + " threads...");
+    }
+
+    /**
+     * Stop answering queries and, once the queries in flight have finished,
+     * close the KAM Store connection.
+     *
+     * @throws SQLException Thrown if the connection could not be closed
+     */
+    public void stop() throws SQLException {
+        if (server != null) {
+            server.stop(0);
+            for (SearchBudget budget : running) {
+                budget.cancel();
+            }
+            executor.shutdown();
+            try {
+                // a kam load cannot be cancelled, so let it finish reading
+                if (!executor.awaitTermination(STOP_WAIT_SECONDS,
+                        TimeUnit.SECONDS)) {
+                    System.out.println("Error stopping server - queries "
+                            + "still running after " + STOP_WAIT_SECONDS
+                            + " seconds");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (dbc != null) {
+            // never close the connection under a load that is still reading
+            synchronized (kamStore) {
+                dbc.getConnection().close();
+            }
+        }
+        System.out.println("\nTerminated.");
+    }
+
+    /**
+     * Returns the graph of <tt>kamName</tt>, loading it if no other query
+     * has.  Concurrent queries for a kam that is still loading wait for that
+     * load rather than starting their own.
+     *
+     * @param kamName {@link String}, the kam name
+     * @return {@link KamGraph}
+     * @throws KamStoreException Thrown if the kam could not be loaded
+     */
+    KamGraph graph(final String kamName) throws KamStoreException {
+        Future<KamGraph> graph = graphs.get(kamName);
+        if (graph == null) {
+            FutureTask<KamGraph> load = new FutureTask<KamGraph>(
+                    new Callable<KamGraph>() {
+                        @Override
+                        public KamGraph call() throws KamStoreException {
+                            return load(kamName);
+                        }
+                    });
+            graph = graphs.putIfAbsent(kamName, load);
+            if (graph == null) {
+                graph = load;
+                load.run();
+            }
+        }
+
+        try {
+            return graph.get();
+        } catch (ExecutionException e) {
+            // forget the failure so a later query can retry the load
+            graphs.remove(kamName, graph);
+            if (e.getCause() instanceof KamStoreException) {
+                throw (KamStoreException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KamStoreException("interrupted loading kam " + kamName);
+        }
+    }
+
+    /**
+     * Load and snapshot <tt>kamName</tt> over the shared KAM Store
+     * connection.
+     */
+    private KamGraph load(String kamName) throws KamStoreException {
+        synchronized (kamStore) {
+            System.out.println("Loading kam " + kamName + "...");
+            Kam kam = kamStore.getKam(kamName);
+            KamGraph graph = KamGraph.snapshot(kam);
+
+            // the snapshot holds everything the queries need
+            kamStore.close(kam);
+            return graph;
+        }
+    }
+
+    /**
+     * PathHandler answers <tt>/path</tt> queries.
+     */
+    private final class PathHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                Map<String, String> params = parseQuery(exchange);
+                String kamName = params.get("kam");
+                String algorithm = params.containsKey("algorithm")
+                        ? params.get("algorithm") : "dijkstra";
+                TraversalMode mode = params.containsKey("mode")
+                        ? TraversalMode.forName(params.get("mode"))
+                        : TraversalMode.UNDIRECTED;
+                PathSearch pathSearch = mode == null ? null
+                        : pathSearches.get(engineKey(algorithm, mode));
+                int sourceNodeId, targetNodeId, k;
+                try {
+                    sourceNodeId = Integer.parseInt(params.get("source"));
+                    targetNodeId = Integer.parseInt(params.get("target"));
+                    k = params.containsKey("k")
+                            ? Integer.parseInt(params.get("k")) : 0;
+                } catch (NumberFormatException e) {
+                    respond(exchange, 400, "source and target node ids are required");
+                    return;
+                }
+                if (kamName == null || pathSearch == null || k < 0) {
+                    respond(exchange, 400, "invalid kam, algorithm, mode, or k");
+                    return;
+                }
+                SearchBudget budget = budget(params);
+                if (budget == null) {
+                    respond(exchange, 400, "invalid maxHops, maxSettled, or timeout");
+                    return;
+                }
+
+                KamGraph graph;
+                try {
+                    graph = graph(kamName);
+                } catch (KamStoreException e) {
+                    respond(exchange, 404, "kam cannot be loaded: " + kamName);
+                    return;
+                }
+
+                int source = graph.indexOf(sourceNodeId);
+                int target = graph.indexOf(targetNodeId);
+                if (source == -1 || target == -1) {
+                    respond(exchange, 404, "node not found");
+                    return;
+                }
+
+                running.add(budget);
+                try {
+                    if (k > 0) {
+                        streamKShortestPaths(exchange, graph, mode, source,
+                                target, k, budget);
+                        return;
+                    }
+                    respondPath(exchange, graph,
+                            pathSearch.search(graph, source, target, budget));
+                } finally {
+                    running.remove(budget);
+                }
+            } catch (RuntimeException e) {
+                if (exchange.getResponseCode() == -1) {
+                    respond(exchange, 500, String.valueOf(e.getMessage()));
+                } else {
+                    // a streamed response has already sent its status, so
+                    // the failure can only be logged
+                    System.out.println("Error answering "
+                            + exchange.getRequestURI() + " - "
+                            + e.getMessage());
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        /**
+         * Send a path search result.  A search stopped with the target
+         * labelled still answers with the best path it saw, marked with the
+         * reason it stopped.
+         */
+        private void respondPath(HttpExchange exchange, KamGraph graph,
+                SearchResult result) throws IOException {
+            GraphPath path = result.getPath();
+            String status = result.getStatus().getLabel();
+            if (path != null) {
+                respond(exchange, 200, "#status\tdistance\tpath\n" + status
+                        + "\t" + path.getDistance() + "\t"
+                        + path.formatNodeIds(graph));
+            } else if (result.getStatus().isComplete()) {
+                respond(exchange, 404, status);
+            } else {
+                respond(exchange, 503, "search stopped: " + status);
+            }
+        }
+
+        /**
+         * Write each of the <tt>k</tt> shortest paths to the response as it
+         * is found.  The search is cancelled if the client goes away, and a
+         * final <tt>#stopped</tt> line gives the reason if it was stopped,
+         * or an <tt>#error</tt> line the message if it failed.
+         */
+        private void streamKShortestPaths(HttpExchange exchange,
+                final KamGraph graph, TraversalMode mode, int source,
+                int target, int k, final SearchBudget budget)
+                throws IOException {
+            exchange.getResponseHeaders().set("Content-Type",
+                    "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(200, 0);
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                    exchange.getResponseBody(), "UTF-8"));
+            try {
+                writer.println("#rank\tdistance\tpath");
+                new KShortestPaths(mode).search(graph, source, target, k,
+                        new KShortestPaths.PathListener() {
+                            @Override
+                            public void pathFound(int rank, GraphPath path) {
+                                writer.println(rank + "\t" + path.getDistance()
+                                        + "\t" + path.formatNodeIds(graph));
+                                if (writer.checkError()) {
+                                    budget.cancel();
+                                }
+                            }
+                        }, budget);
+                if (budget.getExhausted() != null) {
+                    writer.println("#stopped\t" + budget.getExhausted().getLabel());
+                }
+            } catch (RuntimeException e) {
+                // the status is already sent; mark the paths so far as cut
+                // short before the stream ends
+                writer.println("#error\t" + e.getMessage());
+                throw e;
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * KamsHandler answers <tt>/kams</tt> queries.
+     */
+    private final class KamsHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                StringBuilder body = new StringBuilder("#kam\tnodes\tedges\n");
+                Map<String, Future<KamGraph>> sorted = new TreeMap<String, Future<KamGraph>>(graphs);
+                for (Map.Entry<String, Future<KamGraph>> entry : sorted.entrySet()) {
+                    Future<KamGraph> graph = entry.getValue();
+                    body.append(entry.getKey()).append('\t');
+                    if (!graph.isDone()) {
+                        body.append("loading\tloading\n");
+                        continue;
+                    }
+                    try {
+                        KamGraph g = graph.get();
+                        body.append(g.nodeCount()).append('\t')
+                                .append(g.edgeCount()).append('\n');
+                    } catch (ExecutionException e) {
+                        body.append("failed\tfailed\n");
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                respond(exchange, 200, body.toString());
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Build the budget of a query from the server limits, tightened by the
+     * query's <tt>maxHops</tt>, <tt>maxSettled</tt> and <tt>timeout</tt>
+     * parameters.
+     *
+     * @return {@link SearchBudget}, or <tt>null</tt> if a parameter is
+     * invalid
+     */
+    private SearchBudget budget(Map<String, String> params) {
+        try {
+            int hops = params.containsKey("maxHops")
+                    ? Integer.parseInt(params.get("maxHops")) : 0;
+            int settled = params.containsKey("maxSettled")
+                    ? Integer.parseInt(params.get("maxSettled")) : 0;
+            long timeout = params.containsKey("timeout")
+                    ? Long.parseLong(params.get("timeout")) : 0;
+            if (hops < 0 || settled < 0 || timeout < 0) {
+                return null;
+            }
+            return new SearchBudget((int) tighten(maxHops, hops),
+                    (int) tighten(maxSettled, settled),
+                    tighten(timeoutMillis, timeout));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the tighter of two limits, either of which may be
+     * {@link SearchBudget#UNLIMITED}.
+     */
+    private static long tighten(long limit, long requested) {
+        if (limit == SearchBudget.UNLIMITED) {
+            return requested;
+        }
+        if (requested == SearchBudget.UNLIMITED) {
+            return limit;
+        }
+        return Math.min(limit, requested);
+    }
+
+    private static String engineKey(String algorithm, TraversalMode mode) {
+        return algorithm + "/" + mode.name();
+    }
+
+    /**
+     * Decode the query string parameters of <tt>exchange</tt>.
+     */
+    private static Map<String, String> parseQuery(HttpExchange exchange)
+            throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<String, String>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String param : query.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(param.substring(0, eq), "UTF-8"),
+                        URLDecoder.decode(param.substring(eq + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Send <tt>body</tt> as a plain text response.
+     */
+    private static void respond(HttpExchange exchange, int status, String body)
+            throws IOException {
+        byte[] bytes = (body + "\n").getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type",
+                "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Starts the path query server with the command-line arguments provided
+     * in <tt>args</tt>.
+     *
+     * @param args <tt>String[]</tt>, the main command-line arguments
+     */
+    public static void main(String[] args) {
+        final StringBuilder bldr = new StringBuilder();
+        bldr.append("\n");
+        bldr.append(VERSION_LABEL).append(": PathFinder Server\n");
+        bldr.append("Copyright (c) 2011-2012, Selventa. All Rights Reserved.\n");
+        bldr.append("\n");
+        System.out.println(bldr.toString());
+
+        List<String> preload = new ArrayList<String>();
+        String bind = "127.0.0.1";
+        int port = 8090;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String indexDirectory = ".";
+        int landmarks = 16;
+        int treeCacheMegabytes = 256;
+        int maxHops = SearchBudget.UNLIMITED;
+        int maxSettled = SearchBudget.UNLIMITED;
+        long timeout = 10000;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                printUsageThenExit();
+            }
+            if ((i + 1) >= args.length) {
+                printUsageThenExit();
+            }
+            String value = args[++i];
+            try {
+                if (arg.equals("-k") || arg.equals("--kam-name")) {
+                    preload.add(value);
+                } else if (arg.equals("-p") || arg.equals("--port")) {
+                    port = Integer.parseInt(value);
+                } else if (arg.equals("--bind")) {
+                    bind = value;
+                } else if (arg.equals("--threads")) {
+                    threads = Integer.parseInt(value);
+                } else if (arg.equals("--landmarks")) {
+                    landmarks = Integer.parseInt(value);
+                } else if (arg.equals("--index-dir")) {
+                    indexDirectory = value;
+                } else if (arg.equals("--tree-cache")) {
+                    treeCacheMegabytes = Integer.parseInt(value);
+                } else if (arg.equals("--max-hops")) {
+                    maxHops = Integer.parseInt(value);
+                } else if (arg.equals("--max-settled")) {
+                    maxSettled = Integer.parseInt(value);
+                } else if (arg.equals("--timeout")) {
+                    timeout = Long.parseLong(value);
+                } else {
+                    printUsageThenExit();
+                }
+            } catch (NumberFormatException e) {
+                printUsageThenExit();
+            }
+        }
+        if (port < 0 || port > 65535 || threads < 1 || landmarks < 1
+                || treeCacheMegabytes < 1 || maxHops < 0 || maxSettled < 0
+                || timeout < 0) {
+            printUsageThenExit();
+        }
+
+        try {
+            final PathFinderServer pathFinderServer = new PathFinderServer(
+                    new InetSocketAddress(InetAddress.getByName(bind), port),
+                    threads, new File(indexDirectory), landmarks,
+                    treeCacheMegabytes * 1024L * 1024L, maxHops, maxSettled,
+                    timeout);
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        pathFinderServer.stop();
+                    } catch (SQLException e) {
+                        System.out.println("Error closing KAM Store - " + e.getMessage());
+                    }
+                }
+            });
+            pathFinderServer.start(preload);
+        } catch (Exception e) {
+            System.out.println("Error starting server - " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Print the PathFinderServer command-line arguments and exit the JVM.
+     */
+    private static void printUsageThenExit() {
+        System.out.println(
+                "Usage:\n" +
+                "  -k KAM,  --kam-name KAM   A kam to load at startup; may be repeated.\n" +
+                "                            Other kams are loaded on first query.\n" +
+                "  -p PORT, --port PORT      The port to listen on (default 8090).\n" +
+                "  --bind ADDRESS            The address to listen on (default 127.0.0.1).\n" +
+                "  --threads N               The number of query threads (default cores).\n" +
+                "  --landmarks N             The number of alt landmarks (default 16).\n" +
+                "  --index-dir DIR           The directory for alt landmark index files\n" +
+                "                            (default current directory).\n" +
+                "  --tree-cache MB           The shortest path tree cache size used by\n" +
+                "                            the tree algorithm (default 256).\n" +
+                "  --max-hops N              The most edges on a path (default unlimited).\n" +
+                "  --max-settled N           The most nodes a query may settle\n" +
+                "                            (default unlimited).\n" +
+                "  --timeout MS              The time a query may run, 0 for unlimited\n" +
+                "                            (default 10000).\n" +
+                "\n" +
+                "Queries (maxHops, maxSettled and timeout may only tighten the limits):\n" +
+                "  GET /path?kam=KAM&source=ID&target=ID[&algorithm=NAME][&mode=MODE][&k=N]\n" +
+                "            [&maxHops=N][&maxSettled=N][&timeout=MS]\n" +
+                "  GET /kams");
+        System.exit(1);
+    }
+}
@@ -0,0 +1,47 @@
+package com.selventa.belframework.api.examples;
+
+/**
+ * PathSearch defines a point-to-point shortest path engine over a
+ * {@link KamGraph}.
+ *
+ * <p>
+ * Implementations keep all per-query state local to
+ * {@link #search(KamGraph, int, int)} so a single instance can serve
+ * concurrent queries against a shared graph.  The edges a search may
+ * follow are fixed per instance by its {@link TraversalMode}.
+ * </p>
+ */
+public interface PathSearch {
+
+    /**
+     * Find the shortest path from <tt>source</tt> to <tt>target</tt>.
+     *
+     * @param graph {@link KamGraph}, the graph to search
+     * @param source <tt>int</tt>, the source node index
+     * @param target <tt>int</tt>, the target node index
+     * @return {@link GraphPath}, the shortest path, or <tt>null</tt> if
+     * <tt>target</tt> cannot be reached from <tt>source</tt>
+     */
+    GraphPath search(KamGraph graph, int source, int target);
+
+    /**
+     * Find the shortest path from <tt>source</tt> to <tt>target</tt> within
+     * <tt>budget</tt>.
+     *
+     * <p>
+     * Under a hop limit the path found is the shortest path of at most
+     * that many edges, even where the unlimited shortest path is longer in
+     * hops; {@link SearchResult.Status#HOP_LIMIT} means no path exists
+     * within the limit.  If the budget runs out first a partial result is
+     * returned, see {@link SearchResult}.
+     * </p>
+     *
+     * @param graph {@link KamGraph}, the graph to search
+     * @param source <tt>int</tt>, the source node index
+     * @param target <tt>int</tt>, the target node index
+     * @param budget {@link SearchBudget}, the query limits
+     * @return {@link SearchResult}, the path and the reason the search ended
+     */
+    SearchResult search(KamGraph graph, int source, int target,
+            SearchBudget budget);
+}
@@ -0,0 +1,144 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * PathSubgraph is the part of a {@link KamGraph} exported with a path: the
+ * path nodes, optionally every node within a number of hops of them, and
+ * all edges between the included nodes.
+ *
+ * <p>
+ * It is built from the adjacency of the included nodes only, so apart from
+ * one bit per kam node marking the included nodes, its cost is
+ * proportional to the size of the subgraph and their degree, not to the
+ * size of the kam.  Neighborhood hops follow edges in either direction.
+ * </p>
+ */
+final class PathSubgraph {
+
+    /**
+     * Holds the included node indices: the path nodes in path order, then
+     * neighbors in breadth-first order.
+     */
+    private final int[] nodes;
+
+    /**
+     * Holds the included edge indices, in ascending order.
+     */
+    private final int[] edges;
+
+    private PathSubgraph(int[] nodes, int[] edges) {
+        this.nodes = nodes;
+        this.edges = edges;
+    }
+
+    /**
+     * Build the subgraph around <tt>path</tt>.
+     *
+     * @param graph {@link KamGraph}, the graph the path was found in
+     * @param path {@link GraphPath}, the path
+     * @param hops <tt>int</tt>, the neighborhood radius, <tt>0</tt> for the
+     * path nodes only
+     * @return {@link PathSubgraph}
+     */
+    static PathSubgraph around(KamGraph graph, GraphPath path, int hops) {
+        if (graph == null || path == null) {
+            throw new IllegalArgumentException("input(s) were null.");
+        }
+        if (hops < 0) {
+            throw new IllegalArgumentException("hops must be >= 0");
+        }
+
+        BitSet included = new BitSet(graph.nodeCount());
+        IntList nodes = new IntList();
+        for (int i = 0; i <= path.getLength(); i++) {
+            include(path.nodeAt(i), included, nodes);
+        }
+
+        // breadth-first, one ring of neighbors per hop
+        int ringStart = 0;
+        for (int hop = 0; hop < hops && ringStart < nodes.size; hop++) {
+            int ringEnd = nodes.size;
+            for (int i = ringStart; i < ringEnd; i++) {
+                int node = nodes.items[i];
+                addNeighbors(graph.forwardOffsets, graph.forwardNeighbors,
+                        node, included, nodes);
+                addNeighbors(graph.reverseOffsets, graph.reverseNeighbors,
+                        node, included, nodes);
+            }
+            ringStart = ringEnd;
+        }
+
+        // every edge between included nodes leaves one of them
+        IntList edges = new IntList();
+        for (int i = 0; i < nodes.size; i++) {
+            int node = nodes.items[i];
+            for (int j = graph.forwardOffsets[node],
+                    end = graph.forwardOffsets[node + 1]; j < end; j++) {
+                if (included.get(graph.forwardNeighbors[j])) {
+                    edges.add(graph.forwardEdges[j]);
+                }
+            }
+        }
+        int[] sortedEdges = edges.toArray();
+        Arrays.sort(sortedEdges);
+
+        return new PathSubgraph(nodes.toArray(), sortedEdges);
+    }
+
+    private static void addNeighbors(int[] offsets, int[] neighbors,
+            int node, BitSet included, IntList nodes) {
+        for (int j = offsets[node], end = offsets[node + 1]; j < end; j++) {
+            include(neighbors[j], included, nodes);
+        }
+    }
+
+    /**
+     * Append <tt>node</tt> to <tt>nodes</tt> unless it is already included.
+     */
+    private static void include(int node, BitSet included, IntList nodes) {
+        if (!included.get(node)) {
+            included.set(node);
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * Returns the number of included nodes.
+     *
+     * @return <tt>int</tt>
+     */
+    int nodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the number of included edges.
+     *
+     * @return <tt>int</tt>
+     */
+    int edgeCount() {
+        return edges.length;
+    }
+
+    /**
+     * Returns the included node at <tt>i</tt>.
+     *
+     * @param i <tt>int</tt>, the position
+     * @return <tt>int</tt>, the node index
+     */
+    int node(int i) {
+        return nodes[i];
+    }
+
+    /**
+     * Returns the included edge at <tt>i</tt>.
+     *
+     * @param i <tt>int</tt>, the position
+     * @return <tt>int</tt>, the edge index
+     */
+    int edge(int i) {
+        return edges[i];
+    }
+}
@@ -0,0 +1,118 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * ReachabilityFilter is a {@link PathSearch} that consults a
+ * {@link ComponentIndex} before delegating to another engine, so pairs
+ * with no possible path are answered without a search.
+ *
+ * <p>
+ * The index for each graph is built on first use and reused for every
+ * later query against the same graph.
+ * </p>
+ */
+public class ReachabilityFilter implements PathSearch {
+
+    /**
+     * Holds the engine that searches pairs the index cannot rule out.
+     */
+    private final PathSearch delegate;
+
+    /**
+     * Holds the edges and directions the delegate follows.
+     */
+    private final TraversalMode mode;
+
+    /**
+     * Holds the component index of each graph searched so far, for the
+     * life of the filter.
+     */
+    private final ConcurrentMap<KamGraph, Future<ComponentIndex>> indexes =
+            new ConcurrentHashMap<KamGraph, Future<ComponentIndex>>();
+
+    /**
+     * Constructs the ReachabilityFilter.
+     *
+     * @param delegate {@link PathSearch}, the engine to delegate to
+     * @param mode {@link TraversalMode}, the edges and directions the
+     * delegate follows
+     */
+    public ReachabilityFilter(PathSearch delegate, TraversalMode mode) {
+        if (delegate == null || mode == null) {
+            throw new IllegalArgumentException("input(s) were null.");
+        }
+        this.delegate = delegate;
+        this.mode = mode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GraphPath search(KamGraph graph, int source, int target) {
+        if (index(graph).reachability(source, target)
+                == ComponentIndex.Reachability.UNREACHABLE) {
+            return null;
+        }
+        return delegate.search(graph, source, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchResult search(KamGraph graph, int source, int target,
+            SearchBudget budget) {
+        if (index(graph).reachability(source, target)
+                == ComponentIndex.Reachability.UNREACHABLE) {
+            return SearchResult.complete(null, false);
+        }
+        return delegate.search(graph, source, target, budget);
+    }
+
+    /**
+     * Returns the component index for <tt>graph</tt>, building it on first
+     * use.  Queries for a graph whose index is still being built wait for
+     * that build; queries for other graphs do not.
+     *
+     * @param graph {@link KamGraph}, the graph
+     * @return {@link ComponentIndex}
+     */
+    public ComponentIndex index(final KamGraph graph) {
+        Future<ComponentIndex> index = indexes.get(graph);
+        if (index == null) {
+            FutureTask<ComponentIndex> build = new FutureTask<ComponentIndex>(
+                    new Callable<ComponentIndex>() {
+                        @Override
+                        public ComponentIndex call() {
+                            return ComponentIndex.build(graph, mode);
+                        }
+                    });
+            index = indexes.putIfAbsent(graph, build);
+            if (index == null) {
+                index = build;
+                build.run();
+            }
+        }
+
+        try {
+            return index.get();
+        } catch (ExecutionException e) {
+            // forget the failure so a later query can retry the build
+            indexes.remove(graph, index);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted building index");
+        }
+    }
+}
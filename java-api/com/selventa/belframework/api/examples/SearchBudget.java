@@ -0,0 +1,196 @@
+package com.selventa.belframework.api.examples;
+
+/**
+ * SearchBudget bounds the work a single path query may do: the number of
+ * edges on a path (hops), the number of nodes settled, and a wall-clock
+ * deadline.  A query can also be cancelled from another thread.
+ *
+ * <p>
+ * A budget is spent by one query; {@link #renew()} gives a fresh budget
+ * with the same limits for the next.  Its settled count accumulates across
+ * every search it is passed to, so a query made of several searches, like
+ * {@link KShortestPaths}, is bounded as a whole.  Searches check the budget
+ * cooperatively as they settle nodes; the deadline and cancellation are
+ * polled every {@link #CHECK_INTERVAL} settled nodes.
+ * </p>
+ */
+public final class SearchBudget {
+
+    /**
+     * The limit value meaning no limit.
+     */
+    public static final int UNLIMITED = 0;
+
+    /**
+     * The number of settled nodes between deadline and cancellation checks;
+     * a power of two.
+     */
+    static final int CHECK_INTERVAL = 64;
+
+    /**
+     * Holds the maximum number of edges on a path.
+     */
+    final int maxHops;
+
+    /**
+     * Holds the maximum number of settled nodes.
+     */
+    private final int maxSettled;
+
+    /**
+     * Holds the {@link System#nanoTime()} deadline, if <tt>timed</tt>.
+     */
+    private final long deadline;
+
+    /**
+     * Holds the time allowed, in milliseconds.
+     */
+    private final long timeoutMillis;
+
+    private final boolean timed;
+    private volatile boolean cancelled;
+    private int settled;
+    private SearchResult.Status exhausted;
+
+    /**
+     * Constructs the SearchBudget.  The deadline starts now.
+     *
+     * @param maxHops <tt>int</tt>, the maximum number of edges on a path, or
+     * {@link #UNLIMITED}
+     * @param maxSettled <tt>int</tt>, the maximum number of nodes settled, or
+     * {@link #UNLIMITED}
+     * @param timeoutMillis <tt>long</tt>, the time allowed in milliseconds,
+     * or {@link #UNLIMITED}
+     */
+    public SearchBudget(int maxHops, int maxSettled, long timeoutMillis) {
+        if (maxHops < 0 || maxSettled < 0 || timeoutMillis < 0) {
+            throw new IllegalArgumentException("invalid budget settings.");
+        }
+        this.maxHops = maxHops == UNLIMITED ? Integer.MAX_VALUE : maxHops;
+        this.maxSettled = maxSettled == UNLIMITED ? Integer.MAX_VALUE : maxSettled;
+        this.timeoutMillis = timeoutMillis;
+        this.timed = timeoutMillis != UNLIMITED;
+        this.deadline = System.nanoTime() + timeoutMillis * 1000000L;
+    }
+
+    /**
+     * Returns a budget with no limits, which can still be cancelled.
+     *
+     * @return {@link SearchBudget}
+     */
+    public static SearchBudget unlimited() {
+        return new SearchBudget(UNLIMITED, UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * Returns a new budget with the same limits for another query.  Its
+     * deadline starts now.
+     *
+     * @return {@link SearchBudget}
+     */
+    public SearchBudget renew() {
+        return new SearchBudget(
+                maxHops == Integer.MAX_VALUE ? UNLIMITED : maxHops,
+                maxSettled == Integer.MAX_VALUE ? UNLIMITED : maxSettled,
+                timeoutMillis);
+    }
+
+    /**
+     * Ask the searches spending this budget to stop.  Safe to call from any
+     * thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns <tt>true</tt> if {@link #cancel()} was called.
+     *
+     * @return <tt>boolean</tt>
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns <tt>true</tt> if paths are limited to a number of hops.
+     *
+     * @return <tt>boolean</tt>
+     */
+    public boolean limitsHops() {
+        return maxHops != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns <tt>true</tt> if searches are limited to a number of settled
+     * nodes or by a deadline.
+     *
+     * @return <tt>boolean</tt>
+     */
+    public boolean limitsWork() {
+        return maxSettled != Integer.MAX_VALUE || timed;
+    }
+
+    /**
+     * Returns the number of nodes settled so far.
+     *
+     * @return <tt>int</tt>
+     */
+    public int getSettled() {
+        return settled;
+    }
+
+    /**
+     * Returns the limit that stopped a search, or <tt>null</tt> if no
+     * search spending this budget was stopped.
+     *
+     * @return {@link SearchResult.Status}, one of
+     * {@link SearchResult.Status#SETTLED_LIMIT},
+     * {@link SearchResult.Status#DEADLINE} or
+     * {@link SearchResult.Status#CANCELLED}, or <tt>null</tt>
+     */
+    public SearchResult.Status getExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Charge one settled node.
+     *
+     * @return {@link SearchResult.Status}, the limit reached, or
+     * <tt>null</tt> to carry on
+     */
+    SearchResult.Status settle() {
+        if (++settled > maxSettled) {
+            return exhaust(SearchResult.Status.SETTLED_LIMIT);
+        }
+        if ((settled & (CHECK_INTERVAL - 1)) == 0) {
+            return check();
+        }
+        return null;
+    }
+
+    /**
+     * Check the deadline and cancellation now, and whether an earlier
+     * search already spent the budget.
+     *
+     * @return {@link SearchResult.Status}, the limit reached, or
+     * <tt>null</tt> to carry on
+     */
+    SearchResult.Status check() {
+        if (exhausted != null) {
+            return exhausted;
+        }
+        if (cancelled) {
+            return exhaust(SearchResult.Status.CANCELLED);
+        }
+        if (timed && System.nanoTime() - deadline >= 0) {
+            return exhaust(SearchResult.Status.DEADLINE);
+        }
+        return null;
+    }
+
+    private SearchResult.Status exhaust(SearchResult.Status status) {
+        exhausted = status;
+        return status;
+    }
+}
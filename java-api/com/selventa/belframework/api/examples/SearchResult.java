@@ -0,0 +1,126 @@
+package com.selventa.belframework.api.examples;
+
+/**
+ * SearchResult is the outcome of a budgeted path search: a
+ * {@link Status reason code} and, if the target was reached, a path.
+ *
+ * <p>
+ * A search stopped by its {@link SearchBudget} returns a partial result.
+ * If the target had been labelled when the search stopped, the path is the
+ * best one seen so far, a valid path that is not proven shortest.
+ * </p>
+ */
+public final class SearchResult {
+
+    /**
+     * Status is the reason a search ended.
+     */
+    public enum Status {
+        /**
+         * The shortest path within the hop limit was found.
+         */
+        FOUND("found"),
+
+        /**
+         * There is no path from the source to the target.
+         */
+        NO_PATH("no path"),
+
+        /**
+         * No path exists within the hop limit; a longer one may exist.
+         */
+        HOP_LIMIT("hop limit"),
+
+        /**
+         * The search settled its maximum number of nodes.
+         */
+        SETTLED_LIMIT("settled limit"),
+
+        /**
+         * The search ran past its deadline.
+         */
+        DEADLINE("deadline"),
+
+        /**
+         * The search was cancelled.
+         */
+        CANCELLED("cancelled");
+
+        private final String label;
+
+        private Status(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Returns the status as lower case words, e.g. <tt>no path</tt>.
+         *
+         * @return {@link String}
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Returns <tt>true</tt> if the search ran to completion.
+         *
+         * @return <tt>boolean</tt>
+         */
+        public boolean isComplete() {
+            return this == FOUND || this == NO_PATH || this == HOP_LIMIT;
+        }
+    }
+
+    private final Status status;
+    private final GraphPath path;
+
+    /**
+     * Constructs the SearchResult.
+     *
+     * @param status {@link Status}, the reason the search ended
+     * @param path {@link GraphPath}, the path found, or <tt>null</tt>
+     */
+    public SearchResult(Status status, GraphPath path) {
+        if (status == null) {
+            throw new IllegalArgumentException("status is null");
+        }
+        this.status = status;
+        this.path = path;
+    }
+
+    /**
+     * Returns the result of a search that ran to completion.
+     *
+     * @param path {@link GraphPath}, the path found, or <tt>null</tt>
+     * @param pruned <tt>boolean</tt>, <tt>true</tt> if the hop limit kept the
+     * search from extending some path
+     * @return {@link SearchResult}
+     */
+    static SearchResult complete(GraphPath path, boolean pruned) {
+        if (path != null) {
+            return new SearchResult(Status.FOUND, path);
+        }
+        return new SearchResult(pruned ? Status.HOP_LIMIT : Status.NO_PATH,
+                null);
+    }
+
+    /**
+     * Returns the reason the search ended.
+     *
+     * @return {@link Status}
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the path found: the shortest path if the status is
+     * {@link Status#FOUND}, the best path seen if the search was stopped
+     * early, or <tt>null</tt>.
+     *
+     * @return {@link GraphPath}
+     */
+    public GraphPath getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,236 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Arrays;
+
+/**
+ * ShortestPathTree holds the shortest path distance and predecessor edge of
+ * every node of a {@link KamGraph} from a single root node.
+ *
+ * <p>
+ * In a directed {@link TraversalMode} a tree either holds distances from
+ * the root (an out-tree) or distances to the root (an in-tree, computed by
+ * walking edges against their direction).
+ * </p>
+ */
+public final class ShortestPathTree {
+
+    /**
+     * Marks an unreachable node.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Holds the root node index.
+     */
+    private final int root;
+
+    /**
+     * Holds the distance of each node from the root.
+     */
+    final int[] distances;
+
+    /**
+     * Holds the edge each node is reached through, <tt>-1</tt> for the root
+     * and unreachable nodes.
+     */
+    private final int[] predecessors;
+
+    /**
+     * Holds whether the tree holds distances to, rather than from, the root.
+     */
+    private final boolean inTree;
+
+    /**
+     * Constructs the ShortestPathTree.
+     *
+     * @param root <tt>int</tt>, the root node index
+     * @param distances <tt>int[]</tt>, the distance of each node
+     * @param predecessors <tt>int[]</tt>, the predecessor edge of each node
+     * @param inTree <tt>boolean</tt>, whether the distances are to the root
+     */
+    ShortestPathTree(int root, int[] distances, int[] predecessors,
+            boolean inTree) {
+        this.root = root;
+        this.distances = distances;
+        this.predecessors = predecessors;
+        this.inTree = inTree;
+    }
+
+    /**
+     * Compute the undirected shortest path tree rooted at <tt>root</tt>.
+     *
+     * @param graph {@link KamGraph}, the graph
+     * @param root <tt>int</tt>, the root node index
+     * @return {@link ShortestPathTree}
+     */
+    public static ShortestPathTree compute(KamGraph graph, int root) {
+        return compute(graph, root, TraversalMode.UNDIRECTED, false);
+    }
+
+    /**
+     * Compute the shortest path tree rooted at <tt>root</tt> over the edges
+     * <tt>mode</tt> follows.
+     *
+     * @param graph {@link KamGraph}, the graph
+     * @param root <tt>int</tt>, the root node index
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param inTree <tt>boolean</tt>, <tt>true</tt> to compute distances to
+     * the root rather than from it; ignored by undirected modes
+     * @return {@link ShortestPathTree}
+     */
+    public static ShortestPathTree compute(KamGraph graph, int root,
+            TraversalMode mode, boolean inTree) {
+        return compute(graph, root, mode, inTree, null);
+    }
+
+    /**
+     * Compute the shortest path tree rooted at <tt>root</tt>, charging every
+     * settled node to <tt>budget</tt>.
+     *
+     * @param graph {@link KamGraph}, the graph
+     * @param root <tt>int</tt>, the root node index
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param inTree <tt>boolean</tt>, <tt>true</tt> to compute distances to
+     * the root rather than from it; ignored by undirected modes
+     * @param budget {@link SearchBudget}, the budget, or <tt>null</tt> for
+     * none
+     * @return {@link ShortestPathTree}, or <tt>null</tt> if the budget was
+     * exhausted before the tree was complete
+     */
+    static ShortestPathTree compute(KamGraph graph, int root,
+            TraversalMode mode, boolean inTree, SearchBudget budget) {
+        final int[] distances = new int[graph.nodeCount()];
+        final int[] predecessors = new int[graph.nodeCount()];
+        Arrays.fill(distances, UNREACHABLE);
+        Arrays.fill(predecessors, -1);
+        final PackedMinHeap unsettled = new PackedMinHeap(512);
+
+        final boolean reverse = inTree && mode.directed;
+        final int mask = mode.mask;
+        final int passes = mode.directed ? 1 : 2;
+        final int[][] offsets = { graph.forwardOffsets, graph.reverseOffsets };
+        final int[][] adjEdges = { graph.forwardEdges, graph.reverseEdges };
+        final int[][] neighbors = { graph.forwardNeighbors, graph.reverseNeighbors };
+        final int first = reverse ? 1 : 0;
+
+        distances[root] = 0;
+        unsettled.push(0, root);
+        while (!unsettled.isEmpty()) {
+            long minimum = unsettled.poll();
+            int node = PackedMinHeap.node(minimum);
+            int dref = PackedMinHeap.priority(minimum);
+            if (dref > distances[node]) {
+                continue;
+            }
+            if (budget != null && budget.settle() != null) {
+                // a partial tree is wrong for the nodes it did not settle
+                return null;
+            }
+            for (int pass = 0; pass < passes; pass++) {
+                // an in-tree walks the reverse adjacency first
+                final int side = first ^ pass;
+                final int[] sideEdges = adjEdges[side];
+                final int[] sideNeighbors = neighbors[side];
+                for (int i = offsets[side][node],
+                        end = offsets[side][node + 1]; i < end; i++) {
+                    int edge = sideEdges[i];
+                    if ((graph.edgeFlags[edge] & mask) == 0) {
+                        continue;
+                    }
+                    int next = sideNeighbors[i];
+                    int dnew = dref + graph.edgeWeights[edge];
+                    if (dnew < distances[next]) {
+                        distances[next] = dnew;
+                        predecessors[next] = edge;
+                        unsettled.push(dnew, next);
+                    }
+                }
+            }
+        }
+        return new ShortestPathTree(root, distances, predecessors, reverse);
+    }
+
+    /**
+     * Returns the root node index.
+     *
+     * @return <tt>int</tt>
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the tree holds distances to, rather than
+     * from, the root.
+     *
+     * @return <tt>boolean</tt>
+     */
+    public boolean isInTree() {
+        return inTree;
+    }
+
+    /**
+     * Returns the distance of <tt>node</tt> from (or, for an in-tree, to)
+     * the root.
+     *
+     * @param node <tt>int</tt>, the node index
+     * @return <tt>int</tt>, the distance or {@link #UNREACHABLE}
+     */
+    public int distance(int node) {
+        return distances[node];
+    }
+
+    /**
+     * Returns the edge <tt>node</tt> is reached through.
+     *
+     * @param node <tt>int</tt>, the node index
+     * @return <tt>int</tt>, the edge index, <tt>-1</tt> for the root and
+     * unreachable nodes
+     */
+    public int predecessor(int node) {
+        return predecessors[node];
+    }
+
+    /**
+     * Returns the number of nodes in the tree's graph.
+     *
+     * @return <tt>int</tt>
+     */
+    public int nodeCount() {
+        return distances.length;
+    }
+
+    /**
+     * Returns the tree path between the root and <tt>node</tt>, from the
+     * root to <tt>node</tt> or, for an in-tree, from <tt>node</tt> to the
+     * root.
+     *
+     * @param graph {@link KamGraph}, the graph the tree was computed over
+     * @param node <tt>int</tt>, the node index
+     * @return {@link GraphPath}, or <tt>null</tt> if <tt>node</tt> is
+     * unreachable
+     */
+    public GraphPath pathTo(KamGraph graph, int node) {
+        if (!inTree) {
+            return GraphPath.trace(graph, predecessors, root, node);
+        }
+        if (distances[node] == UNREACHABLE) {
+            return null;
+        }
+
+        int length = 0;
+        for (int v = node; predecessors[v] != -1; length++) {
+            v = graph.opposite(predecessors[v], v);
+        }
+        int[] nodes = new int[length + 1];
+        int[] edges = new int[length];
+        int v = node;
+        nodes[0] = node;
+        for (int i = 0; i < length; i++) {
+            edges[i] = predecessors[v];
+            v = graph.opposite(edges[i], v);
+            nodes[i + 1] = v;
+        }
+        return new GraphPath(nodes, edges, distances[node]);
+    }
+}
@@ -0,0 +1,340 @@
+package com.selventa.belframework.api.examples;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.selventa.belframework.kamstore.data.jdbc.KAMCatalogDao.KamInfo;
+
+/**
+ * ShortestPathTreeCache keeps completed {@link ShortestPathTree shortest
+ * path trees} under a memory budget, evicting the least recently used tree
+ * first.
+ *
+ * <p>
+ * Trees are keyed by kam name, kam last compiled time, source node id and
+ * {@link TraversalMode}, so a recompiled kam never sees stale trees.  A tree
+ * is computed at most once: concurrent requests for a tree that is still
+ * being computed wait for it.  Requests with a limited budget are the
+ * exception; they never cache a partial tree.  Graphs whose compile time
+ * is unknown are never cached.
+ * </p>
+ */
+public class ShortestPathTreeCache {
+
+    /**
+     * Approximate fixed overhead of a cached tree, in bytes.
+     */
+    private static final long TREE_OVERHEAD = 128;
+
+    /**
+     * Milliseconds between budget checks while waiting for a tree another
+     * request is computing.
+     */
+    private static final long WAIT_MILLIS = 10;
+
+    /**
+     * Holds the memory budget, in bytes.
+     */
+    private final long maxBytes;
+
+    /**
+     * Holds the cached trees in least recently used order.
+     */
+    private final LinkedHashMap<Key, Entry> trees = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs the ShortestPathTreeCache.
+     *
+     * @param maxBytes <tt>long</tt>, the memory budget in bytes
+     */
+    public ShortestPathTreeCache(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be >= 1");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the shortest path tree rooted at <tt>source</tt>, computing
+     * it if it is not cached.
+     *
+     * @param graph {@link KamGraph}, the graph
+     * @param source <tt>int</tt>, the source node index
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @return {@link ShortestPathTree}
+     */
+    public ShortestPathTree get(final KamGraph graph, final int source,
+            final TraversalMode mode) {
+        final long size = treeBytes(graph.nodeCount());
+        final KamInfo kamInfo = graph.getKamInfo();
+        final Date lastCompiled = kamInfo == null ? null
+                : kamInfo.getLastCompiled();
+        if (lastCompiled == null || size > maxBytes) {
+            return ShortestPathTree.compute(graph, source, mode, false);
+        }
+
+        final Key key = new Key(kamInfo.getName(), lastCompiled.getTime(),
+                graph.nodeIds[source], mode);
+        Entry entry;
+        boolean compute = false;
+        synchronized (this) {
+            entry = trees.get(key);
+            if (entry == null) {
+                entry = new Entry(size, new FutureTask<ShortestPathTree>(
+                        new Callable<ShortestPathTree>() {
+                            @Override
+                            public ShortestPathTree call() {
+                                return ShortestPathTree.compute(graph,
+                                        source, mode, false);
+                            }
+                        }));
+                trees.put(key, entry);
+                bytes += size;
+                misses++;
+                compute = true;
+                evict(key);
+            } else {
+                hits++;
+            }
+        }
+
+        if (compute) {
+            entry.tree.run();
+        }
+        try {
+            return entry.tree.get();
+        } catch (ExecutionException e) {
+            throw failed(key, entry, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for tree");
+        }
+    }
+
+    /**
+     * Returns the shortest path tree rooted at <tt>source</tt>, computing
+     * it within <tt>budget</tt> if it is not cached.
+     *
+     * <p>
+     * If the budget limits settled nodes or time, a missing tree is
+     * computed by the caller alone and cached only if it completes, and a
+     * tree another request is still computing is waited for only while the
+     * budget lasts.  Otherwise this is {@link #get(KamGraph, int,
+     * TraversalMode)}.
+     * </p>
+     *
+     * @param graph {@link KamGraph}, the graph
+     * @param source <tt>int</tt>, the source node index
+     * @param mode {@link TraversalMode}, the edges and directions to follow
+     * @param budget {@link SearchBudget}, the budget
+     * @return {@link ShortestPathTree}, or <tt>null</tt> if the budget was
+     * exhausted first
+     */
+    public ShortestPathTree get(final KamGraph graph, final int source,
+            final TraversalMode mode, SearchBudget budget) {
+        if (!budget.limitsWork()) {
+            return get(graph, source, mode);
+        }
+        final long size = treeBytes(graph.nodeCount());
+        final KamInfo kamInfo = graph.getKamInfo();
+        final Date lastCompiled = kamInfo == null ? null
+                : kamInfo.getLastCompiled();
+        if (lastCompiled == null || size > maxBytes) {
+            return ShortestPathTree.compute(graph, source, mode, false,
+                    budget);
+        }
+
+        final Key key = new Key(kamInfo.getName(), lastCompiled.getTime(),
+                graph.nodeIds[source], mode);
+        Entry entry;
+        synchronized (this) {
+            entry = trees.get(key);
+            if (entry == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+        }
+
+        if (entry == null) {
+            final ShortestPathTree tree = ShortestPathTree.compute(graph,
+                    source, mode, false, budget);
+            if (tree == null) {
+                return null;
+            }
+            synchronized (this) {
+                if (!trees.containsKey(key)) {
+                    entry = new Entry(size, new FutureTask<ShortestPathTree>(
+                            new Callable<ShortestPathTree>() {
+                                @Override
+                                public ShortestPathTree call() {
+                                    return tree;
+                                }
+                            }));
+                    entry.tree.run();
+                    trees.put(key, entry);
+                    bytes += size;
+                    evict(key);
+                }
+            }
+            return tree;
+        }
+
+        while (true) {
+            try {
+                return entry.tree.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (budget.check() != null) {
+                    return null;
+                }
+            } catch (ExecutionException e) {
+                throw failed(key, entry, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted waiting for tree");
+            }
+        }
+    }
+
+    /**
+     * Returns the approximate number of bytes held by cached trees.
+     *
+     * @return <tt>long</tt>
+     */
+    public synchronized long size() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of cached trees.
+     *
+     * @return <tt>int</tt>
+     */
+    public synchronized int treeCount() {
+        return trees.size();
+    }
+
+    /**
+     * Returns the number of requests answered from the cache.
+     *
+     * @return <tt>long</tt>
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests that computed a tree.
+     *
+     * @return <tt>long</tt>
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the approximate size of a tree over <tt>nodeCount</tt> nodes.
+     *
+     * @param nodeCount <tt>int</tt>, the number of nodes
+     * @return <tt>long</tt>, the size in bytes
+     */
+    static long treeBytes(int nodeCount) {
+        // a distance and a predecessor int per node
+        return 8L * nodeCount + TREE_OVERHEAD;
+    }
+
+    /**
+     * Drop the entry of a tree whose computation failed, returning the
+     * failure to rethrow.
+     */
+    private RuntimeException failed(Key key, Entry entry,
+            ExecutionException e) {
+        synchronized (this) {
+            if (trees.get(key) == entry) {
+                trees.remove(key);
+                bytes -= entry.size;
+            }
+        }
+        if (e.getCause() instanceof RuntimeException) {
+            return (RuntimeException) e.getCause();
+        }
+        return new IllegalStateException(e.getCause());
+    }
+
+    /**
+     * Evict least recently used trees, other than <tt>keep</tt>, until the
+     * cache is within budget.
+     */
+    private void evict(Key keep) {
+        Iterator<Map.Entry<Key, Entry>> it = trees.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<Key, Entry> eldest = it.next();
+            if (!eldest.getKey().equals(keep)) {
+                bytes -= eldest.getValue().size;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Entry is a cached, or still computing, tree and its size.
+     */
+    private static final class Entry {
+        private final long size;
+        private final FutureTask<ShortestPathTree> tree;
+
+        private Entry(long size, FutureTask<ShortestPathTree> tree) {
+            this.size = size;
+            this.tree = tree;
+        }
+    }
+
+    /**
+     * Key identifies a tree by kam, compile time, source node id and mode.
+     */
+    private static final class Key {
+        private final String kamName;
+        private final long lastCompiled;
+        private final int sourceNodeId;
+        private final TraversalMode mode;
+
+        private Key(String kamName, long lastCompiled, int sourceNodeId,
+                TraversalMode mode) {
+            this.kamName = kamName;
+            this.lastCompiled = lastCompiled;
+            this.sourceNodeId = sourceNodeId;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return sourceNodeId == other.sourceNodeId
+                    && lastCompiled == other.lastCompiled
+                    && mode == other.mode
+                    && kamName.equals(other.kamName);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = kamName.hashCode();
+            hash = 31 * hash + (int) (lastCompiled ^ (lastCompiled >>> 32));
+            hash = 31 * hash + sourceNodeId;
+            return 31 * hash + mode.hashCode();
+        }
+    }
+}
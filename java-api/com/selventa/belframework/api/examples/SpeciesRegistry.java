@@ -0,0 +1,215 @@
+package com.selventa.belframework.api.examples;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SpeciesRegistry holds the species the examples summarize and filter by,
+ * each with the tax id used as its "Species" annotation value, and maps
+ * annotation values to small <tt>int</tt> species codes.
+ *
+ * Codes are assigned in registration order. Annotation values are looked up
+ * in an open-addressing table with linear probing, so classifying an
+ * annotation is one hash of its value, which {@link String} caches, and a
+ * short probe, with no allocation.
+ *
+ * Species are read from a file of <tt>name=taxId</tt> lines, blank lines
+ * and lines starting with <tt>#</tt> ignored, e.g.:
+ *
+ * <pre>
+ * # species name = tax id
+ * Human=9606
+ * Mouse=10090
+ * Rat=10116
+ * </pre>
+ */
+public final class SpeciesRegistry {
+
+	private final String[] names;
+	private final String[] taxIds;
+	private final String[] table;
+	private final int[] tableCodes;
+	private final int mask;
+
+	private SpeciesRegistry(List<String> names, List<String> taxIds) {
+		this.names = names.toArray(new String[names.size()]);
+		this.taxIds = taxIds.toArray(new String[taxIds.size()]);
+
+		// names are looked up ignoring case, so they must differ ignoring case
+		for (int code = 0; code < this.names.length; code++) {
+			for (int other = 0; other < code; other++) {
+				if (this.names[other].equalsIgnoreCase(this.names[code])) {
+					throw new IllegalArgumentException("duplicate species name " + this.names[code]);
+				}
+			}
+		}
+
+		// at most half full, so probes stay short
+		int capacity = 4;
+		while (capacity < this.taxIds.length * 2) {
+			capacity <<= 1;
+		}
+		table = new String[capacity];
+		tableCodes = new int[capacity];
+		mask = capacity - 1;
+		for (int code = 0; code < this.taxIds.length; code++) {
+			int slot = slot(this.taxIds[code]);
+			while (table[slot] != null) {
+				if (table[slot].equals(this.taxIds[code])) {
+					throw new IllegalArgumentException("duplicate tax id " + this.taxIds[code]);
+				}
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = this.taxIds[code];
+			tableCodes[slot] = code;
+		}
+	}
+
+	/**
+	 * returns the registry of human, mouse and rat.
+	 *
+	 * @return
+	 */
+	public static SpeciesRegistry defaults() {
+		List<String> names = new ArrayList<String>();
+		List<String> taxIds = new ArrayList<String>();
+		names.add("Human");
+		taxIds.add("9606");
+		names.add("Mouse");
+		taxIds.add("10090");
+		names.add("Rat");
+		taxIds.add("10116");
+		return new SpeciesRegistry(names, taxIds);
+	}
+
+	/**
+	 * Reads a registry from a file of <tt>name=taxId</tt> lines.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static SpeciesRegistry load(File file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("file was null.");
+		}
+		List<String> names = new ArrayList<String>();
+		List<String> taxIds = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line;
+			int number = 0;
+			while ((line = reader.readLine()) != null) {
+				number++;
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				int eq = line.indexOf('=');
+				if (eq < 1 || eq == line.length() - 1) {
+					throw new IOException(file + ":" + number + ": expected name=taxId");
+				}
+				names.add(line.substring(0, eq).trim());
+				taxIds.add(line.substring(eq + 1).trim());
+			}
+		} finally {
+			reader.close();
+		}
+		try {
+			return new SpeciesRegistry(names, taxIds);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(file + ": " + e.getMessage());
+		}
+	}
+
+	private int slot(String value) {
+		int h = value.hashCode();
+		// spread the high bits into the low bits used as the slot
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * returns the species code of an annotation value, or -1 if it is not
+	 * the tax id of a registered species.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public int code(String value) {
+		if (value == null) {
+			return -1;
+		}
+		for (int slot = slot(value); table[slot] != null; slot = (slot + 1) & mask) {
+			if (table[slot].equals(value)) {
+				return tableCodes[slot];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * returns the number of registered species.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * returns the name of the species with code <tt>code</tt>.
+	 *
+	 * @param code
+	 * @return
+	 */
+	public String name(int code) {
+		return names[code];
+	}
+
+	/**
+	 * returns the tax id of the species with code <tt>code</tt>.
+	 *
+	 * @param code
+	 * @return
+	 */
+	public String taxId(int code) {
+		return taxIds[code];
+	}
+
+	/**
+	 * returns the tax id of the named species, ignoring case.
+	 *
+	 * @param name
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if no species has the name
+	 */
+	public String taxId(String name) {
+		for (int code = 0; code < names.length; code++) {
+			if (names[code].equalsIgnoreCase(name)) {
+				return taxIds[code];
+			}
+		}
+		throw new IllegalArgumentException("unknown species " + name);
+	}
+
+	/**
+	 * returns the species as <tt>name=taxId</tt> pairs, in code order.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder bldr = new StringBuilder();
+		for (int code = 0; code < names.length; code++) {
+			if (code > 0) {
+				bldr.append(',');
+			}
+			bldr.append(names[code]).append('=').append(taxIds[code]);
+		}
+		return bldr.toString();
+	}
+}
@@ -0,0 +1,82 @@
+package com.selventa.belframework.api.examples;
+
+/**
+ * TraversalMode selects which {@link KamGraph} edges a path search may
+ * follow and in which direction.
+ *
+ * <p>
+ * Each mode is an edge flag mask, tested against
+ * {@link KamGraph#edgeFlags} with a single AND, and a direction flag.
+ * Directed modes only walk edges from source to target node.
+ * </p>
+ */
+public enum TraversalMode {
+
+    /**
+     * Follow every edge in either direction.
+     */
+    UNDIRECTED(KamGraph.TRAVERSABLE, false),
+
+    /**
+     * Follow every edge from source to target node.
+     */
+    DIRECTED(KamGraph.TRAVERSABLE, true),
+
+    /**
+     * Follow only causal and direct edges, from source to target node.
+     */
+    CAUSAL(KamGraph.CAUSAL | KamGraph.DIRECT, true);
+
+    /**
+     * Holds the edge flags, any one of which makes an edge traversable.
+     */
+    final int mask;
+
+    /**
+     * Holds whether edges are only followed from source to target node.
+     */
+    final boolean directed;
+
+    private TraversalMode(int mask, boolean directed) {
+        this.mask = mask;
+        this.directed = directed;
+    }
+
+    /**
+     * Returns <tt>true</tt> if edges are only followed from source to target
+     * node.
+     *
+     * @return <tt>boolean</tt>
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this mode follows <tt>edge</tt> of
+     * <tt>graph</tt>.
+     *
+     * @param graph {@link KamGraph}, the graph
+     * @param edge <tt>int</tt>, the edge index
+     * @return <tt>boolean</tt>
+     */
+    public boolean follows(KamGraph graph, int edge) {
+        return (graph.edgeFlags[edge] & mask) != 0;
+    }
+
+    /**
+     * Returns the mode named <tt>name</tt>, ignoring case.
+     *
+     * @param name {@link String}, the mode name
+     * @return {@link TraversalMode}, or <tt>null</tt> if the name is not
+     * recognized
+     */
+    public static TraversalMode forName(String name) {
+        for (TraversalMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+}